@@ -93,6 +93,74 @@ def get_substitutions():
         }), 500
 
 
+@app.route('/ai/substitutions/batch', methods=['POST'])
+def get_batch_substitutions():
+    """
+    Generate substitution suggestions for several missing ingredients of one
+    recipe with a single OpenAI call
+    
+    Request JSON:
+    {
+        "ingredients": ["tomato", "basil"],
+        "cuisine": "ITALIAN",
+        "recipeIngredients": ["pasta", "tomato", "basil"],
+        "fridgeSupplies": ["pasta", "bell pepper", "spinach"]
+    }
+    
+    Response JSON (same substitute format as /ai/substitutions):
+    {
+        "substitutions": {
+            "tomato": [{"ingredient": "bell pepper", "inFridge": true, ...}],
+            "basil": [...]
+        }
+    }
+    """
+    print("\n" + "="*60)
+    print("[AI SERVICE] Received batch substitution request")
+    print("="*60)
+    
+    try:
+        data = request.get_json()
+        
+        ingredients = [i for i in data.get('ingredients', []) if i]
+        cuisine = data.get('cuisine', 'OTHER')
+        recipe_ingredients = data.get('recipeIngredients', [])
+        fridge_supplies = data.get('fridgeSupplies', [])
+        
+        print(f"[DEBUG] Ingredients: {ingredients}")
+        
+        if not ingredients:
+            print("[ERROR] Missing ingredients parameter")
+            return jsonify({"error": "Missing ingredients parameter"}), 400
+        
+        if not openai_client.is_available():
+            print("[ERROR] AI service (OpenAI) is not available")
+            return jsonify({
+                "error": "AI service (OpenAI) is not available",
+                "substitutions": {}
+            }), 503
+        
+        substitutions = generate_batch_substitution_suggestions(
+            ingredients,
+            cuisine,
+            recipe_ingredients,
+            fridge_supplies
+        )
+        
+        print(f"[SUCCESS] Generated substitutions for {len(substitutions)} ingredients")
+        
+        return jsonify({"substitutions": substitutions})
+        
+    except Exception as e:
+        print(f"[ERROR] Failed to generate batch substitutions: {e}")
+        import traceback
+        traceback.print_exc()
+        return jsonify({
+            "error": str(e),
+            "substitutions": {}
+        }), 500
+
+
 def generate_substitution_suggestions(ingredient, cuisine, recipe_ingredients, fridge_supplies):
     """
     Use OpenAI to generate ingredient substitution suggestions
@@ -154,58 +222,10 @@ Return ONLY valid JSON, no markdown."""
             substitutes = parsed.get('substitutes', [])
             print(f"[DEBUG] Found {len(substitutes)} substitutes in response")
             
-            # Validate and clean each substitute
-            cleaned_substitutes = []
-            for idx, sub in enumerate(substitutes):
-                print(f"[DEBUG] Processing substitute {idx + 1}: {sub}")
-                
-                if not isinstance(sub, dict):
-                    print(f"[WARNING] Substitute {idx + 1} is not a dict, skipping")
-                    continue
-                
-                ingredient_name = sub.get('ingredient', '').strip()
-                if not ingredient_name:
-                    print(f"[WARNING] Substitute {idx + 1} has no ingredient name, skipping")
-                    continue
-                
-                print(f"[DEBUG] Ingredient name: '{ingredient_name}'")
-                
-                # Validate confidence
-                confidence = sub.get('confidence', 0.5)
-                if isinstance(confidence, str):
-                    try:
-                        confidence = float(confidence)
-                    except:
-                        confidence = 0.5
-                confidence = max(0.0, min(1.0, confidence))  # Clamp to [0, 1]
-                
-                # Check if actually in fridge (case-insensitive)
-                fridge_lower = [item.lower() for item in fridge_supplies]
-                in_fridge = ingredient_name.lower() in fridge_lower
-                
-                print(f"[DEBUG] Is '{ingredient_name}' in fridge? {in_fridge}")
-                
-                # STRICT FILTER: Only include if it's actually in the fridge
-                if not in_fridge:
-                    print(f"[WARNING] '{ingredient_name}' is NOT in fridge, skipping!")
-                    continue
-                
-                reasoning = sub.get('reasoning', 'Suitable alternative')[:200]  # Limit length
-                
-                cleaned_substitutes.append({
-                    "ingredient": ingredient_name,
-                    "inFridge": True,  # Always true now since we filtered
-                    "confidence": round(confidence, 2),
-                    "reasoning": reasoning
-                })
-                
-                print(f"[SUCCESS] Added substitute: {ingredient_name} (confidence: {confidence})")
-            
-            # Sort by confidence (highest first)
-            cleaned_substitutes.sort(key=lambda x: x['confidence'], reverse=True)
+            cleaned_substitutes = clean_substitutes(substitutes, fridge_supplies)
             
             print(f"[SUCCESS] Returning {len(cleaned_substitutes)} substitution suggestions")
-            return cleaned_substitutes[:3]  # Return top 3 from fridge only
+            return cleaned_substitutes
             
         except json.JSONDecodeError as e:
             print(f"[ERROR] Failed to parse JSON: {e}")
@@ -219,6 +239,141 @@ Return ONLY valid JSON, no markdown."""
         return []
 
 
+def generate_batch_substitution_suggestions(ingredients, cuisine, recipe_ingredients, fridge_supplies):
+    """
+    Use one OpenAI call to generate substitutes for every missing ingredient.
+    Returns a dict of ingredient -> cleaned substitutes (empty list when none)
+    """
+    fridge_list = ', '.join(fridge_supplies[:20]) if fridge_supplies else 'EMPTY FRIDGE'
+    missing_list = '\n'.join(f'- {ingredient}' for ingredient in ingredients)
+    
+    prompt = f"""You are a professional chef. A user wants to cook a {cuisine} recipe but is missing these ingredients:
+{missing_list}
+
+CRITICAL RULE: You can ONLY suggest substitutes from the user's fridge. Do NOT suggest items not listed below!
+
+User's Fridge (ONLY suggest from these):
+{fridge_list}
+
+Recipe Context:
+- Cuisine: {cuisine}
+- Other ingredients: {', '.join(recipe_ingredients[:10])}
+
+Task: For EACH missing ingredient, find 1-3 items from the fridge above that can substitute for it.
+
+Return ONLY valid JSON in this exact format, with one key per missing ingredient (spelled exactly as above):
+{{
+  "substitutions": {{
+    "missing ingredient": [
+      {{
+        "ingredient": "exact name from fridge list",
+        "inFridge": true,
+        "confidence": 0.0 to 1.0,
+        "reasoning": "why this fridge item works"
+      }}
+    ]
+  }}
+}}
+
+RULES:
+- ONLY use ingredients from the fridge list above
+- If no good substitutes exist in fridge for an ingredient, use an empty array []
+- Confidence: 1.0 = perfect, 0.7 = good, 0.5 = acceptable
+- Keep reasoning under 40 words
+- Return 1-3 substitutes max per ingredient
+
+Return ONLY valid JSON, no markdown."""
+
+    print(f"[DEBUG] Requesting batch substitutions for {ingredients} from OpenAI...")
+    
+    result = {ingredient: [] for ingredient in ingredients}
+    try:
+        response = openai_client.generate(prompt, format_json=True)
+        
+        if not response:
+            print(f"[ERROR] OpenAI returned empty response")
+            return result
+        
+        try:
+            parsed = json.loads(response).get('substitutions', {})
+        except (json.JSONDecodeError, AttributeError) as e:
+            print(f"[ERROR] Failed to parse JSON: {e}")
+            print(f"[DEBUG] Raw response: {response[:500]}")
+            return result
+        
+        # Match keys case-insensitively; the model may not echo the exact spelling
+        by_lower = {str(key).strip().lower(): value for key, value in parsed.items()} if isinstance(parsed, dict) else {}
+        for ingredient in ingredients:
+            result[ingredient] = clean_substitutes(by_lower.get(ingredient.strip().lower(), []), fridge_supplies)
+        return result
+        
+    except Exception as e:
+        print(f"[ERROR] OpenAI request failed: {e}")
+        import traceback
+        traceback.print_exc()
+        return result
+
+
+def clean_substitutes(substitutes, fridge_supplies):
+    """
+    Validate substitutes returned by the model: keep only fridge items,
+    clamp confidence, and return the top 3 by confidence
+    """
+    if not isinstance(substitutes, list):
+        return []
+    
+    # Validate and clean each substitute
+    cleaned_substitutes = []
+    for idx, sub in enumerate(substitutes):
+        print(f"[DEBUG] Processing substitute {idx + 1}: {sub}")
+        
+        if not isinstance(sub, dict):
+            print(f"[WARNING] Substitute {idx + 1} is not a dict, skipping")
+            continue
+        
+        ingredient_name = sub.get('ingredient', '').strip()
+        if not ingredient_name:
+            print(f"[WARNING] Substitute {idx + 1} has no ingredient name, skipping")
+            continue
+        
+        print(f"[DEBUG] Ingredient name: '{ingredient_name}'")
+        
+        # Validate confidence
+        confidence = sub.get('confidence', 0.5)
+        if isinstance(confidence, str):
+            try:
+                confidence = float(confidence)
+            except:
+                confidence = 0.5
+        confidence = max(0.0, min(1.0, confidence))  # Clamp to [0, 1]
+        
+        # Check if actually in fridge (case-insensitive)
+        fridge_lower = [item.lower() for item in fridge_supplies]
+        in_fridge = ingredient_name.lower() in fridge_lower
+        
+        print(f"[DEBUG] Is '{ingredient_name}' in fridge? {in_fridge}")
+        
+        # STRICT FILTER: Only include if it's actually in the fridge
+        if not in_fridge:
+            print(f"[WARNING] '{ingredient_name}' is NOT in fridge, skipping!")
+            continue
+        
+        reasoning = sub.get('reasoning', 'Suitable alternative')[:200]  # Limit length
+        
+        cleaned_substitutes.append({
+            "ingredient": ingredient_name,
+            "inFridge": True,  # Always true now since we filtered
+            "confidence": round(confidence, 2),
+            "reasoning": reasoning
+        })
+        
+        print(f"[SUCCESS] Added substitute: {ingredient_name} (confidence: {confidence})")
+    
+    # Sort by confidence (highest first)
+    cleaned_substitutes.sort(key=lambda x: x['confidence'], reverse=True)
+    return cleaned_substitutes[:3]  # Return top 3 from fridge only
+
+
 @app.route('/health', methods=['GET'])
 def health_check():
     """Health check endpoint"""
@@ -316,6 +471,7 @@ if __name__ == '__main__':
     print()
     print("Available endpoints:")
     print("  POST /ai/substitutions - Get ingredient substitutions")
+    print("  POST /ai/substitutions/batch - Substitutions for several ingredients at once")
     print("  POST /ai/parse-recipe - Parse recipe text")
     print("  GET  /health - Health check")
     print()
@@ -206,10 +206,35 @@ def hybrid_search_recipes(ingredients=None, query=None, limit=10, score_threshol
     return [], "Could not connect to backend"
 
 
-def index_all_recipes():
-    """Index all recipes for semantic search"""
+def index_all_recipes(changed_only=False, wait_seconds=600, poll_interval=1.0):
+    """Start a background re-index and wait for it to finish (up to wait_seconds).
+    With changed_only, only new or edited recipes are re-embedded."""
     try:
-        response = requests.post(f"{API_URL}/search/index-all")
+        endpoint = "index-changed" if changed_only else "index-all"
+        response = requests.post(f"{API_URL}/search/{endpoint}")
+        result = response.json()
+        if response.status_code != 202:
+            return {"error": result.get("error", "Could not start indexing")}
+
+        job_id = result["jobId"]
+        deadline = time.time() + wait_seconds
+        job = get_index_job(job_id)
+        while job.get("status") == "RUNNING" and time.time() < deadline:
+            time.sleep(poll_interval)
+            job = get_index_job(job_id)
+
+        if job.get("status") == "FAILED":
+            return {"error": job.get("error", "Indexing failed"), "jobId": job_id}
+        return {**job, "jobId": job_id, "count": job.get("indexed", 0)}
+    except (requests.exceptions.ConnectionError, ValueError):
+        pass
+    return {"error": "Could not connect to backend"}
+
+
+def get_index_job(job_id):
+    """Get progress of a re-index job"""
+    try:
+        response = requests.get(f"{API_URL}/search/index-jobs/{job_id}")
         if response.status_code == 200:
             return response.json()
     except requests.exceptions.ConnectionError:
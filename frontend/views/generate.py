@@ -23,9 +23,12 @@ def render():
         if st.button("🔄 Sync Search Index", help="Index all recipes for semantic search"):
             with st.spinner("Syncing..."):
                 seed_ingredient_aliases()
-                result = index_all_recipes()
+                result = index_all_recipes(changed_only=True)
                 if result.get('error'):
                     st.error(result['error'])
+                elif result.get('status') == 'RUNNING':
+                    st.info(f"Indexed {result.get('count', 0)} of {result.get('total', 0)} recipes so far; "
+                            "indexing continues in the background.")
                 else:
                     st.success(f"✅ Indexed {result.get('count', 0)} recipes!")
     with col_status:
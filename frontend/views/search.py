@@ -188,6 +188,9 @@ def _render_admin_panel():
             result = index_all_recipes()
             if result.get('error'):
                 st.error(result['error'])
+            elif result.get('status') == 'RUNNING':
+                st.info(f"Indexed {result.get('count', 0)} of {result.get('total', 0)} recipes so far; "
+                        "indexing continues in the background.")
             else:
                 st.success(f"Indexed {result.get('count', 0)} recipes!")
     
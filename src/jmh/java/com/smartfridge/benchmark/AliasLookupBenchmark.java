@@ -0,0 +1,131 @@
+package com.smartfridge.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Alias lookup latency against SQLite, before and after the NOCASE indexes.
+ *
+ * "scan" uses the old binary indexes with LOWER(column) = ? predicates (which
+ * cannot use an index); "seek" uses the COLLATE NOCASE indexes from schema.sql
+ * with column = ? COLLATE NOCASE, as IngredientAliasDao does now.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AliasLookupBenchmark {
+
+    private static final int ALIASES_PER_CANONICAL = 10;
+    private static final int KEY_COUNT = 1024;
+
+    @Param({ "10000", "100000", "1000000" })
+    public int aliasCount;
+
+    @Param({ "scan", "seek" })
+    public String mode;
+
+    private Path dbFile;
+    private Connection conn;
+    private PreparedStatement aliasLookup;
+    private PreparedStatement canonicalLookup;
+    private String[] aliasKeys;
+    private String[] canonicalKeys;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dbFile = Files.createTempFile("alias-bench", ".db");
+        conn = DriverManager.getConnection("jdbc:sqlite:" + dbFile);
+        boolean seek = "seek".equals(mode);
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE ingredient_aliases ("
+                    + "id INTEGER PRIMARY KEY AUTOINCREMENT, canonical_name TEXT NOT NULL, alias TEXT NOT NULL,"
+                    + " confidence REAL DEFAULT 1.0, source TEXT DEFAULT 'manual',"
+                    + " created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, UNIQUE(canonical_name, alias))");
+        }
+
+        conn.setAutoCommit(false);
+        try (PreparedStatement insert = conn.prepareStatement(
+                "INSERT INTO ingredient_aliases (canonical_name, alias, confidence, source) VALUES (?, ?, ?, 'seed')")) {
+            for (int i = 0; i < aliasCount; i++) {
+                insert.setString(1, canonicalName(i / ALIASES_PER_CANONICAL));
+                insert.setString(2, aliasName(i));
+                insert.setDouble(3, 0.5 + (i % 50) / 100.0);
+                insert.addBatch();
+                if (i % 10_000 == 9_999) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        conn.commit();
+        conn.setAutoCommit(true);
+
+        try (Statement stmt = conn.createStatement()) {
+            if (seek) {
+                stmt.execute("CREATE INDEX idx_aliases_canonical_nocase ON ingredient_aliases(canonical_name COLLATE NOCASE)");
+                stmt.execute("CREATE INDEX idx_aliases_alias_nocase ON ingredient_aliases(alias COLLATE NOCASE)");
+            } else {
+                stmt.execute("CREATE INDEX idx_aliases_canonical ON ingredient_aliases(canonical_name)");
+                stmt.execute("CREATE INDEX idx_aliases_alias ON ingredient_aliases(alias)");
+            }
+            stmt.execute("ANALYZE");
+        }
+
+        aliasLookup = conn.prepareStatement(seek
+                ? "SELECT canonical_name FROM ingredient_aliases WHERE alias = ? COLLATE NOCASE ORDER BY confidence DESC LIMIT 1"
+                : "SELECT canonical_name FROM ingredient_aliases WHERE LOWER(alias) = ? ORDER BY confidence DESC LIMIT 1");
+        canonicalLookup = conn.prepareStatement(seek
+                ? "SELECT DISTINCT canonical_name FROM ingredient_aliases WHERE canonical_name = ? COLLATE NOCASE"
+                : "SELECT DISTINCT canonical_name FROM ingredient_aliases WHERE LOWER(canonical_name) = ?");
+
+        // Random existing names; callers pass lowercased input
+        Random random = new Random(42);
+        aliasKeys = new String[KEY_COUNT];
+        canonicalKeys = new String[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            aliasKeys[i] = aliasName(random.nextInt(aliasCount));
+            canonicalKeys[i] = canonicalName(random.nextInt(aliasCount / ALIASES_PER_CANONICAL));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        conn.close();
+        Files.deleteIfExists(dbFile);
+    }
+
+    @Benchmark
+    public void resolveAlias(Blackhole bh) throws SQLException {
+        aliasLookup.setString(1, aliasKeys[cursor++ & (KEY_COUNT - 1)]);
+        try (ResultSet rs = aliasLookup.executeQuery()) {
+            bh.consume(rs.next() ? rs.getString(1) : null);
+        }
+    }
+
+    @Benchmark
+    public void resolveCanonical(Blackhole bh) throws SQLException {
+        canonicalLookup.setString(1, canonicalKeys[cursor++ & (KEY_COUNT - 1)]);
+        try (ResultSet rs = canonicalLookup.executeQuery()) {
+            bh.consume(rs.next() ? rs.getString(1) : null);
+        }
+    }
+
+    private static String canonicalName(int i) {
+        return "ingredient " + i;
+    }
+
+    private static String aliasName(int i) {
+        return "ingredient " + (i / ALIASES_PER_CANONICAL) + " variant " + (i % ALIASES_PER_CANONICAL);
+    }
+}
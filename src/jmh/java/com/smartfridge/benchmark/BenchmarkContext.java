@@ -0,0 +1,51 @@
+package com.smartfridge.benchmark;
+
+import com.smartfridge.config.HttpClientConfig;
+import com.smartfridge.dao.DatabaseInitializer;
+import com.smartfridge.dao.IngredientAliasDao;
+import com.smartfridge.dao.RecipeDao;
+import com.smartfridge.dao.SupplyDao;
+import com.smartfridge.service.HealthService;
+import com.smartfridge.service.IngredientResolver;
+import com.smartfridge.service.RecipeGraphService;
+import com.smartfridge.service.RecipeService;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Minimal Spring context with the recipe, fridge and alias beans wired to a
+ * SQLite file, without the web layer or any external services.
+ */
+final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    static AnnotationConfigApplicationContext create(Path dbFile, Map<String, Object> properties) {
+        Map<String, Object> props = new HashMap<>();
+        props.put("openai.api-key", "benchmark");
+        props.put("health.probe.enabled", "false");
+        props.putAll(properties);
+
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:sqlite:" + dbFile);
+        config.setMaximumPoolSize(10);
+        config.setMinimumIdle(2);
+
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", props));
+        context.registerBean(DataSource.class, () -> new HikariDataSource(config));
+        context.register(HttpClientConfig.class, HealthService.class, DatabaseInitializer.class, RecipeDao.class,
+                SupplyDao.class, IngredientAliasDao.class, IngredientResolver.class, RecipeGraphService.class,
+                RecipeService.class);
+        context.refresh();
+        return context;
+    }
+}
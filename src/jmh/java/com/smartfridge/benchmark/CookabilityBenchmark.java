@@ -0,0 +1,96 @@
+package com.smartfridge.benchmark;
+
+import com.smartfridge.service.IngredientResolver;
+import com.smartfridge.service.RecipeGraphService;
+import com.smartfridge.service.RecipeService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the cookability and alias hot paths over synthetic catalogs
+ * stored in a temp-file SQLite database. Run with -prof gc (or through
+ * {@link BenchmarkRunner}) to also report allocation rate.
+ *
+ * kahnEngine and incremental default to the shipped settings and can be
+ * overridden with -p to compare engines.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class CookabilityBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    public int recipeCount;
+
+    @Param({ "4", "12" })
+    public int fanIn;
+
+    @Param({ "0", "3" })
+    public int depth;
+
+    @Param({ "primitive" })
+    public String kahnEngine;
+
+    @Param({ "true" })
+    public boolean incremental;
+
+    private Path dbFile;
+    private AnnotationConfigApplicationContext context;
+    private RecipeService recipeService;
+    private IngredientResolver ingredientResolver;
+    private SyntheticCatalog catalog;
+    private Set<String> fridgeSupplies;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dbFile = Files.createTempFile("cookability-bench", ".db");
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("recipe.kahn.engine", kahnEngine);
+        properties.put("recipe.cookability.incremental", String.valueOf(incremental));
+        context = BenchmarkContext.create(dbFile, properties);
+
+        catalog = new SyntheticCatalog(recipeCount, fanIn, depth, 42L);
+        catalog.writeTo(context.getBean(DataSource.class));
+        fridgeSupplies = new LinkedHashSet<>(catalog.supplies);
+
+        recipeService = context.getBean(RecipeService.class);
+        ingredientResolver = context.getBean(IngredientResolver.class);
+        // Compile the resident graph outside the measurement
+        context.getBean(RecipeGraphService.class).getGraph();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        context.close();
+        Files.deleteIfExists(dbFile);
+    }
+
+    @Benchmark
+    public List<String> findCookableRecipes() {
+        return recipeService.findCookableRecipes(catalog.recipes, catalog.ingredients, catalog.supplies);
+    }
+
+    @Benchmark
+    public List<String> findCookableRecipesFromFridge() {
+        return recipeService.findCookableRecipesFromFridge();
+    }
+
+    @Benchmark
+    public Map<String, List<String>> findAlmostCookableRecipes() {
+        return recipeService.findAlmostCookableRecipes(2);
+    }
+
+    @Benchmark
+    public Set<String> resolveToSet() {
+        return ingredientResolver.resolveToSet(fridgeSupplies);
+    }
+}
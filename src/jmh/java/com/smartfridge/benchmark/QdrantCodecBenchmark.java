@@ -0,0 +1,124 @@
+package com.smartfridge.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.smartfridge.vector.QdrantCodec;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Qdrant JSON with a Jackson tree (build nodes, then a String) against the
+ * streaming {@link QdrantCodec}: encoding a search request with one
+ * 1536-float vector, and decoding a 50-point response down to recipe name,
+ * score and cuisine. The tree side includes the String conversions
+ * RestTemplate made for String bodies. Run with -prof gc to compare
+ * allocation per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QdrantCodecBenchmark {
+
+    private static final int DIMENSION = 1536;
+    private static final int POINTS = 50;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final OutputStream sink = OutputStream.nullOutputStream();
+    private float[] vector;
+    private byte[] response;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) (random.nextGaussian() * 0.03);
+        }
+
+        ObjectNode root = mapper.createObjectNode();
+        ArrayNode points = root.putObject("result").putArray("points");
+        for (int i = 0; i < POINTS; i++) {
+            ObjectNode point = points.addObject();
+            point.put("id", 100000L + i);
+            point.put("version", 7);
+            point.put("score", 1.0 / (2 + i));
+            ObjectNode payload = point.putObject("payload");
+            payload.put("recipe_name", "Recipe " + i);
+            payload.put("cuisine_type", "ITALIAN");
+            payload.put("model_version", "text-embedding-3-small");
+            ArrayNode ingredients = payload.putArray("ingredients");
+            for (int j = 0; j < 8; j++) {
+                ingredients.add("ingredient " + j);
+            }
+        }
+        root.put("status", "ok");
+        root.put("time", 0.0012);
+        response = mapper.writeValueAsBytes(root);
+    }
+
+    @Benchmark
+    public byte[] encodeTree() {
+        ObjectNode request = mapper.createObjectNode();
+        ArrayNode array = mapper.createArrayNode();
+        for (float v : vector) {
+            array.add(v);
+        }
+        ObjectNode namedVector = mapper.createObjectNode();
+        namedVector.put("name", "dense");
+        namedVector.set("vector", array);
+        request.set("vector", namedVector);
+        request.put("limit", 50);
+        request.put("with_payload", true);
+        return request.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int encodeStream() throws IOException {
+        try (QdrantCodec.Request body = QdrantCodec.request()) {
+            JsonGenerator json = body.json();
+            json.writeStartObject();
+            json.writeObjectFieldStart("vector");
+            json.writeStringField("name", "dense");
+            json.writeFieldName("vector");
+            QdrantCodec.writeFloats(json, vector);
+            json.writeEndObject();
+            json.writeNumberField("limit", 50);
+            json.writeBooleanField("with_payload", true);
+            json.writeEndObject();
+            body.writeTo(sink);
+            return body.size();
+        }
+    }
+
+    @Benchmark
+    public void decodeTree(Blackhole blackhole) throws IOException {
+        JsonNode root = mapper.readTree(new String(response, StandardCharsets.UTF_8));
+        for (JsonNode point : root.path("result").path("points")) {
+            blackhole.consume(point.path("payload").path("recipe_name").asText());
+            blackhole.consume((float) point.path("score").asDouble());
+            blackhole.consume(point.path("payload").path("cuisine_type").asText(null));
+        }
+    }
+
+    @Benchmark
+    public void decodeStream(Blackhole blackhole) throws IOException {
+        QdrantCodec.readPoints(new ByteArrayInputStream(response), (recipeName, score, cuisineType) -> {
+            blackhole.consume(recipeName);
+            blackhole.consume(score);
+            blackhole.consume(cuisineType);
+        });
+    }
+}
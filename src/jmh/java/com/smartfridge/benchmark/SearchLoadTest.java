@@ -0,0 +1,243 @@
+package com.smartfridge.benchmark;
+
+import com.smartfridge.SmartFridgeApplication;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test comparing platform-thread and virtual-thread request handling.
+ *
+ * Boots the full application against an in-process stub of OpenAI and
+ * Qdrant that answers after a fixed latency, then keeps a fixed number of
+ * hybrid searches in flight. Each search blocks on one embedding call and
+ * one Qdrant query, so throughput is bounded by how many requests can wait
+ * at once: Tomcat's 200 platform threads, or one virtual thread per request.
+ * The virtual-thread run needs Java 21 (mvn -Pbenchmarks,java21 package).
+ *
+ * Usage: java -cp target/benchmarks.jar com.smartfridge.benchmark.SearchLoadTest
+ * [concurrency=500] [requests=10000] [backendLatencyMs=50]
+ */
+public final class SearchLoadTest {
+
+    private static final int EMBEDDING_DIMENSION = 1536;
+
+    private SearchLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = intArg(args, 0, 500);
+        int requests = intArg(args, 1, 10000);
+        int backendLatencyMs = intArg(args, 2, 50);
+
+        HttpServer backend = startBackend(backendLatencyMs);
+        Path dbFile = Files.createTempFile("smartfridge-load", ".db");
+        try {
+            System.out.printf("%d concurrent searches, %d requests, backend latency %d ms%n",
+                    concurrency, requests, backendLatencyMs);
+            run(false, backend, dbFile, concurrency, requests);
+            if (Runtime.version().feature() >= 21) {
+                run(true, backend, dbFile, concurrency, requests);
+            } else {
+                System.out.println("Virtual threads skipped: running on Java " + Runtime.version().feature()
+                        + ", needs 21");
+            }
+        } finally {
+            backend.stop(0);
+            Files.deleteIfExists(dbFile);
+        }
+    }
+
+    private static void run(boolean virtualThreads, HttpServer backend, Path dbFile, int concurrency,
+            int requests) throws Exception {
+        String backendUrl = "http://127.0.0.1:" + backend.getAddress().getPort();
+
+        Map<String, Object> props = new HashMap<>();
+        props.put("server.port", 0);
+        props.put("spring.main.banner-mode", "off");
+        props.put("logging.level.root", "WARN");
+        props.put("spring.threads.virtual.enabled", virtualThreads);
+        props.put("spring.datasource.url", "jdbc:sqlite:" + dbFile);
+        props.put("openai.api-key", "load-test");
+        props.put("openai.base-url", backendUrl);
+        props.put("qdrant.host", "127.0.0.1");
+        props.put("qdrant.port", backend.getAddress().getPort());
+        props.put("ai.service.url", backendUrl);
+        // No Redis: every search must reach the (stubbed) backends
+        props.put("spring.data.redis.port", 1);
+        // Measure thread handling, not the guards: let every request through
+        props.put("search.deadline-ms", 60000);
+        props.put("health.failure-threshold", Integer.MAX_VALUE);
+        props.put("resilience.openai.max-concurrent", concurrency);
+        props.put("resilience.qdrant.max-concurrent", concurrency);
+        props.put("http.client.openai.max-connections", concurrency);
+        props.put("http.client.qdrant.max-connections", concurrency);
+
+        // As command-line arguments, so they take precedence over application.properties
+        String[] appArgs = props.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(SmartFridgeApplication.class)
+                .run(appArgs);
+        try {
+            String url = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port")
+                    + "/api/recipes/hybrid-search";
+            ExecutorService clientExecutor = Executors.newFixedThreadPool(16);
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(clientExecutor)
+                    .build();
+            try {
+                // Warm up connections, JIT and pools
+                load(client, url, concurrency, Math.min(requests, 2000), "warmup");
+                Result result = load(client, url, concurrency, requests, "measure");
+                System.out.printf("%-8s threads: %8.0f req/s  p50 %5d ms  p99 %5d ms  errors %d  degraded %d%n",
+                        virtualThreads ? "virtual" : "platform", result.throughput(), result.percentile(0.50),
+                        result.percentile(0.99), result.errors, result.degraded);
+            } finally {
+                clientExecutor.shutdownNow();
+            }
+        } finally {
+            context.close();
+        }
+    }
+
+    private static Result load(HttpClient client, String url, int concurrency, int requests, String label)
+            throws InterruptedException {
+        Semaphore inFlight = new Semaphore(concurrency);
+        long[] latencies = new long[requests];
+        AtomicInteger errors = new AtomicInteger();
+        AtomicInteger degraded = new AtomicInteger();
+        CompletableFuture<?>[] calls = new CompletableFuture<?>[requests];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            // Distinct queries so the embedding cache never answers
+            String body = "{\"query\":\"" + label + " pasta " + i + "\",\"limit\":10}";
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+
+            int index = i;
+            inFlight.acquire();
+            long sent = System.nanoTime();
+            calls[i] = client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                    .whenComplete((response, error) -> {
+                        latencies[index] = System.nanoTime() - sent;
+                        if (error != null || response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        } else if (response.body().contains("\"warning\"")) {
+                            degraded.incrementAndGet();
+                        }
+                        inFlight.release();
+                    });
+        }
+        CompletableFuture.allOf(calls).exceptionally(error -> null).join();
+        long elapsed = System.nanoTime() - start;
+
+        return new Result(requests, elapsed, latencies, errors.get(), degraded.get());
+    }
+
+    /**
+     * Stub of the OpenAI embeddings endpoint and the Qdrant query endpoint,
+     * answering after a fixed delay; everything else answers immediately.
+     */
+    private static HttpServer startBackend(int latencyMs) throws IOException {
+        float[] vector = new float[EMBEDDING_DIMENSION];
+        Arrays.fill(vector, 0.01f);
+        byte[] embedding = ("{\"data\":[{\"index\":0,\"embedding\":" + Arrays.toString(vector) + "}]}")
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] points = ("{\"result\":{\"points\":[{\"score\":0.9,\"payload\":"
+                + "{\"recipe_name\":\"Spaghetti Pomodoro\",\"cuisine_type\":\"ITALIAN\"}}]}}")
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] ok = "{\"result\":{\"status\":\"green\"},\"data\":[]}".getBytes(StandardCharsets.UTF_8);
+
+        // The JDK server closes keep-alive connections beyond 200 idle ones, which
+        // the application's pools would then reuse and fail on
+        System.setProperty("sun.net.httpserver.maxIdleConnections", "100000");
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            exchange.getRequestBody().readAllBytes();
+            if (path.endsWith("/embeddings")) {
+                respondAfter(exchange, latencyMs, embedding);
+            } else if (path.endsWith("/points/query")) {
+                respondAfter(exchange, latencyMs, points);
+            } else {
+                respondAfter(exchange, 0, ok);
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        return server;
+    }
+
+    private static void respondAfter(HttpExchange exchange, int delayMs, byte[] body) throws IOException {
+        try {
+            if (delayMs > 0) {
+                Thread.sleep(delayMs);
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static int intArg(String[] args, int index, int defaultValue) {
+        return args.length > index ? Integer.parseInt(args[index]) : defaultValue;
+    }
+
+    private static final class Result {
+        private final int requests;
+        private final long elapsedNanos;
+        private final long[] latencies;
+        private final int errors;
+        private final int degraded;
+
+        Result(int requests, long elapsedNanos, long[] latencies, int errors, int degraded) {
+            this.requests = requests;
+            this.elapsedNanos = elapsedNanos;
+            this.latencies = latencies.clone();
+            this.errors = errors;
+            this.degraded = degraded;
+            Arrays.sort(this.latencies);
+        }
+
+        double throughput() {
+            return requests / (elapsedNanos / 1e9);
+        }
+
+        long percentile(double percentile) {
+            int index = (int) Math.min(latencies.length - 1, Math.ceil(percentile * latencies.length) - 1);
+            return latencies[Math.max(0, index)] / 1_000_000;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.smartfridge.benchmark;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Deterministic recipe catalog for benchmarks.
+ *
+ * Recipes are split into depth + 1 layers. Layer 0 recipes use only basic
+ * ingredients; a recipe in layer L > 0 also uses one recipe from layer L - 1,
+ * giving recipe-as-ingredient chains of the requested depth. Each recipe has
+ * fanIn ingredients. Every basic ingredient has a canonical name plus a few
+ * aliases, and some recipe ingredients and fridge items are written as aliases
+ * so alias resolution is exercised.
+ */
+final class SyntheticCatalog {
+
+    private static final int ALIASES_PER_INGREDIENT = 2;
+    private static final double ALIAS_USE_RATE = 0.2;
+    private static final double FRIDGE_COVERAGE = 0.7;
+
+    final List<String> recipes = new ArrayList<>();
+    final List<List<String>> ingredients = new ArrayList<>();
+    final List<String> supplies = new ArrayList<>();
+    private final int ingredientCount;
+
+    SyntheticCatalog(int recipeCount, int fanIn, int depth, long seed) {
+        Random random = new Random(seed);
+        this.ingredientCount = Math.max(500, recipeCount / 2);
+        int layers = depth + 1;
+        int perLayer = Math.max(1, recipeCount / layers);
+
+        for (int r = 0; r < recipeCount; r++) {
+            int layer = Math.min(r / perLayer, depth);
+            Set<String> recipeIngredients = new LinkedHashSet<>();
+            if (layer > 0) {
+                int parent = (layer - 1) * perLayer + random.nextInt(perLayer);
+                recipeIngredients.add(recipeName(parent));
+            }
+            while (recipeIngredients.size() < fanIn) {
+                recipeIngredients.add(ingredientReference(random.nextInt(ingredientCount), random));
+            }
+            recipes.add(recipeName(r));
+            ingredients.add(new ArrayList<>(recipeIngredients));
+        }
+
+        for (int i = 0; i < ingredientCount; i++) {
+            if (random.nextDouble() < FRIDGE_COVERAGE) {
+                supplies.add(ingredientReference(i, random));
+            }
+        }
+    }
+
+    /**
+     * Write the catalog, fridge and aliases into an initialized SmartFridge schema.
+     */
+    void writeTo(DataSource dataSource) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement food = conn.prepareStatement("INSERT OR IGNORE INTO food_items (name) VALUES (?)");
+                    PreparedStatement dep = conn.prepareStatement(
+                            "INSERT OR IGNORE INTO recipe_dependencies (recipe_name, ingredient_name) VALUES (?, ?)");
+                    PreparedStatement details = conn.prepareStatement(
+                            "INSERT OR REPLACE INTO recipe_details (recipe_name, cuisine_type) VALUES (?, 'OTHER')")) {
+                for (int r = 0; r < recipes.size(); r++) {
+                    String recipe = recipes.get(r);
+                    food.setString(1, recipe);
+                    food.addBatch();
+                    details.setString(1, recipe);
+                    details.addBatch();
+                    for (String ingredient : ingredients.get(r)) {
+                        food.setString(1, ingredient);
+                        food.addBatch();
+                        dep.setString(1, recipe);
+                        dep.setString(2, ingredient);
+                        dep.addBatch();
+                    }
+                    if (r % 1000 == 999) {
+                        food.executeBatch();
+                        dep.executeBatch();
+                        details.executeBatch();
+                    }
+                }
+                food.executeBatch();
+                dep.executeBatch();
+                details.executeBatch();
+            }
+
+            try (PreparedStatement food = conn.prepareStatement("INSERT OR IGNORE INTO food_items (name) VALUES (?)");
+                    PreparedStatement supply = conn.prepareStatement(
+                            "INSERT OR IGNORE INTO supplies (name, quantity, sort_order) VALUES (?, 1, ?)")) {
+                for (int i = 0; i < supplies.size(); i++) {
+                    food.setString(1, supplies.get(i));
+                    food.addBatch();
+                    supply.setString(1, supplies.get(i));
+                    supply.setInt(2, i);
+                    supply.addBatch();
+                }
+                food.executeBatch();
+                supply.executeBatch();
+            }
+
+            try (PreparedStatement alias = conn.prepareStatement(
+                    "INSERT OR IGNORE INTO ingredient_aliases (canonical_name, alias, confidence, source) VALUES (?, ?, ?, 'seed')")) {
+                for (int i = 0; i < ingredientCount; i++) {
+                    String canonical = ingredientName(i);
+                    alias.setString(1, canonical);
+                    alias.setString(2, canonical);
+                    alias.setDouble(3, 1.0);
+                    alias.addBatch();
+                    for (int a = 0; a < ALIASES_PER_INGREDIENT; a++) {
+                        alias.setString(1, canonical);
+                        alias.setString(2, aliasName(i, a));
+                        alias.setDouble(3, 0.9);
+                        alias.addBatch();
+                    }
+                }
+                alias.executeBatch();
+            }
+
+            conn.commit();
+        }
+    }
+
+    private String ingredientReference(int ingredient, Random random) {
+        if (random.nextDouble() < ALIAS_USE_RATE) {
+            return aliasName(ingredient, random.nextInt(ALIASES_PER_INGREDIENT));
+        }
+        return ingredientName(ingredient);
+    }
+
+    private static String recipeName(int i) {
+        return "recipe " + i;
+    }
+
+    private static String ingredientName(int i) {
+        return "ingredient " + i;
+    }
+
+    private static String aliasName(int i, int variant) {
+        return "ingredient " + i + " variant " + variant;
+    }
+}
@@ -0,0 +1,154 @@
+package com.smartfridge.benchmark;
+
+import com.smartfridge.vector.ExactVectorIndex;
+import com.smartfridge.vector.HnswVectorIndex;
+import com.smartfridge.vector.VectorIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Top-10 cosine search latency of the embedded vector indexes over
+ * clustered 1536-dimensional vectors: the exact index on one thread or in
+ * parallel partitions, and the HNSW graph. HNSW trials print their
+ * recall@10 against exact search during setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VectorIndexBenchmark {
+
+    private static final int DIMENSION = 1536;
+    private static final int QUERY_COUNT = 64;
+    private static final int TOP_K = 10;
+
+    // Embeddings of similar recipes sit close together; uniform random vectors would not
+    private static final int CLUSTERS = 200;
+    private static final double SPREAD = 0.6;
+
+    @Param({ "10000", "50000" })
+    public int vectorCount;
+
+    @Param({ "exact-1", "exact-4", "hnsw" })
+    public String index;
+
+    @Param({ "64" })
+    public int efSearch;
+
+    private final List<Path> directories = new ArrayList<>();
+    private VectorIndex vectorIndex;
+    private float[][] queries;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        float[][] centroids = new float[CLUSTERS][];
+        for (int i = 0; i < CLUSTERS; i++) {
+            centroids[i] = gaussian(random);
+        }
+        Map<String, float[]> vectors = new LinkedHashMap<>();
+        for (int i = 0; i < vectorCount; i++) {
+            vectors.put("recipe-" + i, nearby(centroids[random.nextInt(CLUSTERS)], random));
+        }
+        queries = new float[QUERY_COUNT][];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            queries[i] = nearby(centroids[random.nextInt(CLUSTERS)], random);
+        }
+
+        long start = System.currentTimeMillis();
+        vectorIndex = open(index);
+        load(vectorIndex, vectors);
+        System.out.println("\nBuilt " + index + " index over " + vectorCount + " vectors in "
+                + (System.currentTimeMillis() - start) + "ms");
+
+        if (vectorIndex instanceof HnswVectorIndex) {
+            try (VectorIndex exact = open("exact-1")) {
+                load(exact, vectors);
+                System.out.printf("recall@%d (efSearch=%d): %.3f%n", TOP_K, efSearch, recall(exact));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        vectorIndex.close();
+        for (Path directory : directories) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public List<VectorIndex.Hit> search() {
+        return vectorIndex.search(queries[cursor++ & (QUERY_COUNT - 1)], TOP_K, -1f);
+    }
+
+    private VectorIndex open(String type) throws IOException {
+        Path directory = Files.createTempDirectory("vector-bench");
+        directories.add(directory);
+        return switch (type) {
+            case "hnsw" -> new HnswVectorIndex(directory, DIMENSION, 16, 100, efSearch);
+            case "exact-4" -> new ExactVectorIndex(directory, DIMENSION, 4);
+            default -> new ExactVectorIndex(directory, DIMENSION, 1);
+        };
+    }
+
+    private static void load(VectorIndex target, Map<String, float[]> vectors) throws IOException {
+        Map<String, float[]> batch = new LinkedHashMap<>();
+        for (Map.Entry<String, float[]> entry : vectors.entrySet()) {
+            batch.put(entry.getKey(), entry.getValue());
+            if (batch.size() == 1000) {
+                target.putAll(batch);
+                batch.clear();
+            }
+        }
+        target.putAll(batch);
+    }
+
+    /**
+     * Share of the exact top-k that the index under test also returns.
+     */
+    private double recall(VectorIndex exact) {
+        int found = 0;
+        for (float[] query : queries) {
+            Set<String> expected = new HashSet<>();
+            for (VectorIndex.Hit hit : exact.search(query, TOP_K, -1f)) {
+                expected.add(hit.getKey());
+            }
+            for (VectorIndex.Hit hit : vectorIndex.search(query, TOP_K, -1f)) {
+                if (expected.contains(hit.getKey())) {
+                    found++;
+                }
+            }
+        }
+        return found / (double) (QUERY_COUNT * TOP_K);
+    }
+
+    private static float[] gaussian(Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static float[] nearby(float[] centroid, Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = centroid[i] + (float) (random.nextGaussian() * SPREAD);
+        }
+        return vector;
+    }
+}
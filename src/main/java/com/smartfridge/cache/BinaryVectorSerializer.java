@@ -0,0 +1,215 @@
+package com.smartfridge.cache;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact little-endian encoding of embedding vectors for Redis.
+ *
+ * Layout: magic "SV" (2 bytes), version (1), format (1), dims (int32),
+ * scale (float32, int8 only), model name length (uint16) and UTF-8 bytes,
+ * then the components as float32, float16 or int8. A 1536-dim vector takes
+ * about 6 KB as float32, 3 KB as float16 and 1.5 KB as int8.
+ *
+ * Values written for a different model decode to null (a cache miss).
+ */
+public class BinaryVectorSerializer implements RedisSerializer<float[]> {
+
+    private static final byte MAGIC_0 = 'S';
+    private static final byte MAGIC_1 = 'V';
+    private static final byte VERSION = 1;
+
+    /**
+     * Component encoding. FLOAT32 is lossless; FLOAT16 and INT8 trade
+     * precision for size.
+     */
+    public enum Format {
+        FLOAT32(0, 4), FLOAT16(1, 2), INT8(2, 1);
+
+        private final byte code;
+        private final int bytesPerComponent;
+
+        Format(int code, int bytesPerComponent) {
+            this.code = (byte) code;
+            this.bytesPerComponent = bytesPerComponent;
+        }
+
+        static Format fromCode(byte code) {
+            for (Format format : values()) {
+                if (format.code == code) {
+                    return format;
+                }
+            }
+            throw new SerializationException("Unknown vector format: " + code);
+        }
+    }
+
+    private final Format format;
+    private final String model;
+    private final byte[] modelBytes;
+
+    public BinaryVectorSerializer(Format format, String model) {
+        this.format = format;
+        this.model = model != null ? model : "";
+        this.modelBytes = this.model.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public byte[] serialize(float[] vector) {
+        if (vector == null) {
+            return null;
+        }
+
+        float scale = format == Format.INT8 ? int8Scale(vector) : 1.0f;
+        int headerSize = 2 + 1 + 1 + 4 + 4 + 2 + modelBytes.length;
+        ByteBuffer buffer = ByteBuffer.allocate(headerSize + vector.length * format.bytesPerComponent)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.put(MAGIC_0).put(MAGIC_1).put(VERSION).put(format.code);
+        buffer.putInt(vector.length);
+        buffer.putFloat(scale);
+        buffer.putShort((short) modelBytes.length);
+        buffer.put(modelBytes);
+
+        switch (format) {
+            case FLOAT32:
+                buffer.asFloatBuffer().put(vector);
+                break;
+            case FLOAT16:
+                for (float v : vector) {
+                    buffer.putShort(toFloat16(v));
+                }
+                break;
+            case INT8:
+                for (float v : vector) {
+                    buffer.put((byte) Math.max(-127, Math.min(127, Math.round(v / scale))));
+                }
+                break;
+        }
+        return buffer.array();
+    }
+
+    @Override
+    public float[] deserialize(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        if (bytes.length < 14 || buffer.get() != MAGIC_0 || buffer.get() != MAGIC_1) {
+            throw new SerializationException("Not a binary vector value");
+        }
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new SerializationException("Unsupported vector version: " + version);
+        }
+        Format stored = Format.fromCode(buffer.get());
+        int dims = buffer.getInt();
+        float scale = buffer.getFloat();
+        int modelLength = buffer.getShort() & 0xFFFF;
+        if (dims < 0 || buffer.remaining() != modelLength + (long) dims * stored.bytesPerComponent) {
+            throw new SerializationException("Truncated vector value");
+        }
+        String storedModel = new String(bytes, buffer.position(), modelLength, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + modelLength);
+        if (!storedModel.equals(model)) {
+            return null;
+        }
+
+        float[] vector = new float[dims];
+        switch (stored) {
+            case FLOAT32:
+                buffer.asFloatBuffer().get(vector);
+                break;
+            case FLOAT16:
+                for (int i = 0; i < dims; i++) {
+                    vector[i] = fromFloat16(buffer.getShort());
+                }
+                break;
+            case INT8:
+                for (int i = 0; i < dims; i++) {
+                    vector[i] = buffer.get() * scale;
+                }
+                break;
+        }
+        return vector;
+    }
+
+    private static float int8Scale(float[] vector) {
+        float maxAbs = 0f;
+        for (float v : vector) {
+            maxAbs = Math.max(maxAbs, Math.abs(v));
+        }
+        return maxAbs > 0f ? maxAbs / 127f : 1.0f;
+    }
+
+    /**
+     * IEEE 754 binary16 from float, round to nearest even.
+     */
+    static short toFloat16(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int exponent = (bits >>> 23) & 0xFF;
+        int mantissa = bits & 0x7FFFFF;
+
+        if (exponent == 0xFF) {
+            // Infinity or NaN
+            return (short) (sign | 0x7C00 | (mantissa != 0 ? 0x200 : 0));
+        }
+
+        int halfExponent = exponent - 127 + 15;
+        if (halfExponent >= 0x1F) {
+            return (short) (sign | 0x7C00);
+        }
+        if (halfExponent <= 0) {
+            if (halfExponent < -10) {
+                return (short) sign;
+            }
+            // Subnormal half: shift the implicit leading bit into the mantissa
+            mantissa |= 0x800000;
+            int shift = 14 - halfExponent;
+            int half = mantissa >> shift;
+            int remainder = mantissa & ((1 << shift) - 1);
+            int halfway = 1 << (shift - 1);
+            if (remainder > halfway || (remainder == halfway && (half & 1) != 0)) {
+                half++;
+            }
+            return (short) (sign | half);
+        }
+
+        int half = (halfExponent << 10) | (mantissa >> 13);
+        int remainder = mantissa & 0x1FFF;
+        if (remainder > 0x1000 || (remainder == 0x1000 && (half & 1) != 0)) {
+            // May carry into the exponent, which still yields the correct value (or infinity)
+            half++;
+        }
+        return (short) (sign | half);
+    }
+
+    /**
+     * Float from IEEE 754 binary16.
+     */
+    static float fromFloat16(short value) {
+        int bits = value & 0xFFFF;
+        int sign = (bits & 0x8000) << 16;
+        int exponent = (bits >>> 10) & 0x1F;
+        int mantissa = bits & 0x3FF;
+
+        if (exponent == 0x1F) {
+            return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+        }
+        if (exponent == 0) {
+            if (mantissa == 0) {
+                return Float.intBitsToFloat(sign);
+            }
+            // Subnormal: value = mantissa * 2^-24
+            float magnitude = mantissa * 0x1.0p-24f;
+            return sign != 0 ? -magnitude : magnitude;
+        }
+        return Float.intBitsToFloat(sign | ((exponent - 15 + 127) << 23) | (mantissa << 13));
+    }
+}
@@ -0,0 +1,79 @@
+package com.smartfridge.cache;
+
+import com.smartfridge.resilience.Deadline;
+import com.smartfridge.resilience.DependencyUnavailableException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent loads of the same key into one call. The first caller
+ * runs the loader on its own thread; callers arriving while it runs wait for
+ * and share its result, but never past their own {@link Deadline}. Nothing
+ * is remembered once the load completes.
+ */
+public class SingleFlight<K, V> {
+
+    private final String dependency;
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param dependency dependency the loads call, named when a waiter's
+     *                   deadline passes
+     */
+    public SingleFlight(String dependency) {
+        this.dependency = dependency;
+    }
+
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+
+        if (existing != null) {
+            return await(existing);
+        }
+
+        try {
+            V value = loader.get();
+            created.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    /**
+     * Number of loads currently running.
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private V await(CompletableFuture<V> future) {
+        Deadline deadline = Deadline.current();
+        try {
+            return deadline != null ? future.get(deadline.remainingMs(), TimeUnit.MILLISECONDS) : future.get();
+        } catch (TimeoutException e) {
+            throw new DependencyUnavailableException(dependency, "deadline exceeded");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for in-flight load", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
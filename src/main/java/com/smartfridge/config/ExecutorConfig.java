@@ -0,0 +1,43 @@
+package com.smartfridge.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executor for outbound fan-out calls made while serving a request, such as
+ * the per-ingredient AI service calls.
+ *
+ * With spring.threads.virtual.enabled=true on Java 21 each call gets its own
+ * virtual thread, matching Tomcat's request threads in that mode. Otherwise
+ * calls share a fixed pool of platform threads. On Java 17 the property has
+ * no effect and the platform pool is used.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    @Bean
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public AsyncTaskExecutor outboundExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("outbound-");
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+
+    @Bean(name = "outboundExecutor")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public AsyncTaskExecutor outboundPlatformExecutor(
+            @Value("${outbound.executor.pool-size:32}") int poolSize) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("outbound-");
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setDaemon(true);
+        return executor;
+    }
+}
@@ -0,0 +1,56 @@
+package com.smartfridge.config;
+
+import com.smartfridge.http.OutboundHttpClient;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Outbound HTTP clients, one connection pool per destination so a slow
+ * destination cannot starve the others of connections.
+ * Services inject the RestTemplate for their destination by bean name.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    @Bean
+    public OutboundHttpClient openAiHttpClient(
+            @Value("${http.client.openai.max-connections:20}") int maxConnections,
+            @Value("${http.client.openai.connect-timeout-ms:5000}") int connectTimeoutMs,
+            @Value("${http.client.openai.read-timeout-ms:30000}") int readTimeoutMs) {
+        return new OutboundHttpClient("openai", maxConnections, connectTimeoutMs, readTimeoutMs);
+    }
+
+    @Bean
+    public OutboundHttpClient qdrantHttpClient(
+            @Value("${http.client.qdrant.max-connections:20}") int maxConnections,
+            @Value("${http.client.qdrant.connect-timeout-ms:2000}") int connectTimeoutMs,
+            @Value("${http.client.qdrant.read-timeout-ms:10000}") int readTimeoutMs) {
+        return new OutboundHttpClient("qdrant", maxConnections, connectTimeoutMs, readTimeoutMs);
+    }
+
+    @Bean
+    public OutboundHttpClient aiServiceHttpClient(
+            @Value("${http.client.ai-service.max-connections:10}") int maxConnections,
+            @Value("${http.client.ai-service.connect-timeout-ms:2000}") int connectTimeoutMs,
+            @Value("${http.client.ai-service.read-timeout-ms:60000}") int readTimeoutMs) {
+        return new OutboundHttpClient("ai-service", maxConnections, connectTimeoutMs, readTimeoutMs);
+    }
+
+    @Bean
+    public RestTemplate openAiRestTemplate(@Qualifier("openAiHttpClient") OutboundHttpClient client) {
+        return client.getRestTemplate();
+    }
+
+    @Bean
+    public RestTemplate qdrantRestTemplate(@Qualifier("qdrantHttpClient") OutboundHttpClient client) {
+        return client.getRestTemplate();
+    }
+
+    @Bean
+    public RestTemplate aiServiceRestTemplate(@Qualifier("aiServiceHttpClient") OutboundHttpClient client) {
+        return client.getRestTemplate();
+    }
+}
@@ -1,13 +1,14 @@
 package com.smartfridge.config;
 
+import com.smartfridge.cache.BinaryVectorSerializer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
-import java.util.List;
+import java.util.Locale;
 
 /**
  * Redis configuration for vector caching.
@@ -19,18 +20,19 @@ public class RedisConfig {
 
     /**
      * RedisTemplate for storing vector embeddings.
-     * Key: query string hash
-     * Value: List<Double> embedding vector
+     * Key: model + query string hash
+     * Value: binary vector (float32, float16 or int8 per vector.cache.encoding)
      */
     @Bean
-    public RedisTemplate<String, List<Double>> vectorRedisTemplate(
-            RedisConnectionFactory connectionFactory) {
-        RedisTemplate<String, List<Double>> template = new RedisTemplate<>();
+    public RedisTemplate<String, float[]> vectorRedisTemplate(
+            RedisConnectionFactory connectionFactory,
+            @Value("${vector.cache.encoding:float32}") String encoding,
+            @Value("${openai.embedding-model:text-embedding-3-small}") String embeddingModel) {
+        RedisTemplate<String, float[]> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
         template.setKeySerializer(new StringRedisSerializer());
-        template.setValueSerializer(new GenericJackson2JsonRedisSerializer());
-        template.setHashKeySerializer(new StringRedisSerializer());
-        template.setHashValueSerializer(new GenericJackson2JsonRedisSerializer());
+        template.setValueSerializer(new BinaryVectorSerializer(
+                BinaryVectorSerializer.Format.valueOf(encoding.toUpperCase(Locale.ROOT)), embeddingModel));
         return template;
     }
 
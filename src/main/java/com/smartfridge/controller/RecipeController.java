@@ -1,21 +1,29 @@
 package com.smartfridge.controller;
 
+import com.smartfridge.http.OutboundHttpClient;
 import com.smartfridge.model.CuisineType;
+import com.smartfridge.model.IndexJob;
 import com.smartfridge.model.MissingIngredientsResponse;
 import com.smartfridge.model.RecipeDetails;
 import com.smartfridge.model.RecipeRequest;
 import com.smartfridge.model.RecipeResponse;
 import com.smartfridge.model.RecipeSimple;
 import com.smartfridge.model.SubstitutionSuggestion;
+import com.smartfridge.resilience.DependencyUnavailableException;
 import com.smartfridge.service.RecipeService;
+import com.smartfridge.service.HealthService;
 import com.smartfridge.service.IngredientResolver;
+import com.smartfridge.service.IndexQueueService;
 import com.smartfridge.service.IngredientSubstitutionService;
+import com.smartfridge.service.ReindexJobService;
 import com.smartfridge.service.VectorSearchService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -37,6 +45,18 @@ public class RecipeController {
     @Autowired
     private IngredientSubstitutionService substitutionService;
 
+    @Autowired
+    private ReindexJobService reindexJobService;
+
+    @Autowired
+    private IndexQueueService indexQueueService;
+
+    @Autowired
+    private List<OutboundHttpClient> outboundHttpClients;
+
+    @Autowired
+    private HealthService healthService;
+
     /**
      * Generate cookable recipes from fridge supplies
      * 
@@ -118,8 +138,15 @@ public class RecipeController {
                     "warning", "Semantic search is not available. Make sure Qdrant is running and OpenAI API key is configured."));
         }
 
-        List<VectorSearchService.SearchResult> results = vectorSearchService.searchSimilar(query.trim(), limit);
-        return ResponseEntity.ok(Map.of("results", results));
+        try {
+            List<VectorSearchService.SearchResult> results = vectorSearchService.searchSimilar(query.trim(), limit);
+            return ResponseEntity.ok(Map.of("results", results));
+        } catch (DependencyUnavailableException e) {
+            System.err.println("[Search] " + e.getMessage());
+            return ResponseEntity.ok(Map.of(
+                    "results", List.of(),
+                    "warning", "Semantic search is temporarily unavailable (" + e.getDependency() + ")"));
+        }
     }
 
     /**
@@ -148,18 +175,29 @@ public class RecipeController {
         }
 
         if (!vectorSearchService.isAvailable()) {
-            // Fall back to exact matching only
-            List<String> cookable = recipeService.findCookableRecipesFromFridge();
-            return ResponseEntity.ok(Map.of(
-                    "results",
-                    cookable.stream().map(name -> Map.of("recipeName", name, "matchType", "exact"))
-                            .collect(Collectors.toList()),
-                    "warning", "Semantic search unavailable, showing exact matches only"));
+            return exactMatchFallback();
+        }
+
+        try {
+            List<VectorSearchService.SearchResult> results = vectorSearchService.hybridSearch(ingredients, query,
+                    limit, scoreThreshold);
+            return ResponseEntity.ok(Map.of("results", results));
+        } catch (DependencyUnavailableException e) {
+            System.err.println("[HybridSearch] " + e.getMessage() + ", showing exact matches");
+            return exactMatchFallback();
         }
+    }
 
-        List<VectorSearchService.SearchResult> results = vectorSearchService.hybridSearch(ingredients, query, limit,
-                scoreThreshold);
-        return ResponseEntity.ok(Map.of("results", results));
+    /**
+     * Exact matching only, computed locally from the fridge contents.
+     */
+    private ResponseEntity<?> exactMatchFallback() {
+        List<String> cookable = recipeService.findCookableRecipesFromFridge();
+        return ResponseEntity.ok(Map.of(
+                "results",
+                cookable.stream().map(name -> Map.of("recipeName", name, "matchType", "exact"))
+                        .collect(Collectors.toList()),
+                "warning", "Semantic search unavailable, showing exact matches only"));
     }
 
     /**
@@ -236,11 +274,11 @@ public class RecipeController {
                 recipeService.addRecipe(name.trim(), ingredients, cuisineType, instructions, imageUrl);
             }
 
-            // Index the new recipe for semantic search (async, non-blocking)
+            // Queue the new recipe for semantic search indexing (write-behind)
             try {
-                vectorSearchService.indexRecipe(name.trim());
+                indexQueueService.enqueueUpsert(name.trim());
             } catch (Exception e) {
-                System.err.println("Warning: Failed to index recipe for semantic search: " + e.getMessage());
+                System.err.println("Warning: Failed to queue recipe for semantic search: " + e.getMessage());
             }
 
             return ResponseEntity.ok(Map.of("message", "Recipe added successfully", "name", name));
@@ -264,11 +302,11 @@ public class RecipeController {
         try {
             recipeService.deleteRecipe(name.trim());
 
-            // Remove from vector index
+            // Queue removal from the vector index (write-behind)
             try {
-                vectorSearchService.deleteRecipe(name.trim());
+                indexQueueService.enqueueDelete(name.trim());
             } catch (Exception e) {
-                System.err.println("Warning: Failed to remove recipe from search index: " + e.getMessage());
+                System.err.println("Warning: Failed to queue recipe removal from search index: " + e.getMessage());
             }
 
             return ResponseEntity.ok(Map.of("message", "Recipe deleted successfully", "name", name));
@@ -489,21 +527,120 @@ public class RecipeController {
     // ==================== Vector Search Admin Endpoints ====================
 
     /**
-     * Index all recipes for semantic search
+     * Start a background re-index of all recipes for semantic search.
+     * Returns 202 with the job id; poll /api/search/index-jobs/{id} for progress.
      * 
      * POST /api/search/index-all
      */
     @PostMapping("/search/index-all")
     public ResponseEntity<?> indexAllRecipes() {
+        return startIndexJob(IndexJob.FULL);
+    }
+
+    /**
+     * Start a background re-index of only new or edited recipes (recipe text
+     * or embedding model changed since last indexed); vectors of deleted
+     * recipes are removed.
+     * 
+     * POST /api/search/index-changed
+     */
+    @PostMapping("/search/index-changed")
+    public ResponseEntity<?> indexChangedRecipes() {
+        return startIndexJob(IndexJob.CHANGED);
+    }
+
+    private ResponseEntity<?> startIndexJob(String mode) {
         if (!vectorSearchService.isAvailable()) {
             return ResponseEntity.ok(Map.of(
                     "error", "Vector search is not available. Make sure Qdrant is running and OpenAI API key is configured."));
         }
 
-        int count = vectorSearchService.indexAllRecipes();
-        return ResponseEntity.ok(Map.of(
-                "message", "Indexed recipes for semantic search",
-                "count", count));
+        try {
+            IndexJob job = reindexJobService.start(mode);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                    "message", "Started indexing recipes for semantic search",
+                    "jobId", job.getId(),
+                    "mode", job.getMode(),
+                    "total", job.getTotal()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * List recent re-index jobs, newest first
+     * 
+     * GET /api/search/index-jobs
+     */
+    @GetMapping("/search/index-jobs")
+    public ResponseEntity<?> listIndexJobs() {
+        return ResponseEntity.ok(reindexJobService.listJobs());
+    }
+
+    /**
+     * Get progress and throughput of a re-index job
+     * 
+     * GET /api/search/index-jobs/{id}
+     */
+    @GetMapping("/search/index-jobs/{id}")
+    public ResponseEntity<?> getIndexJob(@PathVariable String id) {
+        Map<String, Object> progress = reindexJobService.getProgress(id);
+        if (progress == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(progress);
+    }
+
+    /**
+     * Cancel a running re-index job; batches already read still finish
+     * 
+     * POST /api/search/index-jobs/{id}/cancel
+     */
+    @PostMapping("/search/index-jobs/{id}/cancel")
+    public ResponseEntity<?> cancelIndexJob(@PathVariable String id) {
+        if (!reindexJobService.cancel(id)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "Index job is not running: " + id));
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("message", "Cancelling index job", "jobId", id));
+    }
+
+    /**
+     * Resume a cancelled, failed or interrupted re-index job after the last
+     * committed recipe
+     * 
+     * POST /api/search/index-jobs/{id}/resume
+     */
+    @PostMapping("/search/index-jobs/{id}/resume")
+    public ResponseEntity<?> resumeIndexJob(@PathVariable String id) {
+        if (!vectorSearchService.isAvailable()) {
+            return ResponseEntity.ok(Map.of(
+                    "error", "Vector search is not available. Make sure Qdrant is running and OpenAI API key is configured."));
+        }
+
+        try {
+            IndexJob job = reindexJobService.resume(id);
+            if (job == null) {
+                return ResponseEntity.notFound().build();
+            }
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("message", "Resumed index job");
+            body.put("jobId", job.getId());
+            body.put("watermark", job.getWatermark());
+            body.put("total", job.getTotal());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(body);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Get write-behind index queue depth and worker counters
+     * 
+     * GET /api/search/index-queue
+     */
+    @GetMapping("/search/index-queue")
+    public ResponseEntity<?> getIndexQueue() {
+        return ResponseEntity.ok(indexQueueService.getStats());
     }
 
     /**
@@ -516,8 +653,45 @@ public class RecipeController {
         return ResponseEntity.ok(vectorSearchService.getStats());
     }
 
+    // ==================== System Endpoints ====================
+
+    /**
+     * Get per-destination outbound HTTP metrics (requests, errors, latency
+     * percentiles) and connection pool usage
+     * 
+     * GET /api/system/http
+     */
+    @GetMapping("/system/http")
+    public ResponseEntity<?> getHttpClientStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (OutboundHttpClient client : outboundHttpClients) {
+            stats.put(client.getName(), client.getStats());
+        }
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Cached health status of external dependencies
+     * 
+     * GET /api/system/health
+     */
+    @GetMapping("/system/health")
+    public ResponseEntity<?> getDependencyHealth() {
+        return ResponseEntity.ok(healthService.getStats());
+    }
+
     // ==================== Substitution Endpoints ====================
 
+    /**
+     * Get hit/miss statistics for the substitution suggestion cache
+     * 
+     * GET /api/substitutions/cache/stats
+     */
+    @GetMapping("/substitutions/cache/stats")
+    public ResponseEntity<?> getSubstitutionCacheStats() {
+        return ResponseEntity.ok(substitutionService.getCacheStats());
+    }
+
     /**
      * Get missing ingredients for a recipe
      * 
@@ -574,9 +748,9 @@ public class RecipeController {
     public ResponseEntity<?> getAlmostCookableRecipes(
             @RequestParam(defaultValue = "2") int maxMissing) {
 
-        if (maxMissing < 1 || maxMissing > 5) {
+        if (maxMissing < 1 || maxMissing > 10) {
             return ResponseEntity.badRequest()
-                    .body(Map.of("error", "maxMissing must be between 1 and 5"));
+                    .body(Map.of("error", "maxMissing must be between 1 and 10"));
         }
 
         Map<String, List<String>> almostCookable = recipeService.findAlmostCookableRecipes(maxMissing);
@@ -0,0 +1,128 @@
+package com.smartfridge.dao;
+
+import java.util.*;
+
+/**
+ * Immutable in-memory copy of ingredient_aliases, answering resolveToCanonical
+ * lookups without touching SQLite.
+ *
+ * Keys are lowercased names stored in an open-addressing table (linear probing
+ * over parallel key/value arrays). A name that is itself a canonical name maps
+ * to that canonical name; otherwise it maps to the canonical name of its
+ * highest-confidence alias row (lowest id on ties), mirroring the SQL lookups.
+ * Writers derive a new dictionary from {@link #rows()} and swap it in.
+ */
+final class AliasDictionary {
+
+    private static final AliasDictionary EMPTY = new AliasDictionary(Collections.emptyList());
+
+    private final List<Row> rows;
+    private final String[] keys;
+    private final String[] values;
+    private final int mask;
+
+    private AliasDictionary(List<Row> rows) {
+        this.rows = rows;
+
+        Map<String, Row> best = new HashMap<>();
+        for (Row row : rows) {
+            best.merge(row.alias.toLowerCase(), row, AliasDictionary::preferred);
+        }
+        Map<String, String> entries = new HashMap<>();
+        for (Map.Entry<String, Row> entry : best.entrySet()) {
+            entries.put(entry.getKey(), entry.getValue().canonicalName);
+        }
+        // Canonical names take precedence over aliases; lowest id wins among case variants
+        Map<String, Row> canonicals = new HashMap<>();
+        for (Row row : rows) {
+            canonicals.merge(row.canonicalName.toLowerCase(), row, (a, b) -> a.id <= b.id ? a : b);
+        }
+        for (Map.Entry<String, Row> entry : canonicals.entrySet()) {
+            entries.put(entry.getKey(), entry.getValue().canonicalName);
+        }
+
+        // Keep the load factor at or below one half
+        int capacity = Integer.highestOneBit(Math.max(4, entries.size() * 2 - 1)) << 1;
+        this.keys = new String[capacity];
+        this.values = new String[capacity];
+        this.mask = capacity - 1;
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            int slot = slotFor(entry.getKey());
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = entry.getKey();
+            values[slot] = entry.getValue();
+        }
+    }
+
+    static AliasDictionary empty() {
+        return EMPTY;
+    }
+
+    static AliasDictionary of(List<Row> rows) {
+        return new AliasDictionary(Collections.unmodifiableList(new ArrayList<>(rows)));
+    }
+
+    /**
+     * Look up a lowercased name, returning its canonical name or null.
+     */
+    String get(String normalized) {
+        int slot = slotFor(normalized);
+        String key;
+        while ((key = keys[slot]) != null) {
+            if (key.equals(normalized)) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    int size() {
+        return rows.size();
+    }
+
+    /**
+     * The alias rows this dictionary was built from, in id order.
+     */
+    List<Row> rows() {
+        return rows;
+    }
+
+    /**
+     * Highest id among the rows, used to order rows added after loading.
+     */
+    long maxId() {
+        return rows.isEmpty() ? 0 : rows.get(rows.size() - 1).id;
+    }
+
+    private int slotFor(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private static Row preferred(Row a, Row b) {
+        if (a.confidence != b.confidence) {
+            return a.confidence > b.confidence ? a : b;
+        }
+        return a.id <= b.id ? a : b;
+    }
+
+    /**
+     * One ingredient_aliases row.
+     */
+    static final class Row {
+        final long id;
+        final String canonicalName;
+        final String alias;
+        final double confidence;
+
+        Row(long id, String canonicalName, String alias, double confidence) {
+            this.id = id;
+            this.canonicalName = canonicalName;
+            this.alias = alias;
+            this.confidence = confidence;
+        }
+    }
+}
@@ -9,6 +9,8 @@ import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Collectors;
 
 /**
@@ -52,6 +54,8 @@ public class DatabaseInitializer {
             // Run migrations
             migrateAddSortOrderColumn(conn);
             migrateAddIsSeasoningColumn(conn);
+            migrateDropBinaryAliasIndexes(conn);
+            migrateAddContentHashColumn(conn);
 
             System.out.println("Database initialized successfully");
         } catch (Exception e) {
@@ -113,4 +117,55 @@ public class DatabaseInitializer {
             System.err.println("Warning: Could not migrate is_seasoning column: " + e.getMessage());
         }
     }
+
+    /**
+     * Migration: Drop the binary-collation alias indexes replaced by the
+     * COLLATE NOCASE indexes in schema.sql (LOWER() lookups could not use them)
+     */
+    private void migrateDropBinaryAliasIndexes(Connection conn) {
+        try (Statement stmt = conn.createStatement()) {
+            ResultSet rs = stmt.executeQuery("PRAGMA index_list(ingredient_aliases)");
+            List<String> obsolete = new ArrayList<>();
+            while (rs.next()) {
+                String name = rs.getString("name");
+                if ("idx_aliases_canonical".equals(name) || "idx_aliases_alias".equals(name)) {
+                    obsolete.add(name);
+                }
+            }
+            rs.close();
+
+            for (String name : obsolete) {
+                stmt.execute("DROP INDEX IF EXISTS " + name);
+                System.out.println("Migration: Dropped index " + name + " (replaced by NOCASE index)");
+            }
+        } catch (SQLException e) {
+            System.err.println("Warning: Could not migrate alias indexes: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Migration: Add content_hash column to recipe_embeddings table
+     */
+    private void migrateAddContentHashColumn(Connection conn) {
+        try (Statement stmt = conn.createStatement()) {
+            if (!hasColumn(conn, "recipe_embeddings", "content_hash")) {
+                stmt.execute("ALTER TABLE recipe_embeddings ADD COLUMN content_hash TEXT");
+                System.out.println("Migration: Added content_hash column to recipe_embeddings table");
+            }
+        } catch (SQLException e) {
+            System.err.println("Warning: Could not migrate content_hash column: " + e.getMessage());
+        }
+    }
+
+    private boolean hasColumn(Connection conn, String table, String column) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equals(rs.getString("name"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
 }
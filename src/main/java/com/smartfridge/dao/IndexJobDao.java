@@ -0,0 +1,141 @@
+package com.smartfridge.dao;
+
+import com.smartfridge.model.IndexJob;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.*;
+
+/**
+ * DAO for background re-index job state
+ */
+@Repository
+public class IndexJobDao {
+
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * Insert or update a job
+     */
+    public void save(IndexJob job) {
+        String sql = """
+                INSERT INTO index_jobs (id, status, mode, watermark, total, read_count, indexed, skipped,
+                                        unchanged, deleted, failed, error, started_at, updated_at, finished_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                ON CONFLICT(id) DO UPDATE SET
+                    status = excluded.status, mode = excluded.mode, watermark = excluded.watermark,
+                    total = excluded.total, read_count = excluded.read_count, indexed = excluded.indexed,
+                    skipped = excluded.skipped, unchanged = excluded.unchanged, deleted = excluded.deleted,
+                    failed = excluded.failed, error = excluded.error, started_at = excluded.started_at,
+                    updated_at = excluded.updated_at, finished_at = excluded.finished_at
+                """;
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, job.getId());
+            pstmt.setString(2, job.getStatus());
+            pstmt.setString(3, job.getMode());
+            pstmt.setString(4, job.getWatermark());
+            pstmt.setLong(5, job.getTotal());
+            pstmt.setLong(6, job.getRead());
+            pstmt.setLong(7, job.getIndexed());
+            pstmt.setLong(8, job.getSkipped());
+            pstmt.setLong(9, job.getUnchanged());
+            pstmt.setLong(10, job.getDeleted());
+            pstmt.setLong(11, job.getFailed());
+            pstmt.setString(12, job.getError());
+            pstmt.setLong(13, job.getStartedAt());
+            pstmt.setLong(14, job.getUpdatedAt());
+            if (job.getFinishedAt() != null) {
+                pstmt.setLong(15, job.getFinishedAt());
+            } else {
+                pstmt.setNull(15, Types.INTEGER);
+            }
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save index job: " + job.getId(), e);
+        }
+    }
+
+    /**
+     * Get a job by id, or null if unknown
+     */
+    public IndexJob findById(String id) {
+        String sql = "SELECT * FROM index_jobs WHERE id = ?";
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? mapRow(rs) : null;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to get index job: " + id, e);
+        }
+    }
+
+    /**
+     * Most recently started jobs first
+     */
+    public List<IndexJob> findRecent(int limit) {
+        String sql = "SELECT * FROM index_jobs ORDER BY started_at DESC LIMIT ?";
+
+        List<IndexJob> jobs = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    jobs.add(mapRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to list index jobs", e);
+        }
+        return jobs;
+    }
+
+    /**
+     * Mark jobs left RUNNING by a previous process as INTERRUPTED so they
+     * can be resumed. Returns the number of jobs updated.
+     */
+    public int markRunningInterrupted() {
+        String sql = "UPDATE index_jobs SET status = ?, updated_at = ? WHERE status = ?";
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, IndexJob.INTERRUPTED);
+            pstmt.setLong(2, System.currentTimeMillis());
+            pstmt.setString(3, IndexJob.RUNNING);
+            return pstmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("Warning: Could not mark interrupted index jobs: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private IndexJob mapRow(ResultSet rs) throws SQLException {
+        IndexJob job = new IndexJob(rs.getString("id"), rs.getString("status"), rs.getString("watermark"));
+        job.setMode(rs.getString("mode") != null ? rs.getString("mode") : IndexJob.FULL);
+        job.setTotal(rs.getLong("total"));
+        job.setRead(rs.getLong("read_count"));
+        job.setIndexed(rs.getLong("indexed"));
+        job.setSkipped(rs.getLong("skipped"));
+        job.setUnchanged(rs.getLong("unchanged"));
+        job.setDeleted(rs.getLong("deleted"));
+        job.setFailed(rs.getLong("failed"));
+        job.setError(rs.getString("error"));
+        job.setStartedAt(rs.getLong("started_at"));
+        job.setUpdatedAt(rs.getLong("updated_at"));
+        long finishedAt = rs.getLong("finished_at");
+        job.setFinishedAt(rs.wasNull() ? null : finishedAt);
+        return job;
+    }
+}
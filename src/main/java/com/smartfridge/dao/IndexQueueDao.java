@@ -0,0 +1,199 @@
+package com.smartfridge.dao;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.*;
+
+/**
+ * DAO for the write-behind vector index queue
+ */
+@Repository
+public class IndexQueueDao {
+
+    public static final String UPSERT = "UPSERT";
+    public static final String DELETE = "DELETE";
+
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * Queue an operation for a recipe, replacing any pending one. The entry
+     * becomes due immediately and its retry count is reset.
+     */
+    public void enqueue(String recipeName, String operation) {
+        String sql = """
+                INSERT INTO index_queue (recipe_name, operation, generation, attempts, next_attempt_at, enqueued_at)
+                VALUES (?, ?, 0, 0, ?, ?)
+                ON CONFLICT(recipe_name) DO UPDATE SET
+                    operation = excluded.operation, generation = index_queue.generation + 1, attempts = 0,
+                    next_attempt_at = excluded.next_attempt_at, enqueued_at = excluded.enqueued_at,
+                    last_error = NULL
+                """;
+
+        long now = System.currentTimeMillis();
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, recipeName);
+            pstmt.setString(2, operation);
+            pstmt.setLong(3, now);
+            pstmt.setLong(4, now);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to enqueue index operation for: " + recipeName, e);
+        }
+    }
+
+    /**
+     * Entries due at the given time, oldest first
+     */
+    public List<Item> findDue(long now, int limit) {
+        String sql = """
+                SELECT recipe_name, operation, generation, attempts
+                FROM index_queue
+                WHERE next_attempt_at <= ?
+                ORDER BY next_attempt_at
+                LIMIT ?
+                """;
+
+        List<Item> items = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, now);
+            pstmt.setInt(2, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    items.add(new Item(rs.getString("recipe_name"), rs.getString("operation"),
+                            rs.getLong("generation"), rs.getInt("attempts")));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read index queue", e);
+        }
+        return items;
+    }
+
+    /**
+     * Remove processed entries. An entry re-enqueued while it was being
+     * processed has a newer generation and is kept.
+     */
+    public void complete(List<Item> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        String sql = "DELETE FROM index_queue WHERE recipe_name = ? AND generation = ?";
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (Item item : items) {
+                    pstmt.setString(1, item.recipeName);
+                    pstmt.setLong(2, item.generation);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to complete index queue entries", e);
+        }
+    }
+
+    /**
+     * Record a failed attempt and when to retry. Ignored if the entry was
+     * re-enqueued in the meantime.
+     */
+    public void reschedule(Item item, long nextAttemptAt, String error) {
+        String sql = """
+                UPDATE index_queue SET attempts = attempts + 1, next_attempt_at = ?, last_error = ?
+                WHERE recipe_name = ? AND generation = ?
+                """;
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, nextAttemptAt);
+            pstmt.setString(2, error);
+            pstmt.setString(3, item.recipeName);
+            pstmt.setLong(4, item.generation);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to reschedule index queue entry: " + item.recipeName, e);
+        }
+    }
+
+    /**
+     * Queue depth, retrying entries, age of the oldest entry and the most
+     * recent error
+     */
+    public Map<String, Object> getStats() {
+        String sql = """
+                SELECT COUNT(*) AS pending,
+                       SUM(CASE WHEN attempts > 0 THEN 1 ELSE 0 END) AS retrying,
+                       MIN(enqueued_at) AS oldest
+                FROM index_queue
+                """;
+        String errorSql = "SELECT recipe_name, last_error FROM index_queue WHERE last_error IS NOT NULL "
+                + "ORDER BY next_attempt_at DESC LIMIT 1";
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        try (Connection conn = dataSource.getConnection();
+                Statement stmt = conn.createStatement()) {
+
+            try (ResultSet rs = stmt.executeQuery(sql)) {
+                if (rs.next()) {
+                    stats.put("pending", rs.getInt("pending"));
+                    stats.put("retrying", rs.getInt("retrying"));
+                    long oldest = rs.getLong("oldest");
+                    stats.put("oldestAgeMs", rs.wasNull() ? 0 : System.currentTimeMillis() - oldest);
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery(errorSql)) {
+                if (rs.next()) {
+                    stats.put("lastError", rs.getString("recipe_name") + ": " + rs.getString("last_error"));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to get index queue stats", e);
+        }
+        return stats;
+    }
+
+    /**
+     * One queued operation, as read by the worker.
+     */
+    public static final class Item {
+        private final String recipeName;
+        private final String operation;
+        private final long generation;
+        private final int attempts;
+
+        public Item(String recipeName, String operation, long generation, int attempts) {
+            this.recipeName = recipeName;
+            this.operation = operation;
+            this.generation = generation;
+            this.attempts = attempts;
+        }
+
+        public String getRecipeName() {
+            return recipeName;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+    }
+}
@@ -1,15 +1,19 @@
 package com.smartfridge.dao;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 import javax.sql.DataSource;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * DAO for ingredient alias operations.
  * Manages canonical name to alias mappings for flexible ingredient matching.
+ * Lookups are served from a resident {@link AliasDictionary} loaded on first use;
+ * writes go to SQLite first and then swap in an updated copy of the dictionary.
  */
 @Repository
 public class IngredientAliasDao {
@@ -17,9 +21,30 @@ public class IngredientAliasDao {
     @Autowired
     private DataSource dataSource;
 
+    // Bound parameters per IN (...) list, well below SQLite's variable limit
+    private static final int BULK_CHUNK_SIZE = 500;
+
+    @Value("${ingredient.alias.dictionary.enabled:true}")
+    private boolean dictionaryEnabled;
+
+    // Bumped on every alias write so callers caching resolved names can detect staleness
+    private final AtomicLong version = new AtomicLong();
+
+    // Read without locking; replaced wholesale under dictionaryLock
+    private volatile AliasDictionary dictionary;
+    private final Object dictionaryLock = new Object();
+
+    /**
+     * Get the current alias data version.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
     /**
      * Resolve an ingredient name to its canonical form.
      * Returns the original name if no alias is found.
+     * The SQL fallback compares with COLLATE NOCASE so the NOCASE indexes are used.
      */
     public String resolveToCanonical(String ingredient) {
         if (ingredient == null || ingredient.trim().isEmpty()) {
@@ -28,8 +53,14 @@ public class IngredientAliasDao {
 
         String normalized = ingredient.trim().toLowerCase();
 
+        AliasDictionary dict = getDictionary();
+        if (dict != null) {
+            String canonical = dict.get(normalized);
+            return canonical != null ? canonical : ingredient;
+        }
+
         // First check if this is already a canonical name
-        String sql = "SELECT DISTINCT canonical_name FROM ingredient_aliases WHERE LOWER(canonical_name) = ?";
+        String sql = "SELECT DISTINCT canonical_name FROM ingredient_aliases WHERE canonical_name = ? COLLATE NOCASE";
         try (Connection conn = dataSource.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, normalized);
@@ -42,7 +73,7 @@ public class IngredientAliasDao {
         }
 
         // Then check if this is an alias
-        sql = "SELECT canonical_name FROM ingredient_aliases WHERE LOWER(alias) = ? ORDER BY confidence DESC LIMIT 1";
+        sql = "SELECT canonical_name FROM ingredient_aliases WHERE alias = ? COLLATE NOCASE ORDER BY confidence DESC LIMIT 1";
         try (Connection conn = dataSource.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, normalized);
@@ -58,12 +89,104 @@ public class IngredientAliasDao {
         return ingredient;
     }
 
+    /**
+     * Resolve many ingredient names to their canonical forms in a few set-based
+     * queries (chunked IN lists) instead of two queries per name.
+     * Returns a map from each trimmed, non-empty input to its canonical name,
+     * or to the trimmed input itself if no alias is found.
+     */
+    public Map<String, String> resolveAllToCanonical(Collection<String> ingredients) {
+        Map<String, String> resolved = new HashMap<>();
+        // Normalized (lowercase) key -> trimmed inputs sharing it
+        Map<String, List<String>> pending = new LinkedHashMap<>();
+        for (String ingredient : ingredients) {
+            if (ingredient == null || ingredient.trim().isEmpty()) {
+                continue;
+            }
+            String trimmed = ingredient.trim();
+            if (resolved.putIfAbsent(trimmed, trimmed) == null) {
+                pending.computeIfAbsent(trimmed.toLowerCase(), k -> new ArrayList<>()).add(trimmed);
+            }
+        }
+        if (pending.isEmpty()) {
+            return resolved;
+        }
+
+        AliasDictionary dict = getDictionary();
+        if (dict != null) {
+            for (Map.Entry<String, List<String>> entry : pending.entrySet()) {
+                String canonical = dict.get(entry.getKey());
+                if (canonical != null) {
+                    for (String input : entry.getValue()) {
+                        resolved.put(input, canonical);
+                    }
+                }
+            }
+            return resolved;
+        }
+
+        try (Connection conn = dataSource.getConnection()) {
+            // First check which names are already canonical names
+            Map<String, String> canonicalHits = queryByNormalizedKey(conn,
+                    "SELECT LOWER(canonical_name) AS norm_key, canonical_name FROM ingredient_aliases"
+                            + " WHERE canonical_name COLLATE NOCASE IN (%s)",
+                    pending.keySet());
+            applyHits(canonicalHits, pending, resolved);
+
+            // Then resolve the remaining names as aliases (highest confidence wins)
+            Map<String, String> aliasHits = queryByNormalizedKey(conn,
+                    "SELECT LOWER(alias) AS norm_key, canonical_name FROM ingredient_aliases"
+                            + " WHERE alias COLLATE NOCASE IN (%s) ORDER BY confidence DESC",
+                    pending.keySet());
+            applyHits(aliasHits, pending, resolved);
+        } catch (SQLException e) {
+            System.err.println("Error bulk resolving aliases: " + e.getMessage());
+        }
+
+        return resolved;
+    }
+
+    private Map<String, String> queryByNormalizedKey(Connection conn, String sqlTemplate, Collection<String> keys)
+            throws SQLException {
+        Map<String, String> hits = new HashMap<>();
+        List<String> keyList = new ArrayList<>(keys);
+
+        for (int from = 0; from < keyList.size(); from += BULK_CHUNK_SIZE) {
+            List<String> chunk = keyList.subList(from, Math.min(from + BULK_CHUNK_SIZE, keyList.size()));
+            String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+
+            try (PreparedStatement pstmt = conn.prepareStatement(String.format(sqlTemplate, placeholders))) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setString(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        // Rows arrive in preference order; keep the first per key
+                        hits.putIfAbsent(rs.getString("norm_key"), rs.getString("canonical_name"));
+                    }
+                }
+            }
+        }
+        return hits;
+    }
+
+    private void applyHits(Map<String, String> hits, Map<String, List<String>> pending, Map<String, String> resolved) {
+        for (Map.Entry<String, String> hit : hits.entrySet()) {
+            List<String> inputs = pending.remove(hit.getKey());
+            if (inputs != null) {
+                for (String input : inputs) {
+                    resolved.put(input, hit.getValue());
+                }
+            }
+        }
+    }
+
     /**
      * Get all aliases for a canonical name
      */
     public List<String> getAliasesForCanonical(String canonicalName) {
         List<String> aliases = new ArrayList<>();
-        String sql = "SELECT alias, confidence FROM ingredient_aliases WHERE LOWER(canonical_name) = ? ORDER BY confidence DESC";
+        String sql = "SELECT alias, confidence FROM ingredient_aliases WHERE canonical_name = ? COLLATE NOCASE ORDER BY confidence DESC";
 
         try (Connection conn = dataSource.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -83,26 +206,63 @@ public class IngredientAliasDao {
      * Add a new alias mapping
      */
     public void addAlias(String canonicalName, String alias, double confidence, String source) {
-        String sql = "INSERT OR REPLACE INTO ingredient_aliases (canonical_name, alias, confidence, source, created_at) VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP)";
-
-        try (Connection conn = dataSource.getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, canonicalName.toLowerCase());
-            pstmt.setString(2, alias.toLowerCase());
-            pstmt.setDouble(3, confidence);
-            pstmt.setString(4, source);
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            System.err.println("Error adding alias: " + e.getMessage());
-        }
+        addAliases(canonicalName, Collections.singletonList(alias), confidence, source);
     }
 
     /**
-     * Add multiple aliases for a canonical name
+     * Add multiple aliases for a canonical name in one transaction
      */
     public void addAliases(String canonicalName, List<String> aliases, double confidence, String source) {
-        for (String alias : aliases) {
-            addAlias(canonicalName, alias, confidence, source);
+        if (aliases.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT OR REPLACE INTO ingredient_aliases (canonical_name, alias, confidence, source, created_at) VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP)";
+        String canonical = canonicalName.toLowerCase();
+
+        synchronized (dictionaryLock) {
+            try (Connection conn = dataSource.getConnection()) {
+                conn.setAutoCommit(false);
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (String alias : aliases) {
+                        pstmt.setString(1, canonical);
+                        pstmt.setString(2, alias.toLowerCase());
+                        pstmt.setDouble(3, confidence);
+                        pstmt.setString(4, source);
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                System.err.println("Error adding alias: " + e.getMessage());
+                return;
+            }
+
+            AliasDictionary current = dictionary;
+            if (current != null) {
+                // INSERT OR REPLACE re-inserts an existing (canonical, alias) pair with a new id
+                Set<String> added = new LinkedHashSet<>();
+                for (String alias : aliases) {
+                    added.add(alias.toLowerCase());
+                }
+                List<AliasDictionary.Row> rows = new ArrayList<>(current.size() + added.size());
+                for (AliasDictionary.Row row : current.rows()) {
+                    if (!(row.canonicalName.equals(canonical) && added.contains(row.alias))) {
+                        rows.add(row);
+                    }
+                }
+                long id = current.maxId();
+                for (String alias : added) {
+                    rows.add(new AliasDictionary.Row(++id, canonical, alias, confidence));
+                }
+                dictionary = AliasDictionary.of(rows);
+            }
+            version.incrementAndGet();
         }
     }
 
@@ -130,22 +290,80 @@ public class IngredientAliasDao {
      * Delete all aliases for a canonical name
      */
     public void deleteAliasesForCanonical(String canonicalName) {
-        String sql = "DELETE FROM ingredient_aliases WHERE LOWER(canonical_name) = ?";
+        String sql = "DELETE FROM ingredient_aliases WHERE canonical_name = ? COLLATE NOCASE";
+        String normalized = canonicalName.toLowerCase();
+
+        synchronized (dictionaryLock) {
+            try (Connection conn = dataSource.getConnection();
+                    PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, normalized);
+                pstmt.executeUpdate();
+            } catch (SQLException e) {
+                System.err.println("Error deleting aliases: " + e.getMessage());
+                return;
+            }
+
+            AliasDictionary current = dictionary;
+            if (current != null) {
+                List<AliasDictionary.Row> rows = new ArrayList<>(current.size());
+                for (AliasDictionary.Row row : current.rows()) {
+                    if (!row.canonicalName.toLowerCase().equals(normalized)) {
+                        rows.add(row);
+                    }
+                }
+                dictionary = AliasDictionary.of(rows);
+            }
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Get the resident dictionary, loading it on first use.
+     * Returns null when the dictionary is disabled or could not be loaded,
+     * in which case callers fall back to SQL lookups.
+     */
+    private AliasDictionary getDictionary() {
+        if (!dictionaryEnabled) {
+            return null;
+        }
+        AliasDictionary current = dictionary;
+        if (current != null) {
+            return current;
+        }
+
+        synchronized (dictionaryLock) {
+            if (dictionary == null) {
+                dictionary = loadDictionary();
+            }
+            return dictionary;
+        }
+    }
+
+    private AliasDictionary loadDictionary() {
+        String sql = "SELECT id, canonical_name, alias, confidence FROM ingredient_aliases ORDER BY id";
+        List<AliasDictionary.Row> rows = new ArrayList<>();
 
         try (Connection conn = dataSource.getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, canonicalName.toLowerCase());
-            pstmt.executeUpdate();
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                rows.add(new AliasDictionary.Row(rs.getLong("id"), rs.getString("canonical_name"),
+                        rs.getString("alias"), rs.getDouble("confidence")));
+            }
         } catch (SQLException e) {
-            System.err.println("Error deleting aliases: " + e.getMessage());
+            System.err.println("Error loading alias dictionary: " + e.getMessage());
+            return null;
         }
+
+        System.out.println("[AliasDictionary] Loaded " + rows.size() + " aliases");
+        return AliasDictionary.of(rows);
     }
 
     /**
      * Check if an alias exists
      */
     public boolean aliasExists(String alias) {
-        String sql = "SELECT 1 FROM ingredient_aliases WHERE LOWER(alias) = ? LIMIT 1";
+        String sql = "SELECT 1 FROM ingredient_aliases WHERE alias = ? COLLATE NOCASE LIMIT 1";
 
         try (Connection conn = dataSource.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -89,6 +89,103 @@ public class RecipeDao {
         return null;
     }
 
+    /**
+     * Get a page of recipe details ordered by name, starting after afterName
+     * (keyset pagination; pass null for the first page). Recipes without
+     * ingredients are returned with an empty ingredient list so the cursor
+     * always advances. Use the last returned name as the next cursor; an empty
+     * page means the end was reached.
+     */
+    public List<RecipeDetails> getRecipeDetailsPage(String afterName, int limit) {
+        String sql = """
+                SELECT rd.recipe_name, rd.cuisine_type, rd.instructions, rd.image_url,
+                       dep.ingredient_name
+                FROM (SELECT recipe_name, cuisine_type, instructions, image_url
+                      FROM recipe_details
+                      WHERE recipe_name > ?
+                      ORDER BY recipe_name
+                      LIMIT ?) rd
+                LEFT JOIN recipe_dependencies dep ON rd.recipe_name = dep.recipe_name
+                ORDER BY rd.recipe_name
+                """;
+
+        List<RecipeDetails> page = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, afterName != null ? afterName : "");
+            pstmt.setInt(2, limit);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                RecipeDetails current = null;
+                while (rs.next()) {
+                    String recipeName = rs.getString("recipe_name");
+                    if (current == null || !current.getName().equals(recipeName)) {
+                        current = new RecipeDetails(recipeName, new ArrayList<>(),
+                                parseCuisineType(rs.getString("cuisine_type")),
+                                rs.getString("instructions"), rs.getString("image_url"));
+                        page.add(current);
+                    }
+                    String ingredient = rs.getString("ingredient_name");
+                    if (ingredient != null) {
+                        current.getIngredients().add(ingredient);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to get recipe details page after: " + afterName, e);
+        }
+        return page;
+    }
+
+    /**
+     * Get the cuisine type of each named recipe; unknown recipes are absent
+     */
+    public Map<String, String> getCuisineTypes(Collection<String> recipeNames) {
+        Map<String, String> cuisines = new HashMap<>();
+        if (recipeNames.isEmpty()) {
+            return cuisines;
+        }
+        String sql = "SELECT recipe_name, cuisine_type FROM recipe_details WHERE recipe_name IN ("
+                + String.join(",", Collections.nCopies(recipeNames.size(), "?")) + ")";
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            for (String recipeName : recipeNames) {
+                pstmt.setString(index++, recipeName);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    cuisines.put(rs.getString("recipe_name"),
+                            parseCuisineType(rs.getString("cuisine_type")).name());
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to get cuisine types", e);
+        }
+        return cuisines;
+    }
+
+    /**
+     * Count recipes whose name sorts after the given cursor (all recipes if null)
+     */
+    public int countRecipesAfter(String afterName) {
+        String sql = "SELECT COUNT(*) FROM recipe_details WHERE recipe_name > ?";
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, afterName != null ? afterName : "");
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to count recipes after: " + afterName, e);
+        }
+    }
+
     /**
      * Get only non-seasoning ingredients for a recipe
      */
@@ -0,0 +1,177 @@
+package com.smartfridge.dao;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.*;
+
+/**
+ * DAO for recipe_embeddings: which recipes are in the vector index, under
+ * which model, and a hash of the text that was embedded
+ */
+@Repository
+public class RecipeEmbeddingDao {
+
+    private static final int BULK_CHUNK_SIZE = 500;
+
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * Get the content hash of each named recipe indexed with the given model.
+     * Recipes not indexed, or indexed with another model, are absent.
+     */
+    public Map<String, String> findContentHashes(Collection<String> recipeNames, String modelVersion) {
+        Map<String, String> hashes = new HashMap<>();
+        List<String> names = new ArrayList<>(recipeNames);
+
+        try (Connection conn = dataSource.getConnection()) {
+            for (int from = 0; from < names.size(); from += BULK_CHUNK_SIZE) {
+                List<String> chunk = names.subList(from, Math.min(from + BULK_CHUNK_SIZE, names.size()));
+                String sql = "SELECT recipe_name, content_hash FROM recipe_embeddings WHERE model_version = ? "
+                        + "AND recipe_name IN (" + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setString(1, modelVersion);
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setString(i + 2, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            hashes.put(rs.getString("recipe_name"), rs.getString("content_hash"));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to get recipe embedding hashes", e);
+        }
+        return hashes;
+    }
+
+    /**
+     * Record that recipes were indexed, in one transaction
+     */
+    public void saveAll(List<Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        String sql = """
+                INSERT INTO recipe_embeddings (recipe_name, embedding_id, model_version, content_hash, updated_at)
+                VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP)
+                ON CONFLICT(recipe_name) DO UPDATE SET
+                    embedding_id = excluded.embedding_id, model_version = excluded.model_version,
+                    content_hash = excluded.content_hash, updated_at = excluded.updated_at
+                """;
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (Entry entry : entries) {
+                    pstmt.setString(1, entry.recipeName);
+                    pstmt.setString(2, entry.embeddingId);
+                    pstmt.setString(3, entry.modelVersion);
+                    pstmt.setString(4, entry.contentHash);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save recipe embeddings", e);
+        }
+    }
+
+    /**
+     * Forget indexed recipes
+     */
+    public void deleteAll(Collection<String> recipeNames) {
+        List<String> names = new ArrayList<>(recipeNames);
+
+        try (Connection conn = dataSource.getConnection()) {
+            for (int from = 0; from < names.size(); from += BULK_CHUNK_SIZE) {
+                List<String> chunk = names.subList(from, Math.min(from + BULK_CHUNK_SIZE, names.size()));
+                String sql = "DELETE FROM recipe_embeddings WHERE recipe_name IN ("
+                        + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setString(i + 1, chunk.get(i));
+                    }
+                    pstmt.executeUpdate();
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to delete recipe embeddings", e);
+        }
+    }
+
+    /**
+     * Names of all recipes recorded as indexed
+     */
+    public List<String> findIndexedRecipes() {
+        List<String> names = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT recipe_name FROM recipe_embeddings")) {
+
+            while (rs.next()) {
+                names.add(rs.getString("recipe_name"));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to list recipe embeddings", e);
+        }
+        return names;
+    }
+
+    /**
+     * Indexed recipes that no longer exist or no longer have ingredients,
+     * whose vectors should be removed
+     */
+    public List<String> findStale() {
+        String sql = """
+                SELECT e.recipe_name
+                FROM recipe_embeddings e
+                WHERE NOT EXISTS (SELECT 1 FROM recipe_details rd WHERE rd.recipe_name = e.recipe_name)
+                   OR NOT EXISTS (SELECT 1 FROM recipe_dependencies dep WHERE dep.recipe_name = e.recipe_name)
+                ORDER BY e.recipe_name
+                """;
+
+        List<String> stale = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                stale.add(rs.getString("recipe_name"));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to find stale recipe embeddings", e);
+        }
+        return stale;
+    }
+
+    /**
+     * One recipe_embeddings row.
+     */
+    public static final class Entry {
+        private final String recipeName;
+        private final String embeddingId;
+        private final String modelVersion;
+        private final String contentHash;
+
+        public Entry(String recipeName, String embeddingId, String modelVersion, String contentHash) {
+            this.recipeName = recipeName;
+            this.embeddingId = embeddingId;
+            this.modelVersion = modelVersion;
+            this.contentHash = contentHash;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.smartfridge.graph;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * Per-recipe count of ingredients missing from the fridge, kept in bucket
+ * lists keyed by that count so "missing <= k" is read without scanning.
+ *
+ * A recipe ingredient (slot) is satisfied when either its raw name or its
+ * resolved canonical name is supplied. Supplied names come from the fridge
+ * only; recipes that are themselves cookable do not satisfy a slot here.
+ * Buckets are intrusive doubly-linked lists over recipe node ids.
+ */
+public final class AlmostCookableIndex {
+
+    private static final int NONE = -1;
+
+    private final CompiledRecipeGraph graph;
+    private final int[] slotHits;
+    private final int[] missingCount;
+    private final int[] bucketHead;
+    private final int[] next;
+    private final int[] prev;
+
+    public AlmostCookableIndex(CompiledRecipeGraph graph) {
+        this.graph = graph;
+        int nodeCount = graph.nodeCount();
+        this.slotHits = new int[graph.slotCount()];
+        this.missingCount = new int[nodeCount];
+        this.bucketHead = new int[graph.maxSlotsPerRecipe() + 1];
+        this.next = new int[nodeCount];
+        this.prev = new int[nodeCount];
+        Arrays.fill(bucketHead, NONE);
+
+        for (int node = 0; node < nodeCount; node++) {
+            int slots = graph.slotEnd(node) - graph.slotStart(node);
+            if (slots > 0) {
+                missingCount[node] = slots;
+                link(node, slots);
+            }
+        }
+    }
+
+    /**
+     * A node went from unsupplied to supplied.
+     */
+    void nodeSupplied(int node) {
+        for (int i = graph.keySlotStart(node), end = graph.keySlotEnd(node); i < end; i++) {
+            int slot = graph.keySlot(i);
+            if (slotHits[slot]++ == 0) {
+                move(graph.slotRecipe(slot), -1);
+            }
+        }
+    }
+
+    /**
+     * A node went from supplied to unsupplied.
+     */
+    void nodeUnsupplied(int node) {
+        for (int i = graph.keySlotStart(node), end = graph.keySlotEnd(node); i < end; i++) {
+            int slot = graph.keySlot(i);
+            if (--slotHits[slot] == 0) {
+                move(graph.slotRecipe(slot), 1);
+            }
+        }
+    }
+
+    /**
+     * Find recipes missing between 1 and maxMissing ingredients, mapped to the
+     * raw names of the missing ingredients. Recipes matching {@code exclude}
+     * are skipped. Results follow the order recipes were added to the graph.
+     */
+    Map<String, List<String>> find(int maxMissing, IntPredicate exclude) {
+        List<Integer> matches = new ArrayList<>();
+        int maxBucket = Math.min(maxMissing, bucketHead.length - 1);
+        for (int bucket = 1; bucket <= maxBucket; bucket++) {
+            for (int node = bucketHead[bucket]; node != NONE; node = next[node]) {
+                if (!exclude.test(node)) {
+                    matches.add(node);
+                }
+            }
+        }
+        matches.sort(Comparator.comparingInt(graph::recipeOrdinal));
+
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        for (int node : matches) {
+            List<String> missingIngredients = new ArrayList<>(missingCount[node]);
+            for (int slot = graph.slotStart(node), end = graph.slotEnd(node); slot < end; slot++) {
+                if (slotHits[slot] == 0) {
+                    missingIngredients.add(graph.slotName(slot));
+                }
+            }
+            result.put(graph.nodeName(node), missingIngredients);
+        }
+        return result;
+    }
+
+    private void move(int node, int delta) {
+        unlink(node, missingCount[node]);
+        missingCount[node] += delta;
+        link(node, missingCount[node]);
+    }
+
+    private void link(int node, int bucket) {
+        int head = bucketHead[bucket];
+        next[node] = head;
+        prev[node] = NONE;
+        if (head != NONE) {
+            prev[head] = node;
+        }
+        bucketHead[bucket] = node;
+    }
+
+    private void unlink(int node, int bucket) {
+        if (prev[node] != NONE) {
+            next[prev[node]] = next[node];
+        } else {
+            bucketHead[bucket] = next[node];
+        }
+        if (next[node] != NONE) {
+            prev[next[node]] = prev[node];
+        }
+    }
+}
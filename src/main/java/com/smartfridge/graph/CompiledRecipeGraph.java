@@ -0,0 +1,371 @@
+package com.smartfridge.graph;
+
+import java.util.*;
+
+/**
+ * Immutable, int-interned form of the recipe dependency graph.
+ *
+ * Every ingredient and recipe name is interned to a dense node id. Edges run
+ * from an ingredient to the recipes that need it and are stored CSR-style
+ * (offsets + targets), in the order they were added. A cookability query only
+ * copies the base in-degree array and runs Kahn's algorithm over primitives.
+ *
+ * Graphs built with {@link Builder#addIngredient} also keep one "slot" per
+ * recipe ingredient (raw name plus resolved name) and an inverted index from
+ * each name to the slots it satisfies, used for almost-cookable lookups.
+ */
+public final class CompiledRecipeGraph {
+
+    private static final CompiledRecipeGraph EMPTY = builder().build();
+
+    private final Map<String, Integer> nodeIds;
+    private final String[] nodeNames;
+    private final int[] edgeOffsets;
+    private final int[] edgeTargets;
+    private final int[] baseInDegree;
+    private final int recipeCount;
+
+    // Ingredient slots grouped by recipe node, and the name -> slots inverted index
+    private final int[] slotOffsets;
+    private final String[] slotNames;
+    private final int[] slotRecipes;
+    private final int[] keyOffsets;
+    private final int[] keySlots;
+    private final int[] recipeOrdinals;
+    private final int maxSlotsPerRecipe;
+
+    private CompiledRecipeGraph(Map<String, Integer> nodeIds, String[] nodeNames, int[] edgeOffsets,
+            int[] edgeTargets, int[] baseInDegree, int recipeCount, int[] slotOffsets, String[] slotNames,
+            int[] slotRecipes, int[] keyOffsets, int[] keySlots, int[] recipeOrdinals, int maxSlotsPerRecipe) {
+        this.nodeIds = nodeIds;
+        this.nodeNames = nodeNames;
+        this.edgeOffsets = edgeOffsets;
+        this.edgeTargets = edgeTargets;
+        this.baseInDegree = baseInDegree;
+        this.recipeCount = recipeCount;
+        this.slotOffsets = slotOffsets;
+        this.slotNames = slotNames;
+        this.slotRecipes = slotRecipes;
+        this.keyOffsets = keyOffsets;
+        this.keySlots = keySlots;
+        this.recipeOrdinals = recipeOrdinals;
+        this.maxSlotsPerRecipe = maxSlotsPerRecipe;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static CompiledRecipeGraph empty() {
+        return EMPTY;
+    }
+
+    public boolean isEmpty() {
+        return recipeCount == 0;
+    }
+
+    public int nodeCount() {
+        return nodeNames.length;
+    }
+
+    public int recipeCount() {
+        return recipeCount;
+    }
+
+    public int edgeCount() {
+        return edgeTargets.length;
+    }
+
+    /**
+     * Get the node id for a name, or -1 if the name is not part of the graph.
+     */
+    public int nodeId(String name) {
+        Integer id = nodeIds.get(name);
+        return id != null ? id : -1;
+    }
+
+    public String nodeName(int node) {
+        return nodeNames[node];
+    }
+
+    /**
+     * Whether the node is a recipe (has at least one ingredient edge).
+     */
+    public boolean isRecipe(int node) {
+        return baseInDegree[node] > 0;
+    }
+
+    /**
+     * Number of ingredient edges pointing at a recipe node.
+     */
+    public int inDegree(int node) {
+        return baseInDegree[node];
+    }
+
+    /**
+     * Start index (inclusive) of a node's dependents in {@link #edgeTarget(int)}.
+     */
+    public int edgeStart(int node) {
+        return edgeOffsets[node];
+    }
+
+    /**
+     * End index (exclusive) of a node's dependents in {@link #edgeTarget(int)}.
+     */
+    public int edgeEnd(int node) {
+        return edgeOffsets[node + 1];
+    }
+
+    public int edgeTarget(int edge) {
+        return edgeTargets[edge];
+    }
+
+    public int slotCount() {
+        return slotNames.length;
+    }
+
+    /**
+     * Start index (inclusive) of a recipe node's ingredient slots.
+     */
+    public int slotStart(int recipe) {
+        return slotOffsets[recipe];
+    }
+
+    /**
+     * End index (exclusive) of a recipe node's ingredient slots.
+     */
+    public int slotEnd(int recipe) {
+        return slotOffsets[recipe + 1];
+    }
+
+    /**
+     * Raw (unresolved) ingredient name of a slot.
+     */
+    public String slotName(int slot) {
+        return slotNames[slot];
+    }
+
+    public int slotRecipe(int slot) {
+        return slotRecipes[slot];
+    }
+
+    /**
+     * Start index (inclusive) in {@link #keySlot(int)} of the slots a node satisfies.
+     */
+    public int keySlotStart(int node) {
+        return keyOffsets[node];
+    }
+
+    /**
+     * End index (exclusive) in {@link #keySlot(int)} of the slots a node satisfies.
+     */
+    public int keySlotEnd(int node) {
+        return keyOffsets[node + 1];
+    }
+
+    public int keySlot(int index) {
+        return keySlots[index];
+    }
+
+    /**
+     * Order in which a recipe's ingredients were first added, or -1 for nodes
+     * without slots.
+     */
+    public int recipeOrdinal(int node) {
+        return recipeOrdinals[node];
+    }
+
+    public int maxSlotsPerRecipe() {
+        return maxSlotsPerRecipe;
+    }
+
+    /**
+     * Find all cookable recipes using Kahn's algorithm over node ids.
+     * Supplies are processed in iteration order; the result order matches the
+     * String-keyed implementation for the same graph and supply order.
+     */
+    public List<String> findCookable(Collection<String> supplies) {
+        int[] inDegree = baseInDegree.clone();
+        int[] queue = new int[nodeNames.length];
+        BitSet processed = new BitSet(nodeNames.length);
+        int head = 0;
+        int tail = 0;
+
+        for (String supply : supplies) {
+            int node = nodeId(supply);
+            // Supplies outside the graph have no dependents and can never be emitted
+            if (node >= 0 && !processed.get(node)) {
+                queue[tail++] = node;
+                processed.set(node);
+            }
+        }
+
+        // Each node is enqueued at most once, so the queue never outgrows nodeCount
+        List<String> cookableRecipes = new ArrayList<>();
+        while (head < tail) {
+            int ingredient = queue[head++];
+            for (int e = edgeOffsets[ingredient], end = edgeOffsets[ingredient + 1]; e < end; e++) {
+                int recipe = edgeTargets[e];
+                if (--inDegree[recipe] == 0 && !processed.get(recipe)) {
+                    queue[tail++] = recipe;
+                    cookableRecipes.add(nodeNames[recipe]);
+                    processed.set(recipe);
+                }
+            }
+        }
+        return cookableRecipes;
+    }
+
+    /**
+     * Collects ingredient -> recipe edges and compiles them into CSR arrays.
+     */
+    public static final class Builder {
+        private final Map<String, Integer> nodeIds = new HashMap<>();
+        private final List<String> nodeNames = new ArrayList<>();
+        private int[] edgeSources = new int[64];
+        private int[] edgeRecipes = new int[64];
+        private int edgeCount = 0;
+        private final List<String> slotNames = new ArrayList<>();
+        private int[] slotRecipes = new int[64];
+        private int[] slotResolved = new int[64];
+        private final Map<Integer, Integer> recipeOrdinals = new HashMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Add an edge meaning "recipe needs ingredient". Duplicate edges are kept,
+         * each one counting towards the recipe's in-degree.
+         */
+        public Builder addEdge(String ingredient, String recipe) {
+            int source = intern(ingredient);
+            int target = intern(recipe);
+            if (edgeCount == edgeSources.length) {
+                edgeSources = Arrays.copyOf(edgeSources, edgeCount * 2);
+                edgeRecipes = Arrays.copyOf(edgeRecipes, edgeCount * 2);
+            }
+            edgeSources[edgeCount] = source;
+            edgeRecipes[edgeCount] = target;
+            edgeCount++;
+            return this;
+        }
+
+        /**
+         * Add a recipe ingredient by raw and resolved name. The dependency edge
+         * uses the resolved name; the slot remembers both so either one in the
+         * fridge satisfies it.
+         */
+        public Builder addIngredient(String recipe, String ingredient, String resolvedIngredient) {
+            addEdge(resolvedIngredient, recipe);
+            int recipeNode = intern(recipe);
+            recipeOrdinals.putIfAbsent(recipeNode, recipeOrdinals.size());
+
+            int slot = slotNames.size();
+            if (slot == slotRecipes.length) {
+                slotRecipes = Arrays.copyOf(slotRecipes, slot * 2);
+                slotResolved = Arrays.copyOf(slotResolved, slot * 2);
+            }
+            slotNames.add(ingredient);
+            slotRecipes[slot] = recipeNode;
+            slotResolved[slot] = intern(resolvedIngredient);
+            intern(ingredient);
+            return this;
+        }
+
+        private int intern(String name) {
+            Integer id = nodeIds.get(name);
+            if (id == null) {
+                id = nodeNames.size();
+                nodeIds.put(name, id);
+                nodeNames.add(name);
+            }
+            return id;
+        }
+
+        public CompiledRecipeGraph build() {
+            int nodeCount = nodeNames.size();
+            int[] offsets = new int[nodeCount + 1];
+            int[] inDegree = new int[nodeCount];
+
+            for (int i = 0; i < edgeCount; i++) {
+                offsets[edgeSources[i] + 1]++;
+                inDegree[edgeRecipes[i]]++;
+            }
+            for (int n = 0; n < nodeCount; n++) {
+                offsets[n + 1] += offsets[n];
+            }
+
+            // Stable counting sort keeps each node's dependents in insertion order
+            int[] cursor = Arrays.copyOf(offsets, nodeCount);
+            int[] targets = new int[edgeCount];
+            for (int i = 0; i < edgeCount; i++) {
+                targets[cursor[edgeSources[i]]++] = edgeRecipes[i];
+            }
+
+            int recipes = 0;
+            for (int degree : inDegree) {
+                if (degree > 0) {
+                    recipes++;
+                }
+            }
+
+            // Slots grouped by recipe node (stable, so ingredient order is kept)
+            int slotCount = slotNames.size();
+            int[] slotOffsets = new int[nodeCount + 1];
+            for (int i = 0; i < slotCount; i++) {
+                slotOffsets[slotRecipes[i] + 1]++;
+            }
+            int maxSlots = 0;
+            for (int n = 0; n < nodeCount; n++) {
+                maxSlots = Math.max(maxSlots, slotOffsets[n + 1]);
+                slotOffsets[n + 1] += slotOffsets[n];
+            }
+            int[] slotCursor = Arrays.copyOf(slotOffsets, nodeCount);
+            int[] slotOrder = new int[slotCount];
+            for (int i = 0; i < slotCount; i++) {
+                slotOrder[slotCursor[slotRecipes[i]]++] = i;
+            }
+            String[] sortedNames = new String[slotCount];
+            int[] sortedRecipes = new int[slotCount];
+            int[] sortedResolved = new int[slotCount];
+            for (int s = 0; s < slotCount; s++) {
+                int original = slotOrder[s];
+                sortedNames[s] = slotNames.get(original);
+                sortedRecipes[s] = slotRecipes[original];
+                sortedResolved[s] = slotResolved[original];
+            }
+
+            // Inverted index: raw and resolved names both point at the slot
+            int[] keyOffsets = new int[nodeCount + 1];
+            for (int s = 0; s < slotCount; s++) {
+                int raw = nodeIds.get(sortedNames[s]);
+                keyOffsets[raw + 1]++;
+                if (sortedResolved[s] != raw) {
+                    keyOffsets[sortedResolved[s] + 1]++;
+                }
+            }
+            for (int n = 0; n < nodeCount; n++) {
+                keyOffsets[n + 1] += keyOffsets[n];
+            }
+            int[] keyCursor = Arrays.copyOf(keyOffsets, nodeCount);
+            int[] keySlots = new int[keyOffsets[nodeCount]];
+            for (int s = 0; s < slotCount; s++) {
+                int raw = nodeIds.get(sortedNames[s]);
+                keySlots[keyCursor[raw]++] = s;
+                if (sortedResolved[s] != raw) {
+                    keySlots[keyCursor[sortedResolved[s]]++] = s;
+                }
+            }
+
+            int[] ordinals = new int[nodeCount];
+            Arrays.fill(ordinals, -1);
+            for (Map.Entry<Integer, Integer> entry : recipeOrdinals.entrySet()) {
+                ordinals[entry.getKey()] = entry.getValue();
+            }
+
+            return new CompiledRecipeGraph(new HashMap<>(nodeIds), nodeNames.toArray(new String[0]),
+                    offsets, targets, inDegree, recipes, slotOffsets, sortedNames, sortedRecipes,
+                    keyOffsets, keySlots, ordinals, maxSlots);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.smartfridge.graph;
+
+import java.util.*;
+
+/**
+ * Materialized set of cookable recipes over a {@link CompiledRecipeGraph},
+ * maintained incrementally as fridge supplies are added and removed.
+ *
+ * Each node keeps a counter of ingredient edges whose source is not yet
+ * available. Adding a supply propagates forward through the graph; removing
+ * one over-deletes every dependent derived through it and then re-derives the
+ * ones that still have support, so recipe cycles cannot keep themselves alive.
+ * The reported set matches what Kahn's algorithm returns for the same supplies.
+ * Supply changes are also forwarded to an {@link AlmostCookableIndex}.
+ */
+public final class CookabilityTracker {
+
+    private final CompiledRecipeGraph graph;
+    private final Map<String, int[]> suppliedItems = new HashMap<>();
+    private final int[] supplyRefs;
+    private final int[] missing;
+    private final BitSet available;
+    // Recipes that are derived (not supplied), in derivation (topological) order
+    private final LinkedHashSet<Integer> cookable = new LinkedHashSet<>();
+    private final AlmostCookableIndex almostCookable;
+
+    public CookabilityTracker(CompiledRecipeGraph graph) {
+        this.graph = graph;
+        int nodeCount = graph.nodeCount();
+        this.supplyRefs = new int[nodeCount];
+        this.missing = new int[nodeCount];
+        this.available = new BitSet(nodeCount);
+        this.almostCookable = new AlmostCookableIndex(graph);
+        for (int node = 0; node < nodeCount; node++) {
+            missing[node] = graph.inDegree(node);
+        }
+    }
+
+    /**
+     * Add a fridge item. The item satisfies both its own name and its resolved
+     * canonical name. Adding an item that is already present is a no-op.
+     */
+    public synchronized void addSupply(String item, String resolvedItem) {
+        if (suppliedItems.containsKey(item)) {
+            return;
+        }
+        int[] nodes = nodesFor(item, resolvedItem);
+        suppliedItems.put(item, nodes);
+
+        for (int node : nodes) {
+            if (supplyRefs[node]++ == 0) {
+                almostCookable.nodeSupplied(node);
+                // A supplied recipe is an input, not a cookable result
+                cookable.remove(node);
+                if (!available.get(node)) {
+                    available.set(node);
+                    propagate(node);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove a fridge item. Removing an item that is not present is a no-op.
+     */
+    public synchronized void removeSupply(String item) {
+        int[] nodes = suppliedItems.remove(item);
+        if (nodes == null) {
+            return;
+        }
+        for (int node : nodes) {
+            if (--supplyRefs[node] == 0) {
+                almostCookable.nodeUnsupplied(node);
+                retract(node);
+            }
+        }
+    }
+
+    /**
+     * Get the names of the fridge items currently tracked.
+     */
+    public synchronized Set<String> getSupplies() {
+        return new HashSet<>(suppliedItems.keySet());
+    }
+
+    /**
+     * Whether a recipe node is currently cookable.
+     */
+    public synchronized boolean isCookable(int node) {
+        return cookable.contains(node);
+    }
+
+    /**
+     * Get the cookable recipes in derivation order. O(result).
+     */
+    public synchronized List<String> getCookableRecipes() {
+        List<String> result = new ArrayList<>(cookable.size());
+        for (int node : cookable) {
+            result.add(graph.nodeName(node));
+        }
+        return result;
+    }
+
+    /**
+     * Find recipes that are not cookable but miss at most maxMissing
+     * ingredients from the fridge, with the missing ingredient names.
+     * Returns an empty map while the fridge is empty.
+     */
+    public synchronized Map<String, List<String>> findAlmostCookable(int maxMissing) {
+        if (suppliedItems.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return almostCookable.find(maxMissing, cookable::contains);
+    }
+
+    private int[] nodesFor(String item, String resolvedItem) {
+        int itemNode = graph.nodeId(item);
+        int resolvedNode = resolvedItem != null ? graph.nodeId(resolvedItem) : -1;
+
+        if (itemNode >= 0 && resolvedNode >= 0 && itemNode != resolvedNode) {
+            return new int[] { itemNode, resolvedNode };
+        }
+        if (itemNode >= 0) {
+            return new int[] { itemNode };
+        }
+        if (resolvedNode >= 0) {
+            return new int[] { resolvedNode };
+        }
+        return new int[0];
+    }
+
+    /**
+     * Forward propagation from a node that just became available.
+     */
+    private void propagate(int source) {
+        Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(source);
+
+        while (!stack.isEmpty()) {
+            int node = stack.pop();
+            for (int e = graph.edgeStart(node), end = graph.edgeEnd(node); e < end; e++) {
+                int recipe = graph.edgeTarget(e);
+                if (--missing[recipe] == 0 && !available.get(recipe)) {
+                    available.set(recipe);
+                    if (supplyRefs[recipe] == 0) {
+                        cookable.add(recipe);
+                    }
+                    stack.push(recipe);
+                }
+            }
+        }
+    }
+
+    /**
+     * Retraction of a node that lost its last supply (delete and re-derive).
+     */
+    private void retract(int source) {
+        if (!available.get(source)) {
+            return;
+        }
+
+        // Phase 1: over-delete everything that was derived through this node
+        List<Integer> deleted = new ArrayList<>();
+        Deque<Integer> stack = new ArrayDeque<>();
+        available.clear(source);
+        cookable.remove(source);
+        deleted.add(source);
+        stack.push(source);
+
+        while (!stack.isEmpty()) {
+            int node = stack.pop();
+            for (int e = graph.edgeStart(node), end = graph.edgeEnd(node); e < end; e++) {
+                int recipe = graph.edgeTarget(e);
+                missing[recipe]++;
+                if (available.get(recipe) && supplyRefs[recipe] == 0) {
+                    available.clear(recipe);
+                    cookable.remove(recipe);
+                    deleted.add(recipe);
+                    stack.push(recipe);
+                }
+            }
+        }
+
+        // Phase 2: re-derive deleted recipes whose ingredients are all still available
+        for (int node : deleted) {
+            if (graph.isRecipe(node) && missing[node] == 0 && !available.get(node)) {
+                available.set(node);
+                cookable.add(node);
+                propagate(node);
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.smartfridge.health;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cached health status of one external dependency.
+ *
+ * The status is set by background probes and by real calls: a run of
+ * consecutive call failures marks the dependency DOWN right away, like an
+ * opening circuit breaker, and a successful probe or call marks it UP again.
+ * With probes, a status not refreshed within the TTL is treated as unknown.
+ * Without them, calls are allowed until they fail, and once DOWN a half-open
+ * trial is allowed every TTL, the next call's outcome deciding the status.
+ * {@link #isUp()} is a volatile read, cheap enough for every request.
+ */
+public class DependencyHealth {
+
+    public enum Status {
+        UNKNOWN, UP, DOWN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long ttlMs;
+    private final boolean probed;
+
+    private volatile Status status = Status.UNKNOWN;
+    private volatile long checkedAt;
+    private volatile long changedAt;
+    private volatile String lastError;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final List<Runnable> recoveryListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param name             dependency name used in stats
+     * @param failureThreshold consecutive call failures that mark it DOWN
+     * @param ttlMs            how long a probe result stays valid, or
+     *                         without probes how long calls stay blocked
+     * @param probed           whether background probes maintain the status
+     */
+    public DependencyHealth(String name, int failureThreshold, long ttlMs, boolean probed) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.ttlMs = ttlMs;
+        this.probed = probed;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * With probes, true if the last probe or call succeeded within the TTL
+     * and no failures were observed since. Without probes, true unless the
+     * dependency is DOWN and its next trial is not due yet.
+     */
+    public boolean isUp() {
+        if (!probed) {
+            return !isCircuitOpen();
+        }
+        return status == Status.UP && System.currentTimeMillis() - checkedAt <= ttlMs;
+    }
+
+    /**
+     * True while calls should be rejected without trying: DOWN, and without
+     * probes only until a half-open trial is due.
+     */
+    public boolean isCircuitOpen() {
+        return status == Status.DOWN && (probed || System.currentTimeMillis() - checkedAt < ttlMs);
+    }
+
+    /**
+     * Record a successful probe.
+     */
+    public void probeSucceeded() {
+        markUp();
+    }
+
+    /**
+     * Record a failed probe; the dependency is DOWN until a probe or call
+     * succeeds.
+     */
+    public void probeFailed(String error) {
+        checkedAt = System.currentTimeMillis();
+        lastError = error;
+        transition(Status.DOWN);
+    }
+
+    /**
+     * Record a successful call made by the application; like a successful
+     * probe it closes the circuit.
+     */
+    public void recordSuccess() {
+        if (status == Status.UP && consecutiveFailures.get() == 0) {
+            checkedAt = System.currentTimeMillis();
+            return;
+        }
+        markUp();
+    }
+
+    /**
+     * Record a failed call made by the application. A failed half-open
+     * trial keeps the dependency DOWN for another TTL.
+     */
+    public void recordFailure(String error) {
+        lastError = error;
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold || status == Status.DOWN) {
+            checkedAt = System.currentTimeMillis();
+            transition(Status.DOWN);
+        }
+    }
+
+    /**
+     * Run the listener each time the dependency comes back UP after being
+     * DOWN or unknown. Called on the probe thread, or on the thread whose
+     * call succeeded.
+     */
+    public void onRecovery(Runnable listener) {
+        recoveryListeners.add(listener);
+    }
+
+    private void markUp() {
+        consecutiveFailures.set(0);
+        checkedAt = System.currentTimeMillis();
+        lastError = null;
+        if (transition(Status.UP)) {
+            for (Runnable listener : recoveryListeners) {
+                try {
+                    listener.run();
+                } catch (Exception e) {
+                    System.err.println("[Health] Recovery listener for " + name + " failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private synchronized boolean transition(Status next) {
+        if (status == next) {
+            return false;
+        }
+        System.out.println("[Health] " + name + ": " + status + " -> " + next
+                + (next == Status.DOWN && lastError != null ? " (" + lastError + ")" : ""));
+        status = next;
+        changedAt = System.currentTimeMillis();
+        return true;
+    }
+
+    /**
+     * Snapshot for the health endpoint.
+     */
+    public Map<String, Object> getStats() {
+        long now = System.currentTimeMillis();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("status", isUp() || status != Status.UP ? status.name() : "STALE");
+        stats.put("checkedAgoMs", checkedAt > 0 ? now - checkedAt : null);
+        stats.put("changedAgoMs", changedAt > 0 ? now - changedAt : null);
+        stats.put("consecutiveFailures", consecutiveFailures.get());
+        stats.put("lastError", lastError);
+        return stats;
+    }
+}
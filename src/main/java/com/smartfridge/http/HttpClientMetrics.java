@@ -0,0 +1,147 @@
+package com.smartfridge.http;
+
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpException;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request counters and a latency histogram for one outbound destination.
+ * Latencies go into power-of-two millisecond buckets, so percentiles are
+ * reported as the bucket's upper bound.
+ *
+ * Installed as the first HttpClient exec interceptor rather than a
+ * RestTemplate interceptor, which would make RestTemplate buffer every
+ * request body into a byte array before sending it.
+ */
+public class HttpClientMetrics implements ExecChainHandler {
+
+    /**
+     * Notified of each call's outcome. 5xx responses and I/O errors are
+     * failures; any other response means the destination is reachable.
+     */
+    public interface Listener {
+        void onSuccess();
+
+        void onFailure(String error);
+    }
+
+    // Bucket i holds latencies up to 2^i ms; the last bucket is open-ended (> 65 s)
+    private static final int BUCKETS = 18;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder clientErrors = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+    private final LongAdder ioErrors = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+    private final AtomicLongArray latencyBuckets = new AtomicLongArray(BUCKETS);
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public ClassicHttpResponse execute(ClassicHttpRequest request, ExecChain.Scope scope, ExecChain chain)
+            throws IOException, HttpException {
+        long start = System.nanoTime();
+        try {
+            ClassicHttpResponse response = chain.proceed(request, scope);
+            int status = response.getCode();
+            if (status >= 500) {
+                serverErrors.increment();
+                notifyFailure("HTTP " + status);
+            } else {
+                if (status >= 400) {
+                    clientErrors.increment();
+                }
+                for (Listener listener : listeners) {
+                    listener.onSuccess();
+                }
+            }
+            return response;
+        } catch (IOException | HttpException e) {
+            ioErrors.increment();
+            notifyFailure(e.getClass().getSimpleName() + ": " + e.getMessage());
+            throw e;
+        } finally {
+            record((System.nanoTime() - start) / 1000);
+        }
+    }
+
+    private void notifyFailure(String error) {
+        for (Listener listener : listeners) {
+            listener.onFailure(error);
+        }
+    }
+
+    private void record(long micros) {
+        requests.increment();
+        totalMicros.add(micros);
+        maxMicros.accumulate(micros);
+        latencyBuckets.incrementAndGet(bucketOf(micros / 1000));
+    }
+
+    private static int bucketOf(long millis) {
+        if (millis <= 1) {
+            return 0;
+        }
+        int bucket = 64 - Long.numberOfLeadingZeros(millis - 1);
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    /**
+     * Upper bound in ms of the bucket holding the given percentile, or 0
+     * when nothing was recorded.
+     */
+    private long percentileMillis(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = latencyBuckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return 1L << i;
+            }
+        }
+        return 1L << (BUCKETS - 1);
+    }
+
+    /**
+     * Snapshot of counters and latency percentiles.
+     */
+    public Map<String, Object> getStats() {
+        long count = requests.sum();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", count);
+        stats.put("clientErrors", clientErrors.sum());
+        stats.put("serverErrors", serverErrors.sum());
+        stats.put("ioErrors", ioErrors.sum());
+        stats.put("avgMs", count > 0 ? Math.round(totalMicros.sum() / (double) count) / 1000.0 : 0.0);
+        stats.put("maxMs", maxMicros.get() / 1000.0);
+        stats.put("p50Ms", percentileMillis(0.50));
+        stats.put("p95Ms", percentileMillis(0.95));
+        stats.put("p99Ms", percentileMillis(0.99));
+        return stats;
+    }
+}
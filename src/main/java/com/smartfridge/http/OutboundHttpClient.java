@@ -0,0 +1,147 @@
+package com.smartfridge.http;
+
+import com.smartfridge.resilience.Deadline;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * RestTemplate for one outbound destination (OpenAI, Qdrant, AI service)
+ * backed by its own Apache HttpClient connection pool.
+ *
+ * Connections are kept alive and reused, validated after a short idle
+ * period and evicted once idle for longer, so a burst of requests pays the
+ * TCP/TLS handshake once per pooled connection instead of once per call.
+ * Responses compressed with gzip or deflate are decoded transparently.
+ * Inside a {@link Deadline}, the response timeout is capped at the time left.
+ */
+public class OutboundHttpClient implements AutoCloseable {
+
+    // Stale-check reused connections idle this long; close connections idle longer than the eviction period
+    private static final TimeValue VALIDATE_AFTER_INACTIVITY = TimeValue.ofSeconds(2);
+    private static final TimeValue IDLE_EVICTION = TimeValue.ofSeconds(30);
+    private static final TimeValue CONNECTION_TTL = TimeValue.ofMinutes(5);
+
+    private final String name;
+    private final int maxConnections;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final HttpClientMetrics metrics = new HttpClientMetrics();
+    private final RequestConfig requestConfig;
+    private final RestTemplate restTemplate;
+
+    /**
+     * @param name             destination name used in stats
+     * @param maxConnections   pool size (all requests go to one host)
+     * @param connectTimeoutMs TCP connect timeout, also the wait for a free pooled connection
+     * @param readTimeoutMs    socket read timeout while waiting for a response
+     */
+    public OutboundHttpClient(String name, int maxConnections, int connectTimeoutMs, int readTimeoutMs) {
+        this.name = name;
+        this.maxConnections = maxConnections;
+
+        ConnectionConfig connectionConfig = ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                .setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY)
+                .setTimeToLive(CONNECTION_TTL)
+                .build();
+
+        this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(connectionConfig)
+                .build();
+
+        this.requestConfig = RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                .build();
+
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(IDLE_EVICTION)
+                .addExecInterceptorFirst("metrics", metrics)
+                .build();
+
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        requestFactory.setHttpContextFactory((method, uri) -> deadlineContext());
+        // No RestTemplate interceptors: any would make it buffer request bodies
+        this.restTemplate = new RestTemplate(requestFactory);
+    }
+
+    /**
+     * Per-request config shortening the response timeout to the current
+     * deadline, or null to use the client defaults.
+     */
+    private HttpClientContext deadlineContext() {
+        Deadline deadline = Deadline.current();
+        if (deadline == null) {
+            return null;
+        }
+        long remainingMs = Math.max(1, deadline.remainingMs());
+        if (remainingMs >= requestConfig.getResponseTimeout().toMilliseconds()) {
+            return null;
+        }
+
+        HttpClientContext context = HttpClientContext.create();
+        context.setRequestConfig(RequestConfig.copy(requestConfig)
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(
+                        Math.min(remainingMs, requestConfig.getConnectionRequestTimeout().toMilliseconds())))
+                .setResponseTimeout(Timeout.ofMilliseconds(remainingMs))
+                .build());
+        return context;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public RestTemplate getRestTemplate() {
+        return restTemplate;
+    }
+
+    /**
+     * Observe the outcome of every call made through this client.
+     */
+    public void addListener(HttpClientMetrics.Listener listener) {
+        metrics.addListener(listener);
+    }
+
+    /**
+     * Request metrics plus current pool usage.
+     */
+    public Map<String, Object> getStats() {
+        PoolStats pool = connectionManager.getTotalStats();
+
+        Map<String, Object> poolStats = new LinkedHashMap<>();
+        poolStats.put("max", maxConnections);
+        poolStats.put("leased", pool.getLeased());
+        poolStats.put("available", pool.getAvailable());
+        poolStats.put("pending", pool.getPending());
+
+        Map<String, Object> stats = new LinkedHashMap<>(metrics.getStats());
+        stats.put("pool", poolStats);
+        return stats;
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+}
@@ -0,0 +1,173 @@
+package com.smartfridge.model;
+
+/**
+ * State of a background re-index job, persisted in the index_jobs table.
+ * The watermark is the last recipe (by name) whose vectors are committed;
+ * every recipe up to and including it has been indexed.
+ */
+public class IndexJob {
+
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+    public static final String CANCELLED = "CANCELLED";
+    public static final String INTERRUPTED = "INTERRUPTED";
+
+    // Modes: re-embed every recipe, or only recipes whose text or model changed
+    public static final String FULL = "FULL";
+    public static final String CHANGED = "CHANGED";
+
+    private String id;
+    private String status;
+    private String mode = FULL;
+    private String watermark;
+    private long total;
+    private long read;
+    private long indexed;
+    private long skipped;
+    private long unchanged;
+    private long deleted;
+    private long failed;
+    private String error;
+    private long startedAt;
+    private long updatedAt;
+    private Long finishedAt;
+
+    // Constructors
+    public IndexJob() {
+    }
+
+    public IndexJob(String id, String status, String watermark) {
+        this.id = id;
+        this.status = status;
+        this.watermark = watermark;
+    }
+
+    /**
+     * Whether the job can be resumed from its watermark.
+     */
+    public boolean isResumable() {
+        return FAILED.equals(status) || CANCELLED.equals(status) || INTERRUPTED.equals(status);
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public String getWatermark() {
+        return watermark;
+    }
+
+    public void setWatermark(String watermark) {
+        this.watermark = watermark;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public long getRead() {
+        return read;
+    }
+
+    public void setRead(long read) {
+        this.read = read;
+    }
+
+    public long getIndexed() {
+        return indexed;
+    }
+
+    public void setIndexed(long indexed) {
+        this.indexed = indexed;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public void setSkipped(long skipped) {
+        this.skipped = skipped;
+    }
+
+    public long getUnchanged() {
+        return unchanged;
+    }
+
+    public void setUnchanged(long unchanged) {
+        this.unchanged = unchanged;
+    }
+
+    public long getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(long deleted) {
+        this.deleted = deleted;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(long startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public Long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(Long finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
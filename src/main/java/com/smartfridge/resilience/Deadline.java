@@ -0,0 +1,71 @@
+package com.smartfridge.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Time budget for one request, carried on the calling thread.
+ *
+ * Code running inside {@link #within} sees the deadline through
+ * {@link #current()}: dependency guards reject calls once it has passed,
+ * and outbound HTTP clients cap their response timeout at the time left.
+ * Nested scopes never extend an enclosing deadline.
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long expiresAtNanos;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    /**
+     * Deadline of the current thread, or null if none is set.
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Run the action with a deadline timeoutMs from now, or the enclosing
+     * deadline if that is earlier.
+     */
+    public static <T> T within(long timeoutMs, Supplier<T> action) {
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs)).apply(action);
+    }
+
+    /**
+     * Run the action under this deadline, e.g. on a worker thread serving
+     * part of a request; an earlier deadline already set on the thread wins.
+     */
+    public <T> T apply(Supplier<T> action) {
+        Deadline enclosing = CURRENT.get();
+        if (enclosing != null && enclosing.expiresAtNanos - expiresAtNanos <= 0) {
+            return action.get();
+        }
+
+        CURRENT.set(this);
+        try {
+            return action.get();
+        } finally {
+            if (enclosing != null) {
+                CURRENT.set(enclosing);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * Milliseconds left, never negative.
+     */
+    public long remainingMs() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(expiresAtNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return expiresAtNanos - System.nanoTime() <= 0;
+    }
+}
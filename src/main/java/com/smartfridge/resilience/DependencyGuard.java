@@ -0,0 +1,100 @@
+package com.smartfridge.resilience;
+
+import com.smartfridge.health.DependencyHealth;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker and bulkhead in front of one external dependency.
+ *
+ * The circuit is the dependency's {@link DependencyHealth}: while it is DOWN
+ * calls are rejected without touching the network, and the background probe
+ * (or without probes, a call let through every TTL) acts as the half-open
+ * trial that closes it again. The bulkhead caps
+ * concurrent calls, so a slow dependency holds at most that many request
+ * threads; callers wait briefly for a slot (never past their deadline) and
+ * are rejected otherwise.
+ */
+public class DependencyGuard {
+
+    private final DependencyHealth health;
+    private final int maxConcurrent;
+    private final long maxWaitMs;
+    private final Semaphore permits;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder shortCircuited = new LongAdder();
+    private final LongAdder bulkheadRejected = new LongAdder();
+    private final LongAdder deadlineExceeded = new LongAdder();
+
+    /**
+     * @param health        circuit state of the dependency
+     * @param maxConcurrent calls allowed in flight at once
+     * @param maxWaitMs     longest wait for a free slot
+     */
+    public DependencyGuard(DependencyHealth health, int maxConcurrent, long maxWaitMs) {
+        this.health = health;
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaitMs = maxWaitMs;
+        this.permits = new Semaphore(maxConcurrent);
+    }
+
+    public String getName() {
+        return health.getName();
+    }
+
+    /**
+     * Run a call to the dependency, or throw DependencyUnavailableException
+     * without running it.
+     */
+    public <T> T call(Supplier<T> action) {
+        Deadline deadline = Deadline.current();
+        if (deadline != null && deadline.isExpired()) {
+            deadlineExceeded.increment();
+            throw new DependencyUnavailableException(getName(), "deadline exceeded");
+        }
+        if (health.isCircuitOpen()) {
+            shortCircuited.increment();
+            throw new DependencyUnavailableException(getName(), "circuit open");
+        }
+
+        long waitMs = deadline != null ? Math.min(maxWaitMs, deadline.remainingMs()) : maxWaitMs;
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(waitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DependencyUnavailableException(getName(), "interrupted");
+        }
+        if (!acquired) {
+            bulkheadRejected.increment();
+            throw new DependencyUnavailableException(getName(), maxConcurrent + " calls already in flight");
+        }
+
+        try {
+            calls.increment();
+            return action.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Bulkhead usage and rejection counters.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxConcurrent", maxConcurrent);
+        stats.put("active", maxConcurrent - permits.availablePermits());
+        stats.put("calls", calls.sum());
+        stats.put("shortCircuited", shortCircuited.sum());
+        stats.put("bulkheadRejected", bulkheadRejected.sum());
+        stats.put("deadlineExceeded", deadlineExceeded.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,27 @@
+package com.smartfridge.resilience;
+
+/**
+ * A call to an external dependency was not made or did not complete: its
+ * circuit is open, its bulkhead is full, the request deadline passed, or the
+ * dependency itself failed. Callers fall back to a local path.
+ */
+public class DependencyUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String dependency;
+
+    public DependencyUnavailableException(String dependency, String message) {
+        super(dependency + ": " + message);
+        this.dependency = dependency;
+    }
+
+    public DependencyUnavailableException(String dependency, String message, Throwable cause) {
+        super(dependency + ": " + message, cause);
+        this.dependency = dependency;
+    }
+
+    public String getDependency() {
+        return dependency;
+    }
+}
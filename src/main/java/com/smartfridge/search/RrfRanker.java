@@ -0,0 +1,310 @@
+package com.smartfridge.search;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Weighted reciprocal rank fusion of ranked candidate lists from any
+ * retriever (dense, keyword, cookability, ...), the local counterpart of
+ * Qdrant's prefetch + RRF query.
+ *
+ * Each ranking adds weight / (k + rank) to the score of every key it
+ * holds, rank 0 being its best; keys in the same tier of a ranking share a
+ * rank. Rankings are read one position at a time side by side, and fusion
+ * stops once what is left of them can change neither which keys make the
+ * top limit nor their order. The remaining tails are then only scanned to
+ * complete the scores of those keys, so the result is the same as fusing
+ * everything.
+ *
+ * Thread-safe.
+ */
+public class RrfRanker {
+
+    private static final Comparator<Fused> BEST_FIRST = (a, b) -> a.score != b.score
+            ? Double.compare(b.score, a.score)
+            : Integer.compare(a.order, b.order);
+
+    private final int k;
+
+    private final LongAdder fusions = new LongAdder();
+    private final LongAdder earlyStops = new LongAdder();
+    private final LongAdder candidates = new LongAdder();
+    private final LongAdder fusionNanos = new LongAdder();
+
+    /**
+     * @param k rank offset; larger values flatten the gap between top ranks
+     */
+    public RrfRanker(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("RRF k must be positive: " + k);
+        }
+        this.k = k;
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * Fuse the rankings into the best limit keys, best fused score first;
+     * equal scores keep the order in which the keys were first met.
+     */
+    public List<Fused> fuse(List<Ranking> rankings, int limit) {
+        if (rankings.size() > Long.SIZE) {
+            throw new IllegalArgumentException("At most " + Long.SIZE + " rankings can be fused");
+        }
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        long start = System.nanoTime();
+        int depth = 0;
+        for (Ranking ranking : rankings) {
+            depth = Math.max(depth, ranking.size());
+        }
+
+        Map<String, Fused> fused = new HashMap<>();
+        List<Fused> seen = new ArrayList<>();
+        double[] remaining = new double[rankings.size()];
+        List<Fused> top = null;
+        int position = 0;
+        int nextCheck = limit;
+        while (position < depth && top == null) {
+            for (int i = 0; i < rankings.size(); i++) {
+                Ranking ranking = rankings.get(i);
+                if (position < ranking.size()) {
+                    String key = ranking.keys.get(position);
+                    Fused entry = fused.get(key);
+                    if (entry == null) {
+                        entry = new Fused(key, seen.size());
+                        fused.put(key, entry);
+                        seen.add(entry);
+                    }
+                    entry.add(i, ranking.contribution(position, k));
+                }
+            }
+            position++;
+            // Checking sorts every candidate, so checks get twice as far apart each time
+            if (position == nextCheck && position < depth) {
+                nextCheck *= 2;
+                for (int i = 0; i < rankings.size(); i++) {
+                    remaining[i] = rankings.get(i).bound(position, k);
+                }
+                top = stableTop(seen, remaining, limit);
+            }
+        }
+
+        if (top != null) {
+            earlyStops.increment();
+            completeScores(rankings, position, top);
+        } else {
+            seen.sort(BEST_FIRST);
+            top = new ArrayList<>(seen.subList(0, Math.min(limit, seen.size())));
+        }
+
+        fusions.increment();
+        candidates.add(seen.size());
+        fusionNanos.add(System.nanoTime() - start);
+        return top;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long count = fusions.sum();
+        stats.put("k", k);
+        stats.put("fusions", count);
+        stats.put("earlyStops", earlyStops.sum());
+        stats.put("avgCandidates", count > 0 ? candidates.sum() / count : 0);
+        stats.put("avgFusionMs", count > 0 ? fusionNanos.sum() / 1e6 / count : 0.0);
+        return stats;
+    }
+
+    /**
+     * The top limit candidates if no key can still enter them or overtake
+     * one of them, given the most each ranking can still add; else null.
+     */
+    private static List<Fused> stableTop(List<Fused> seen, double[] remaining, int limit) {
+        if (seen.size() < limit) {
+            return null;
+        }
+        double unseen = 0;
+        for (double bound : remaining) {
+            unseen += bound;
+        }
+        List<Fused> sorted = new ArrayList<>(seen);
+        sorted.sort(BEST_FIRST);
+
+        // Keys not met yet come after all seen ones on ties
+        Fused last = sorted.get(limit - 1);
+        if (unseen > last.score) {
+            return null;
+        }
+        for (int i = 0; i + 1 < limit; i++) {
+            if (canOvertake(sorted.get(i + 1), sorted.get(i), remaining)) {
+                return null;
+            }
+        }
+        for (int i = limit; i < sorted.size(); i++) {
+            if (canOvertake(sorted.get(i), last, remaining)) {
+                return null;
+            }
+        }
+        return new ArrayList<>(sorted.subList(0, limit));
+    }
+
+    private static boolean canOvertake(Fused behind, Fused ahead, double[] remaining) {
+        double best = behind.upperBound(remaining);
+        return best > ahead.score || (best == ahead.score && behind.order < ahead.order);
+    }
+
+    /**
+     * Add what the unread tails of the rankings give the chosen keys.
+     */
+    private void completeScores(List<Ranking> rankings, int from, List<Fused> top) {
+        Map<String, Fused> chosen = new HashMap<>();
+        for (Fused entry : top) {
+            chosen.put(entry.key, entry);
+        }
+        for (int i = 0; i < rankings.size(); i++) {
+            Ranking ranking = rankings.get(i);
+            for (int position = from; position < ranking.size(); position++) {
+                Fused entry = chosen.get(ranking.keys.get(position));
+                if (entry != null) {
+                    entry.add(i, ranking.contribution(position, k));
+                }
+            }
+        }
+        top.sort(BEST_FIRST);
+    }
+
+    /**
+     * One retriever's candidates, best first, with the weight of its votes.
+     */
+    public static final class Ranking {
+        private final String source;
+        private final double weight;
+        private final List<String> keys;
+        private final int[] ranks;
+
+        private Ranking(String source, double weight, List<String> keys, int[] ranks) {
+            this.source = source;
+            this.weight = weight;
+            this.keys = keys;
+            this.ranks = ranks;
+        }
+
+        /**
+         * A strict ranking: the key at position i has rank i.
+         */
+        public static Ranking of(String source, float weight, List<String> keys) {
+            int[] ranks = new int[keys.size()];
+            for (int i = 0; i < ranks.length; i++) {
+                ranks[i] = i;
+            }
+            return new Ranking(source, weight, new ArrayList<>(keys), ranks);
+        }
+
+        /**
+         * A ranking of tiers, best first: every key of tier t has rank t.
+         */
+        public static Ranking ofTiers(String source, float weight, List<? extends Collection<String>> tiers) {
+            List<String> keys = new ArrayList<>();
+            for (Collection<String> tier : tiers) {
+                keys.addAll(tier);
+            }
+            int[] ranks = new int[keys.size()];
+            int position = 0;
+            for (int tier = 0; tier < tiers.size(); tier++) {
+                for (int i = 0; i < tiers.get(tier).size(); i++) {
+                    ranks[position++] = tier;
+                }
+            }
+            return new Ranking(source, weight, keys, ranks);
+        }
+
+        /**
+         * A ranking with given ranks, which must not decrease along keys.
+         */
+        public static Ranking ofRanks(String source, float weight, List<String> keys, int[] ranks) {
+            if (ranks.length != keys.size()) {
+                throw new IllegalArgumentException("Need one rank per key");
+            }
+            for (int i = 0; i < ranks.length; i++) {
+                if (ranks[i] < 0 || (i > 0 && ranks[i] < ranks[i - 1])) {
+                    throw new IllegalArgumentException("Ranks must be non-negative and best first");
+                }
+            }
+            return new Ranking(source, weight, new ArrayList<>(keys), ranks.clone());
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public int size() {
+            return keys.size();
+        }
+
+        public String getKey(int position) {
+            return keys.get(position);
+        }
+
+        public int getRank(int position) {
+            return ranks[position];
+        }
+
+        private double contribution(int position, int k) {
+            return weight / (k + ranks[position]);
+        }
+
+        /**
+         * Most that any key from the given position on can still get.
+         */
+        private double bound(int position, int k) {
+            return position < keys.size() ? contribution(position, k) : 0;
+        }
+    }
+
+    /**
+     * A fused key with its score.
+     */
+    public static final class Fused {
+        private final String key;
+        private final int order;
+        private double score;
+        private long sources; // bit i: ranking i has counted this key
+
+        private Fused(String key, int order) {
+            this.key = key;
+            this.order = order;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public float getScore() {
+            return (float) score;
+        }
+
+        /**
+         * A key listed twice by one ranking counts once, at its best rank.
+         */
+        private void add(int ranking, double contribution) {
+            long bit = 1L << ranking;
+            if ((sources & bit) == 0) {
+                sources |= bit;
+                score += contribution;
+            }
+        }
+
+        private double upperBound(double[] remaining) {
+            double bound = score;
+            for (int i = 0; i < remaining.length; i++) {
+                if ((sources & (1L << i)) == 0) {
+                    bound += remaining[i];
+                }
+            }
+            return bound;
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package com.smartfridge.service;
 
+import com.smartfridge.cache.LocalCache;
+import com.smartfridge.cache.SingleFlight;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
@@ -8,11 +12,16 @@ import org.springframework.http.*;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import jakarta.annotation.PostConstruct;
 import java.util.*;
 
 /**
  * Service for generating text embeddings using OpenAI API.
  * Used for semantic search of recipes.
+ *
+ * Query embeddings are read through a two-tier cache keyed by model and
+ * normalized text: an in-process LRU (L1) in front of Redis (L2). Concurrent
+ * misses for the same key share a single OpenAI call.
  */
 @Service
 public class EmbeddingService {
@@ -26,22 +35,120 @@ public class EmbeddingService {
     @Value("${openai.embedding-model:text-embedding-3-small}")
     private String embeddingModel;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    // Inputs per /embeddings request when embedding in bulk
+    @Value("${embedding.batch-size:100}")
+    private int batchSize;
+
+    @Value("${embedding.cache.local.max-size:1000}")
+    private int localCacheMaxSize;
+
+    @Value("${embedding.cache.local.ttl:600}")
+    private long localCacheTtlSeconds;
+
+    @Autowired
+    private VectorCacheService vectorCacheService;
+
+    @Autowired
+    private HealthService healthService;
+
+    @Autowired
+    @Qualifier("openAiRestTemplate")
+    private RestTemplate restTemplate;
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SingleFlight<String, float[]> inFlight = new SingleFlight<>(HealthService.OPENAI);
+    private LocalCache<String, float[]> localCache;
+
+    @PostConstruct
+    public void initialize() {
+        localCache = new LocalCache<>(localCacheMaxSize, localCacheTtlSeconds);
+    }
 
     /**
-     * Generate an embedding vector for the given text.
-     * Returns null if embedding generation fails.
+     * Generate an embedding vector for the given text, using the cache. The
+     * text is trimmed, whitespace-collapsed and lower-cased first, so
+     * variants of a query share one vector. Returns null if embedding
+     * generation fails (failures are not cached). Cache misses call OpenAI
+     * through its guard, which throws DependencyUnavailableException
+     * instead of calling a failing API.
      */
     public float[] generateEmbedding(String text) {
         if (text == null || text.trim().isEmpty()) {
             return null;
         }
 
+        String normalized = normalize(text);
+        String cacheKey = embeddingModel + "\n" + normalized;
+
+        float[] cached = localCache.get(cacheKey);
+        if (cached != null) {
+            return cached.clone();
+        }
+
+        float[] embedding = inFlight.execute(cacheKey, () -> {
+            float[] fromRedis = vectorCacheService.getCachedEmbedding(embeddingModel, normalized);
+            if (fromRedis != null) {
+                localCache.put(cacheKey, fromRedis);
+                return fromRedis;
+            }
+
+            // Embed the normalized text, so the cached vector is the one its key describes
+            float[] generated = healthService.guard(HealthService.OPENAI)
+                    .call(() -> generateEmbeddingUncached(normalized));
+            if (generated != null) {
+                localCache.put(cacheKey, generated);
+                vectorCacheService.cacheEmbedding(embeddingModel, normalized, generated);
+            }
+            return generated;
+        });
+        return embedding != null ? embedding.clone() : null;
+    }
+
+    /**
+     * Generate an embedding vector with a direct OpenAI call, bypassing the cache.
+     * Used for recipe documents, which are embedded once per indexing run.
+     * Returns null if embedding generation fails.
+     */
+    public float[] generateEmbeddingUncached(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return null;
+        }
+        return requestEmbeddings(Collections.singletonList(text)).get(0);
+    }
+
+    /**
+     * Generate embeddings for multiple texts, sending up to
+     * embedding.batch-size inputs per /embeddings call. Bypasses the cache.
+     * Returns a map of text -> embedding; texts whose batch failed are absent.
+     */
+    public Map<String, float[]> generateEmbeddings(List<String> texts) {
+        Map<String, float[]> embeddings = new HashMap<>();
+        List<String> inputs = new ArrayList<>(new LinkedHashSet<>(texts));
+        inputs.removeIf(text -> text == null || text.trim().isEmpty());
+
+        for (int from = 0; from < inputs.size(); from += batchSize) {
+            List<String> batch = inputs.subList(from, Math.min(from + batchSize, inputs.size()));
+            List<float[]> vectors = requestEmbeddings(batch);
+            for (int i = 0; i < batch.size(); i++) {
+                if (vectors.get(i) != null) {
+                    embeddings.put(batch.get(i), vectors.get(i));
+                }
+            }
+        }
+
+        return embeddings;
+    }
+
+    /**
+     * One /embeddings call for a list of inputs. The result is aligned with
+     * the inputs (using each item's "index"); entries are null on failure.
+     */
+    private List<float[]> requestEmbeddings(List<String> inputs) {
+        List<float[]> result = new ArrayList<>(Collections.nCopies(inputs.size(), (float[]) null));
+
         try {
             Map<String, Object> requestBody = new HashMap<>();
             requestBody.put("model", embeddingModel);
-            requestBody.put("input", text);
+            requestBody.put("input", inputs.size() == 1 ? inputs.get(0) : inputs);
 
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_JSON);
@@ -55,39 +162,43 @@ public class EmbeddingService {
                     String.class);
 
             if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                JsonNode root = objectMapper.readTree(response.getBody());
-                JsonNode embeddingNode = root.path("data").get(0).path("embedding");
-
-                if (embeddingNode.isArray()) {
-                    float[] embedding = new float[embeddingNode.size()];
-                    for (int i = 0; i < embeddingNode.size(); i++) {
-                        embedding[i] = (float) embeddingNode.get(i).asDouble();
+                JsonNode data = objectMapper.readTree(response.getBody()).path("data");
+                for (int position = 0; position < data.size(); position++) {
+                    JsonNode item = data.get(position);
+                    int index = item.path("index").asInt(position);
+                    JsonNode embeddingNode = item.path("embedding");
+
+                    if (index >= 0 && index < inputs.size() && embeddingNode.isArray()) {
+                        float[] embedding = new float[embeddingNode.size()];
+                        for (int i = 0; i < embeddingNode.size(); i++) {
+                            embedding[i] = (float) embeddingNode.get(i).asDouble();
+                        }
+                        result.set(index, embedding);
                     }
-                    return embedding;
                 }
             }
         } catch (Exception e) {
-            System.err.println("Error generating embedding: " + e.getMessage());
+            System.err.println("Error generating embeddings for " + inputs.size() + " inputs: " + e.getMessage());
         }
 
-        return null;
+        return result;
     }
 
     /**
-     * Generate embeddings for multiple texts.
-     * Returns a map of text -> embedding.
+     * Get hit/miss statistics for the in-process embedding cache.
      */
-    public Map<String, float[]> generateEmbeddings(List<String> texts) {
-        Map<String, float[]> embeddings = new HashMap<>();
-
-        for (String text : texts) {
-            float[] embedding = generateEmbedding(text);
-            if (embedding != null) {
-                embeddings.put(text, embedding);
-            }
-        }
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(localCache.getStats());
+        stats.put("inFlight", inFlight.inFlightCount());
+        stats.put("redisAvailable", vectorCacheService.isAvailable());
+        return stats;
+    }
 
-        return embeddings;
+    /**
+     * Normalize query text for cache keys: trim, collapse whitespace, lowercase.
+     */
+    private String normalize(String text) {
+        return text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
     }
 
     /**
@@ -135,21 +246,9 @@ public class EmbeddingService {
 
     /**
      * Check if OpenAI API is available for embedding generation.
+     * Reads the cached status maintained by HealthService.
      */
     public boolean isAvailable() {
-        try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setBearerAuth(openaiApiKey);
-            HttpEntity<Void> entity = new HttpEntity<>(headers);
-
-            ResponseEntity<String> response = restTemplate.exchange(
-                    openaiBaseUrl + "/models",
-                    HttpMethod.GET,
-                    entity,
-                    String.class);
-            return response.getStatusCode().is2xxSuccessful();
-        } catch (Exception e) {
-            return false;
-        }
+        return healthService.isUp(HealthService.OPENAI);
     }
 }
@@ -0,0 +1,272 @@
+package com.smartfridge.service;
+
+import com.smartfridge.health.DependencyHealth;
+import com.smartfridge.http.HttpClientMetrics;
+import com.smartfridge.http.OutboundHttpClient;
+import com.smartfridge.resilience.DependencyGuard;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Health state of the external dependencies (OpenAI, Qdrant, Redis and the
+ * Python AI service).
+ *
+ * Each dependency is probed in the background on its own schedule and the
+ * result is cached, so callers check availability with a volatile read
+ * instead of a network round-trip. Failures observed on real outbound HTTP
+ * calls mark a dependency DOWN before the next probe, and successful ones
+ * mark it UP. With health.probe.enabled=false the real calls alone drive
+ * the status (see {@link DependencyHealth}).
+ *
+ * Request-path calls to the HTTP dependencies go through a
+ * {@link DependencyGuard} (circuit breaker + bulkhead) obtained from
+ * {@link #guard(String)}.
+ */
+@Service
+public class HealthService {
+
+    public static final String OPENAI = "openai";
+    public static final String QDRANT = "qdrant";
+    public static final String REDIS = "redis";
+    public static final String AI_SERVICE = "ai-service";
+
+    @Value("${health.probe.enabled:true}")
+    private boolean probesEnabled;
+
+    @Value("${health.probe-interval-ms:10000}")
+    private long probeIntervalMs;
+
+    // A status older than this counts as unknown (e.g. a probe is stuck)
+    @Value("${health.ttl-ms:30000}")
+    private long ttlMs;
+
+    // Consecutive failed calls that mark a dependency DOWN between probes
+    @Value("${health.failure-threshold:3}")
+    private int failureThreshold;
+
+    // How long startup waits for the first round of probes
+    @Value("${health.startup-wait-ms:3000}")
+    private long startupWaitMs;
+
+    // Bulkheads: concurrent request-path calls per dependency, and how long
+    // a caller waits for a free slot before falling back
+    @Value("${resilience.openai.max-concurrent:8}")
+    private int openAiMaxConcurrent;
+
+    @Value("${resilience.qdrant.max-concurrent:16}")
+    private int qdrantMaxConcurrent;
+
+    @Value("${resilience.ai-service.max-concurrent:4}")
+    private int aiServiceMaxConcurrent;
+
+    @Value("${resilience.bulkhead-wait-ms:50}")
+    private long bulkheadWaitMs;
+
+    @Value("${openai.api-key}")
+    private String openaiApiKey;
+
+    @Value("${openai.base-url:https://api.openai.com/v1}")
+    private String openaiBaseUrl;
+
+    @Value("${qdrant.host:localhost}")
+    private String qdrantHost;
+
+    @Value("${qdrant.port:6333}")
+    private int qdrantPort;
+
+    @Value("${ai.service.url:http://localhost:5001}")
+    private String aiServiceUrl;
+
+    @Autowired
+    @Qualifier("openAiRestTemplate")
+    private RestTemplate openAiRestTemplate;
+
+    @Autowired
+    @Qualifier("qdrantRestTemplate")
+    private RestTemplate qdrantRestTemplate;
+
+    @Autowired
+    @Qualifier("aiServiceRestTemplate")
+    private RestTemplate aiServiceRestTemplate;
+
+    @Autowired
+    private List<OutboundHttpClient> outboundHttpClients;
+
+    @Autowired
+    private ObjectProvider<RedisConnectionFactory> redisConnectionFactory;
+
+    private final Map<String, DependencyHealth> dependencies = new LinkedHashMap<>();
+    private final Map<String, Runnable> probes = new LinkedHashMap<>();
+    private final Map<String, DependencyGuard> guards = new LinkedHashMap<>();
+    private ScheduledExecutorService prober;
+
+    @PostConstruct
+    public void initialize() {
+        register(OPENAI, this::probeOpenAi);
+        register(QDRANT, this::probeQdrant);
+        register(REDIS, this::probeRedis);
+        register(AI_SERVICE, this::probeAiService);
+
+        guards.put(OPENAI, new DependencyGuard(dependencies.get(OPENAI), openAiMaxConcurrent, bulkheadWaitMs));
+        guards.put(QDRANT, new DependencyGuard(dependencies.get(QDRANT), qdrantMaxConcurrent, bulkheadWaitMs));
+        guards.put(AI_SERVICE,
+                new DependencyGuard(dependencies.get(AI_SERVICE), aiServiceMaxConcurrent, bulkheadWaitMs));
+
+        for (OutboundHttpClient client : outboundHttpClients) {
+            DependencyHealth health = dependencies.get(client.getName());
+            if (health != null) {
+                client.addListener(new HttpClientMetrics.Listener() {
+                    @Override
+                    public void onSuccess() {
+                        health.recordSuccess();
+                    }
+
+                    @Override
+                    public void onFailure(String error) {
+                        health.recordFailure(error);
+                    }
+                });
+            }
+        }
+
+        if (!probesEnabled) {
+            return;
+        }
+
+        // One thread per dependency so a slow probe does not delay the others
+        prober = Executors.newScheduledThreadPool(probes.size(), runnable -> {
+            Thread thread = new Thread(runnable, "health-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        List<Future<?>> firstRound = new ArrayList<>();
+        for (Map.Entry<String, Runnable> entry : probes.entrySet()) {
+            firstRound.add(prober.submit(() -> probe(entry.getKey())));
+            prober.scheduleWithFixedDelay(() -> probe(entry.getKey()),
+                    probeIntervalMs, probeIntervalMs, TimeUnit.MILLISECONDS);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(startupWaitMs);
+        for (Future<?> future : firstRound) {
+            try {
+                future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                break;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                // probe() handles its own failures
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (prober != null) {
+            prober.shutdownNow();
+        }
+    }
+
+    /**
+     * Cached health of a dependency (one of the name constants).
+     */
+    public DependencyHealth get(String dependency) {
+        DependencyHealth health = dependencies.get(dependency);
+        if (health == null) {
+            throw new IllegalArgumentException("Unknown dependency: " + dependency);
+        }
+        return health;
+    }
+
+    /**
+     * Cheap availability check; never does I/O.
+     */
+    public boolean isUp(String dependency) {
+        return get(dependency).isUp();
+    }
+
+    /**
+     * Circuit breaker and bulkhead for request-path calls to an HTTP
+     * dependency (OPENAI, QDRANT or AI_SERVICE).
+     */
+    public DependencyGuard guard(String dependency) {
+        DependencyGuard guard = guards.get(dependency);
+        if (guard == null) {
+            throw new IllegalArgumentException("No guard for dependency: " + dependency);
+        }
+        return guard;
+    }
+
+    /**
+     * Status of every dependency, with bulkhead counters where guarded.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (DependencyHealth health : dependencies.values()) {
+            Map<String, Object> entry = new LinkedHashMap<>(health.getStats());
+            DependencyGuard guard = guards.get(health.getName());
+            if (guard != null) {
+                entry.put("bulkhead", guard.getStats());
+            }
+            stats.put(health.getName(), entry);
+        }
+        return stats;
+    }
+
+    private void register(String name, Runnable probe) {
+        dependencies.put(name, new DependencyHealth(name, failureThreshold, ttlMs, probesEnabled));
+        probes.put(name, probe);
+    }
+
+    private void probe(String name) {
+        DependencyHealth health = dependencies.get(name);
+        try {
+            probes.get(name).run();
+            health.probeSucceeded();
+        } catch (Exception e) {
+            health.probeFailed(e.getMessage());
+        }
+    }
+
+    private void probeOpenAi() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(openaiApiKey);
+        // Non-2xx responses (e.g. 401 for a bad key) throw
+        openAiRestTemplate.exchange(openaiBaseUrl + "/models", HttpMethod.GET, new HttpEntity<>(headers),
+                String.class);
+    }
+
+    private void probeQdrant() {
+        qdrantRestTemplate.getForEntity("http://" + qdrantHost + ":" + qdrantPort + "/", String.class);
+    }
+
+    private void probeAiService() {
+        aiServiceRestTemplate.getForEntity(aiServiceUrl + "/health", String.class);
+    }
+
+    private void probeRedis() {
+        RedisConnectionFactory factory = redisConnectionFactory.getIfAvailable();
+        if (factory == null) {
+            throw new IllegalStateException("Redis is not configured");
+        }
+        try (RedisConnection connection = factory.getConnection()) {
+            connection.ping();
+        }
+    }
+}
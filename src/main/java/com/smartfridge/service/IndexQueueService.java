@@ -0,0 +1,238 @@
+package com.smartfridge.service;
+
+import com.smartfridge.dao.IndexQueueDao;
+import com.smartfridge.dao.RecipeDao;
+import com.smartfridge.model.RecipeDetails;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind vector indexing for recipe adds and deletes.
+ *
+ * Recipe writes only record the change in the index_queue table, which
+ * survives restarts; a background worker drains it in batches (one embedding
+ * call and one upsert per batch, one delete request for removals). Repeated
+ * edits of a recipe coalesce into one queued operation. Failed entries are
+ * retried with exponential backoff. While vector search is unavailable the
+ * queue simply accumulates.
+ */
+@Service
+@DependsOn("databaseInitializer")
+public class IndexQueueService {
+
+    @Value("${vector.index.queue.batch-size:50}")
+    private int batchSize;
+
+    // Fallback polling for retries and entries left by a previous run
+    @Value("${vector.index.queue.poll-interval-ms:2000}")
+    private long pollIntervalMs;
+
+    @Value("${vector.index.queue.retry-base-ms:1000}")
+    private long retryBaseMs;
+
+    @Value("${vector.index.queue.retry-max-ms:300000}")
+    private long retryMaxMs;
+
+    @Autowired
+    private IndexQueueDao indexQueueDao;
+
+    @Autowired
+    private RecipeDao recipeDao;
+
+    @Autowired
+    private VectorSearchService vectorSearchService;
+
+    private ScheduledExecutorService worker;
+    private final AtomicBoolean wakeScheduled = new AtomicBoolean();
+
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failedAttempts = new AtomicLong();
+
+    @PostConstruct
+    public void initialize() {
+        worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "index-queue");
+            thread.setDaemon(true);
+            return thread;
+        });
+        worker.scheduleWithFixedDelay(this::drainSafely, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdown();
+        try {
+            worker.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queue (re-)indexing of a recipe after it was added or edited.
+     */
+    public void enqueueUpsert(String recipeName) {
+        indexQueueDao.enqueue(recipeName, IndexQueueDao.UPSERT);
+        wake();
+    }
+
+    /**
+     * Queue removal of a deleted recipe from the vector index.
+     */
+    public void enqueueDelete(String recipeName) {
+        indexQueueDao.enqueue(recipeName, IndexQueueDao.DELETE);
+        wake();
+    }
+
+    /**
+     * Queue depth and worker counters.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(indexQueueDao.getStats());
+        stats.put("processed", processed.get());
+        stats.put("failedAttempts", failedAttempts.get());
+        stats.put("vectorSearchAvailable", vectorSearchService.isAvailable());
+        return stats;
+    }
+
+    /**
+     * Run a drain now instead of waiting for the next poll; concurrent
+     * wake-ups collapse into one pending run.
+     */
+    private void wake() {
+        if (wakeScheduled.compareAndSet(false, true)) {
+            try {
+                worker.execute(() -> {
+                    wakeScheduled.set(false);
+                    drainSafely();
+                });
+            } catch (RejectedExecutionException e) {
+                wakeScheduled.set(false);
+            }
+        }
+    }
+
+    private void drainSafely() {
+        try {
+            drain();
+        } catch (Exception e) {
+            System.err.println("[IndexQueue] Drain failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Process due entries batch by batch until none are left. Entries that
+     * fail are rescheduled into the future, so the loop terminates.
+     */
+    private void drain() {
+        if (!vectorSearchService.isAvailable()) {
+            return;
+        }
+
+        List<IndexQueueDao.Item> due;
+        while (!(due = indexQueueDao.findDue(System.currentTimeMillis(), batchSize)).isEmpty()) {
+            processBatch(due);
+            if (due.size() < batchSize) {
+                break;
+            }
+        }
+    }
+
+    private void processBatch(List<IndexQueueDao.Item> items) {
+        List<IndexQueueDao.Item> upserts = new ArrayList<>();
+        List<RecipeDetails> details = new ArrayList<>();
+        List<IndexQueueDao.Item> deletes = new ArrayList<>();
+
+        for (IndexQueueDao.Item item : items) {
+            RecipeDetails recipe = IndexQueueDao.UPSERT.equals(item.getOperation())
+                    ? recipeDao.getRecipeDetails(item.getRecipeName())
+                    : null;
+            if (recipe != null) {
+                upserts.add(item);
+                details.add(recipe);
+            } else {
+                // Deleted, or gone (or left without ingredients) before it could be indexed
+                deletes.add(item);
+            }
+        }
+
+        List<IndexQueueDao.Item> done = new ArrayList<>();
+
+        if (!deletes.isEmpty()) {
+            try {
+                List<String> names = new ArrayList<>();
+                for (IndexQueueDao.Item item : deletes) {
+                    names.add(item.getRecipeName());
+                }
+                vectorSearchService.removeRecipes(names);
+                done.addAll(deletes);
+            } catch (Exception e) {
+                retry(deletes, e.getMessage());
+            }
+        }
+
+        if (!details.isEmpty()) {
+            Map<String, float[]> embeddings = Collections.emptyMap();
+            try {
+                embeddings = vectorSearchService.embedRecipes(details);
+                vectorSearchService.upsertRecipes(details, embeddings);
+                for (IndexQueueDao.Item item : upserts) {
+                    if (embeddings.containsKey(item.getRecipeName())) {
+                        done.add(item);
+                    } else {
+                        retry(Collections.singletonList(item), "Embedding failed");
+                    }
+                }
+            } catch (Exception e) {
+                if (embeddings.isEmpty() || upserts.size() == 1) {
+                    retry(upserts, e.getMessage());
+                } else {
+                    // Upsert one by one so a single rejected recipe does not hold back the batch
+                    upsertIndividually(upserts, details, embeddings, done);
+                }
+            }
+        }
+
+        indexQueueDao.complete(done);
+        processed.addAndGet(done.size());
+        if (!done.isEmpty()) {
+            System.out.println("[IndexQueue] Applied " + done.size() + " index change(s)");
+        }
+    }
+
+    private void upsertIndividually(List<IndexQueueDao.Item> upserts, List<RecipeDetails> details,
+            Map<String, float[]> embeddings, List<IndexQueueDao.Item> done) {
+        for (int i = 0; i < upserts.size(); i++) {
+            IndexQueueDao.Item item = upserts.get(i);
+            if (!embeddings.containsKey(item.getRecipeName())) {
+                retry(Collections.singletonList(item), "Embedding failed");
+                continue;
+            }
+            try {
+                vectorSearchService.upsertRecipes(Collections.singletonList(details.get(i)), embeddings);
+                done.add(item);
+            } catch (Exception e) {
+                retry(Collections.singletonList(item), e.getMessage());
+            }
+        }
+    }
+
+    private void retry(List<IndexQueueDao.Item> items, String error) {
+        long now = System.currentTimeMillis();
+        for (IndexQueueDao.Item item : items) {
+            long delay = Math.min(retryMaxMs, retryBaseMs << Math.min(item.getAttempts(), 20));
+            indexQueueDao.reschedule(item, now + delay, error);
+            failedAttempts.incrementAndGet();
+        }
+        System.err.println("[IndexQueue] " + items.size() + " index change(s) failed, will retry: " + error);
+    }
+}
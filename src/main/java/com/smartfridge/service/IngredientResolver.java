@@ -2,6 +2,7 @@ package com.smartfridge.service;
 
 import com.smartfridge.dao.IngredientAliasDao;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
@@ -32,7 +33,12 @@ public class IngredientResolver {
     @Value("${openai.chat-model:gpt-4o-mini}")
     private String chatModel;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private HealthService healthService;
+
+    @Autowired
+    @Qualifier("openAiRestTemplate")
+    private RestTemplate restTemplate;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     /**
@@ -53,8 +59,9 @@ public class IngredientResolver {
         if (ingredients == null) {
             return Collections.emptyList();
         }
+        Map<String, String> resolved = resolveBulk(ingredients);
         return ingredients.stream()
-                .map(this::resolve)
+                .map(ingredient -> resolved.getOrDefault(ingredient, ingredient))
                 .collect(Collectors.toList());
     }
 
@@ -65,9 +72,28 @@ public class IngredientResolver {
         if (ingredients == null) {
             return Collections.emptySet();
         }
-        return ingredients.stream()
-                .map(this::resolve)
-                .collect(Collectors.toSet());
+        Map<String, String> resolved = resolveBulk(ingredients);
+        Set<String> result = new HashSet<>();
+        for (String ingredient : ingredients) {
+            result.add(resolved.getOrDefault(ingredient, ingredient));
+        }
+        return result;
+    }
+
+    /**
+     * Resolve a collection of ingredients in one bulk lookup.
+     * Returns a map from each non-empty input (as given) to its canonical form;
+     * null or blank inputs are left out.
+     */
+    public Map<String, String> resolveBulk(Collection<String> ingredients) {
+        Map<String, String> byTrimmed = aliasDao.resolveAllToCanonical(ingredients);
+        Map<String, String> resolved = new HashMap<>();
+        for (String ingredient : ingredients) {
+            if (ingredient != null && !ingredient.trim().isEmpty()) {
+                resolved.put(ingredient, byTrimmed.get(ingredient.trim()));
+            }
+        }
+        return resolved;
     }
 
     /**
@@ -160,9 +186,7 @@ public class IngredientResolver {
 
                 // Save generated aliases to database
                 String canonical = ingredient.toLowerCase();
-                for (String alias : generatedAliases) {
-                    aliasDao.addAlias(canonical, alias, 0.8, "ai_generated");
-                }
+                aliasDao.addAliases(canonical, generatedAliases, 0.8, "ai_generated");
 
                 // Also add the canonical name as its own alias (for lookup)
                 aliasDao.addAlias(canonical, canonical, 1.0, "ai_generated");
@@ -179,22 +203,10 @@ public class IngredientResolver {
 
     /**
      * Check if OpenAI API is available for AI alias generation.
+     * Reads the cached status maintained by HealthService.
      */
     public boolean isAIAvailable() {
-        try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setBearerAuth(openaiApiKey);
-            HttpEntity<Void> entity = new HttpEntity<>(headers);
-
-            ResponseEntity<String> response = restTemplate.exchange(
-                    openaiBaseUrl + "/models",
-                    HttpMethod.GET,
-                    entity,
-                    String.class);
-            return response.getStatusCode().is2xxSuccessful();
-        } catch (Exception e) {
-            return false;
-        }
+        return healthService.isUp(HealthService.OPENAI);
     }
 
     /**
@@ -243,8 +255,6 @@ public class IngredientResolver {
         // Add canonical as its own alias
         aliasDao.addAlias(canonical, canonical, 1.0, "seed");
         // Add all aliases
-        for (String alias : aliases) {
-            aliasDao.addAlias(canonical, alias, 0.9, "seed");
-        }
+        aliasDao.addAliases(canonical, aliases, 0.9, "seed");
     }
 }
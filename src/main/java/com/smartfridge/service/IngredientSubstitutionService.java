@@ -1,23 +1,45 @@
 package com.smartfridge.service;
 
+import com.smartfridge.cache.LocalCache;
+import com.smartfridge.cache.SingleFlight;
 import com.smartfridge.dao.RecipeDao;
 import com.smartfridge.dao.SupplyDao;
 import com.smartfridge.model.MissingIngredientsResponse;
 import com.smartfridge.model.RecipeDetails;
 import com.smartfridge.model.SubstitutionSuggestion;
+import com.smartfridge.resilience.Deadline;
+import com.smartfridge.resilience.DependencyUnavailableException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Service for ingredient substitution recommendations
+ *
+ * AI suggestions are read through a two-tier cache (in-process LRU in front
+ * of Redis) keyed by missing ingredient, cuisine and a fingerprint of the
+ * fridge contents. The in-fridge flag is not cached; it is recomputed from
+ * the current supplies on every request.
  */
 @Service
 public class IngredientSubstitutionService {
@@ -34,7 +56,53 @@ public class IngredientSubstitutionService {
     @Value("${ai.service.url:http://localhost:5001}")
     private String aiServiceUrl;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private HealthService healthService;
+
+    @Autowired
+    @Qualifier("outboundExecutor")
+    private AsyncTaskExecutor outboundExecutor;
+
+    // AI service calls in flight per request (keep within resilience.ai-service.max-concurrent)
+    @Value("${ai.substitutions.parallelism:4}")
+    private int parallelism;
+
+    // Total time for all substitution calls of one request
+    @Value("${ai.substitutions.deadline-ms:8000}")
+    private long deadlineMs;
+
+    // Ask for all missing ingredients in one /ai/substitutions/batch call
+    @Value("${ai.substitutions.batch.enabled:true}")
+    private boolean batchEnabled;
+
+    // Cleared once the AI service answers 404 for the batch endpoint
+    private volatile boolean batchSupported = true;
+
+    @Value("${ai.substitutions.cache.local.max-size:1000}")
+    private int localCacheMaxSize;
+
+    @Value("${ai.substitutions.cache.local.ttl:3600}")
+    private long localCacheTtlSeconds;
+
+    @Autowired
+    private VectorCacheService vectorCacheService;
+
+    @Autowired
+    @Qualifier("aiServiceRestTemplate")
+    private RestTemplate restTemplate;
+
+    private final SingleFlight<String, List<Map<String, Object>>> inFlight =
+            new SingleFlight<>(HealthService.AI_SERVICE);
+    private final SingleFlight<String, Map<String, List<Map<String, Object>>>> batchInFlight =
+            new SingleFlight<>(HealthService.AI_SERVICE);
+    private final LongAdder redisHits = new LongAdder();
+    private final LongAdder aiRequests = new LongAdder();
+    private LocalCache<String, List<Map<String, Object>>> localCache;
+
+    @PostConstruct
+    public void initialize() {
+        localCache = new LocalCache<>(localCacheMaxSize, localCacheTtlSeconds);
+    }
 
     /**
      * Find missing ingredients for a recipe by comparing recipe requirements with
@@ -63,9 +131,10 @@ public class IngredientSubstitutionService {
         System.out.println("[DEBUG] Non-seasoning ingredients needed: " + nonSeasoningIngredients);
 
         List<String> missingIngredients = new ArrayList<>();
+        Map<String, String> resolvedIngredients = ingredientResolver.resolveBulk(nonSeasoningIngredients);
 
         for (String ingredient : nonSeasoningIngredients) {
-            String resolvedIngredient = ingredientResolver.resolve(ingredient);
+            String resolvedIngredient = resolvedIngredients.getOrDefault(ingredient, ingredient);
             if (!resolvedSupplies.contains(ingredient) && !resolvedSupplies.contains(resolvedIngredient)) {
                 missingIngredients.add(ingredient);
                 System.out.println("[DEBUG] Missing: " + ingredient + " (resolved: " + resolvedIngredient + ")");
@@ -86,7 +155,10 @@ public class IngredientSubstitutionService {
     }
 
     /**
-     * Get AI-powered substitution suggestions for missing ingredients in a recipe
+     * Get AI-powered substitution suggestions for missing ingredients in a recipe.
+     * Suggestions are cached per (ingredient, cuisine, fridge contents); only
+     * cache misses call the AI service. All AI calls share one deadline;
+     * ingredients without an answer by then get an empty list.
      */
     public Map<String, List<SubstitutionSuggestion>> getSubstitutions(String recipeName) {
         // Find missing ingredients
@@ -104,37 +176,214 @@ public class IngredientSubstitutionService {
         // Get recipe details for context
         RecipeDetails recipe = recipeDao.getRecipeDetails(recipeName);
         Set<String> fridgeSupplies = supplyDao.getSupplies();
+        String fridgeFingerprint = fingerprint(fridgeSupplies);
+
+        Map<String, List<Map<String, Object>>> substitutes = new HashMap<>();
+        List<String> uncached = new ArrayList<>();
+        for (String ingredient : missingIngredients) {
+            List<Map<String, Object>> cached = getCachedSubstitutes(cacheKey(ingredient, recipe, fridgeFingerprint));
+            if (cached != null) {
+                substitutes.put(ingredient, cached);
+            } else {
+                uncached.add(ingredient);
+            }
+        }
+        System.out.println("[DEBUG] Substitution cache: " + (missingIngredients.size() - uncached.size())
+                + " hits, " + uncached.size() + " misses");
+
+        if (!uncached.isEmpty()) {
+            // One batch call if the AI service supports it, otherwise one call per ingredient
+            substitutes.putAll(Deadline.within(deadlineMs, () -> {
+                Map<String, List<Map<String, Object>>> batch = batchEnabled && batchSupported
+                        ? requestBatchSubstitutions(uncached, recipe, fridgeSupplies, fridgeFingerprint)
+                        : null;
+                return batch != null ? batch : fanOutSubstitutions(uncached, recipe, fridgeSupplies, fridgeFingerprint);
+            }));
+        }
+
+        // In-fridge flags come from the current supplies, never from the cache
+        Map<String, List<SubstitutionSuggestion>> result = new LinkedHashMap<>();
+        for (String ingredient : missingIngredients) {
+            result.put(ingredient, toSuggestions(
+                    substitutes.getOrDefault(ingredient, Collections.emptyList()), ingredient, fridgeSupplies));
+        }
+        return result;
+    }
+
+    /**
+     * Hit/miss statistics for the substitution cache.
+     */
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(localCache.getStats());
+        stats.put("redisHits", redisHits.sum());
+        stats.put("aiRequests", aiRequests.sum());
+        stats.put("inFlight", inFlight.inFlightCount() + batchInFlight.inFlightCount());
+        stats.put("redisAvailable", vectorCacheService.isAvailable());
+        return stats;
+    }
+
+    /**
+     * One AI service call covering all missing ingredients. Returns null if
+     * the AI service has no batch endpoint (it is then not tried again);
+     * other failures leave the ingredients out rather than retrying per
+     * ingredient against a struggling service. Concurrent requests for the
+     * same ingredients share one call.
+     */
+    private Map<String, List<Map<String, Object>>> requestBatchSubstitutions(List<String> ingredients,
+            RecipeDetails recipe, Set<String> fridgeSupplies, String fridgeFingerprint) {
+        String batchKey = cacheKey(String.join("\n", ingredients), recipe, fridgeFingerprint);
+        return batchInFlight.execute(batchKey, () -> {
+            Map<String, List<Map<String, Object>>> result = requestBatchFromAI(ingredients, recipe, fridgeSupplies);
+            if (result != null) {
+                for (Map.Entry<String, List<Map<String, Object>>> entry : result.entrySet()) {
+                    cacheSubstitutes(cacheKey(entry.getKey(), recipe, fridgeFingerprint), entry.getValue());
+                }
+            }
+            return result;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, List<Map<String, Object>>> requestBatchFromAI(List<String> ingredients,
+            RecipeDetails recipe, Set<String> fridgeSupplies) {
+        Map<String, List<Map<String, Object>>> result = new HashMap<>();
+
+        try {
+            Map<String, Object> requestBody = new HashMap<>();
+            requestBody.put("ingredients", ingredients);
+            requestBody.put("cuisine", recipe.getCuisineType().name());
+            requestBody.put("recipeIngredients", recipe.getIngredients());
+            requestBody.put("fridgeSupplies", new ArrayList<>(fridgeSupplies));
 
-        // Map to store substitutions for each missing ingredient
-        Map<String, List<SubstitutionSuggestion>> allSubstitutions = new LinkedHashMap<>();
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
+            String url = aiServiceUrl + "/ai/substitutions/batch";
+
+            aiRequests.increment();
+            @SuppressWarnings("rawtypes")
+            ResponseEntity<Map> response = healthService.guard(HealthService.AI_SERVICE)
+                    .call(() -> restTemplate.postForEntity(url, request, Map.class));
+
+            Object substitutions = response.getBody() != null ? response.getBody().get("substitutions") : null;
+            if (substitutions instanceof Map) {
+                for (String ingredient : ingredients) {
+                    Object substitutes = ((Map<String, Object>) substitutions).get(ingredient);
+                    if (substitutes instanceof List) {
+                        result.put(ingredient, stripSubstitutes((List<Object>) substitutes));
+                    }
+                }
+            }
+            System.out.println("[DEBUG] Batch substitutions received for " + result.size() + " ingredients");
+        } catch (HttpClientErrorException.NotFound | HttpClientErrorException.MethodNotAllowed e) {
+            System.out.println("[INFO] AI service has no batch endpoint, requesting substitutions per ingredient");
+            batchSupported = false;
+            return null;
+        } catch (DependencyUnavailableException e) {
+            System.err.println("[ERROR] Skipping AI service call: " + e.getMessage());
+        } catch (Exception e) {
+            System.err.println("[ERROR] Batch substitution request failed: " + e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * One AI service call per ingredient, at most ai.substitutions.parallelism
+     * at a time, under the current deadline. Ingredients whose call failed or
+     * has not finished by then are left out; the rest are returned as usual.
+     */
+    private Map<String, List<Map<String, Object>>> fanOutSubstitutions(List<String> ingredients,
+            RecipeDetails recipe, Set<String> fridgeSupplies, String fridgeFingerprint) {
+        Deadline deadline = Deadline.current();
+        Map<String, CompletableFuture<List<Map<String, Object>>>> pending = new LinkedHashMap<>();
+        Semaphore slots = new Semaphore(parallelism);
 
-        // Request substitutions from AI service for each missing ingredient
-        for (String missingIngredient : missingIngredients) {
-            System.out.println("[DEBUG] Requesting AI substitutions for: " + missingIngredient);
+        try {
+            for (String ingredient : ingredients) {
+                if (!slots.tryAcquire(deadline.remainingMs(), TimeUnit.MILLISECONDS)) {
+                    break;
+                }
+                String key = cacheKey(ingredient, recipe, fridgeFingerprint);
+                try {
+                    // Workers inherit the deadline, which also caps their HTTP response timeout
+                    pending.put(ingredient, CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return deadline.apply(() -> inFlight.execute(key, () -> {
+                                List<Map<String, Object>> substitutes = requestSubstitutionsSafely(ingredient,
+                                        recipe, fridgeSupplies);
+                                cacheSubstitutes(key, substitutes);
+                                return substitutes;
+                            }));
+                        } finally {
+                            slots.release();
+                        }
+                    }, outboundExecutor));
+                } catch (RuntimeException e) {
+                    slots.release();
+                    throw e;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        Map<String, List<Map<String, Object>>> result = new HashMap<>();
+        int unfinished = ingredients.size() - pending.size();
+        for (Map.Entry<String, CompletableFuture<List<Map<String, Object>>>> entry : pending.entrySet()) {
+            CompletableFuture<List<Map<String, Object>>> future = entry.getValue();
             try {
-                List<SubstitutionSuggestion> suggestions = requestSubstitutionsFromAI(
-                        missingIngredient,
-                        recipe.getCuisineType().name(),
-                        recipe.getIngredients(),
-                        fridgeSupplies);
-                System.out.println("[DEBUG] Got " + suggestions.size() + " suggestions for " + missingIngredient);
-                allSubstitutions.put(missingIngredient, suggestions);
-            } catch (Exception e) {
-                System.err.println(
-                        "[ERROR] Failed to get substitutions for " + missingIngredient + ": " + e.getMessage());
-                e.printStackTrace();
-                // Add empty list on failure
-                allSubstitutions.put(missingIngredient, Collections.emptyList());
+                List<Map<String, Object>> substitutes = future.get(deadline.remainingMs(), TimeUnit.MILLISECONDS);
+                if (substitutes != null) {
+                    result.put(entry.getKey(), substitutes);
+                }
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                unfinished++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                unfinished++;
+            } catch (ExecutionException e) {
+                // requestSubstitutionsSafely handles its own failures
             }
         }
 
-        return allSubstitutions;
+        if (unfinished > 0) {
+            System.err.println("[WARN] " + unfinished + " of " + ingredients.size()
+                    + " substitution requests did not finish within " + deadlineMs + " ms");
+        }
+        return result;
+    }
+
+    /**
+     * Raw substitutes for one ingredient, or null if the AI call failed.
+     */
+    private List<Map<String, Object>> requestSubstitutionsSafely(String missingIngredient, RecipeDetails recipe,
+            Set<String> fridgeSupplies) {
+        System.out.println("[DEBUG] Requesting AI substitutions for: " + missingIngredient);
+        try {
+            List<Map<String, Object>> substitutes = requestSubstitutionsFromAI(
+                    missingIngredient,
+                    recipe.getCuisineType().name(),
+                    recipe.getIngredients(),
+                    fridgeSupplies);
+            if (substitutes != null) {
+                System.out.println("[DEBUG] Got " + substitutes.size() + " suggestions for " + missingIngredient);
+            }
+            return substitutes;
+        } catch (Exception e) {
+            System.err.println(
+                    "[ERROR] Failed to get substitutions for " + missingIngredient + ": " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
     }
 
     /**
-     * Request substitution suggestions from Python AI service
+     * Request substitution suggestions from Python AI service.
+     * Returns null on failure so that failures are not cached.
      */
-    private List<SubstitutionSuggestion> requestSubstitutionsFromAI(
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> requestSubstitutionsFromAI(
             String ingredient,
             String cuisineType,
             List<String> recipeIngredients,
@@ -161,60 +410,153 @@ public class IngredientSubstitutionService {
             String url = aiServiceUrl + "/ai/substitutions";
             System.out.println("[DEBUG] Sending POST request to: " + url);
 
+            aiRequests.increment();
             @SuppressWarnings("rawtypes")
-            ResponseEntity<Map> response = restTemplate.postForEntity(url, request, Map.class);
+            ResponseEntity<Map> response = healthService.guard(HealthService.AI_SERVICE)
+                    .call(() -> restTemplate.postForEntity(url, request, Map.class));
 
             System.out.println("[DEBUG] AI service response status: " + response.getStatusCode());
             System.out.println("[DEBUG] AI service response body: " + response.getBody());
 
             if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                return parseSubstitutionsResponse(response.getBody(), ingredient, fridgeSupplies);
+                Object substitutes = response.getBody().get("substitutes");
+                return substitutes instanceof List ? stripSubstitutes((List<Object>) substitutes)
+                        : Collections.emptyList();
             } else {
                 System.err.println("[ERROR] AI service returned non-success status: " + response.getStatusCode());
             }
+        } catch (DependencyUnavailableException e) {
+            System.err.println("[ERROR] Skipping AI service call: " + e.getMessage());
         } catch (Exception e) {
             System.err.println("[ERROR] Error calling AI service at " + aiServiceUrl + ": " + e.getMessage());
             System.err.println("[ERROR] Exception type: " + e.getClass().getName());
             e.printStackTrace();
         }
 
-        return Collections.emptyList();
+        return null;
     }
 
     /**
-     * Parse AI service response into SubstitutionSuggestion objects
+     * Keep the fields of each AI substitute that do not depend on the
+     * current fridge (ingredient, confidence, reasoning); this is what is
+     * cached.
      */
     @SuppressWarnings("unchecked")
-    private List<SubstitutionSuggestion> parseSubstitutionsResponse(
-            Map<String, Object> responseBody,
+    private List<Map<String, Object>> stripSubstitutes(List<Object> substitutes) {
+        List<Map<String, Object>> stripped = new ArrayList<>();
+        for (Object item : substitutes) {
+            if (!(item instanceof Map)) {
+                continue;
+            }
+            Map<String, Object> sub = (Map<String, Object>) item;
+            if (!(sub.get("ingredient") instanceof String)) {
+                continue;
+            }
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("ingredient", sub.get("ingredient"));
+            Object confidence = sub.get("confidence");
+            entry.put("confidence", confidence instanceof Number ? ((Number) confidence).doubleValue() : 0.0);
+            Object reasoning = sub.get("reasoning");
+            entry.put("reasoning", reasoning instanceof String ? reasoning : "");
+            stripped.add(entry);
+        }
+        return stripped;
+    }
+
+    /**
+     * Turn raw substitutes into SubstitutionSuggestion objects, checking each
+     * substitute against the given fridge supplies
+     */
+    private List<SubstitutionSuggestion> toSuggestions(
+            List<Map<String, Object>> substitutes,
             String originalIngredient,
             Set<String> fridgeSupplies) {
 
         List<SubstitutionSuggestion> suggestions = new ArrayList<>();
+        if (substitutes.isEmpty()) {
+            return suggestions;
+        }
 
-        Object substitutesObj = responseBody.get("substitutes");
-        if (substitutesObj instanceof List) {
-            List<Map<String, Object>> substitutes = (List<Map<String, Object>>) substitutesObj;
-
-            for (Map<String, Object> sub : substitutes) {
-                String substitute = (String) sub.get("ingredient");
-                Object confidenceObj = sub.get("confidence");
-                double confidence = confidenceObj instanceof Number ? ((Number) confidenceObj).doubleValue() : 0.0;
-                String reasoning = (String) sub.getOrDefault("reasoning", "");
-
-                // Check if substitute is in fridge
-                boolean actuallyInFridge = fridgeSupplies.contains(substitute) ||
-                        fridgeSupplies.contains(ingredientResolver.resolve(substitute));
-
-                suggestions.add(new SubstitutionSuggestion(
-                        originalIngredient,
-                        substitute,
-                        actuallyInFridge,
-                        confidence,
-                        reasoning));
-            }
+        List<String> substituteNames = new ArrayList<>();
+        for (Map<String, Object> sub : substitutes) {
+            substituteNames.add((String) sub.get("ingredient"));
+        }
+        Map<String, String> resolvedSubstitutes = ingredientResolver.resolveBulk(substituteNames);
+
+        for (Map<String, Object> sub : substitutes) {
+            String substitute = (String) sub.get("ingredient");
+            Object confidenceObj = sub.get("confidence");
+            double confidence = confidenceObj instanceof Number ? ((Number) confidenceObj).doubleValue() : 0.0;
+            String reasoning = (String) sub.getOrDefault("reasoning", "");
+
+            // Check if substitute is in fridge
+            boolean actuallyInFridge = fridgeSupplies.contains(substitute) ||
+                    fridgeSupplies.contains(resolvedSubstitutes.getOrDefault(substitute, substitute));
+
+            suggestions.add(new SubstitutionSuggestion(
+                    originalIngredient,
+                    substitute,
+                    actuallyInFridge,
+                    confidence,
+                    reasoning));
         }
 
         return suggestions;
     }
+
+    /**
+     * Cached substitutes from the local cache, then Redis; null on a miss.
+     */
+    private List<Map<String, Object>> getCachedSubstitutes(String key) {
+        List<Map<String, Object>> cached = localCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        cached = vectorCacheService.getCachedSubstitutes(key);
+        if (cached != null) {
+            redisHits.increment();
+            localCache.put(key, cached);
+        }
+        return cached;
+    }
+
+    private void cacheSubstitutes(String key, List<Map<String, Object>> substitutes) {
+        if (substitutes == null) {
+            return;
+        }
+        localCache.put(key, substitutes);
+        vectorCacheService.cacheSubstitutes(key, substitutes);
+    }
+
+    /**
+     * The AI only picks substitutes from the fridge, so its answer depends on
+     * the fridge contents as well as the ingredient and cuisine.
+     */
+    private String cacheKey(String ingredient, RecipeDetails recipe, String fridgeFingerprint) {
+        return recipe.getCuisineType().name() + "\n" + ingredient.trim().toLowerCase(Locale.ROOT)
+                + "\n" + fridgeFingerprint;
+    }
+
+    /**
+     * Order-independent hash of the fridge supplies; changes whenever an item
+     * is added or removed, so stale suggestions are never served.
+     */
+    private String fingerprint(Set<String> fridgeSupplies) {
+        List<String> sorted = new ArrayList<>();
+        for (String supply : fridgeSupplies) {
+            sorted.add(supply.trim().toLowerCase(Locale.ROOT));
+        }
+        Collections.sort(sorted);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(String.join("\n", sorted).getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                hex.append(String.format("%02x", hash[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(sorted.hashCode());
+        }
+    }
 }
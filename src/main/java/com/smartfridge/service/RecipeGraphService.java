@@ -0,0 +1,174 @@
+package com.smartfridge.service;
+
+import com.smartfridge.dao.IngredientAliasDao;
+import com.smartfridge.dao.RecipeDao;
+import com.smartfridge.dao.SupplyDao;
+import com.smartfridge.graph.CompiledRecipeGraph;
+import com.smartfridge.graph.CookabilityTracker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps a resident, compiled copy of the recipe dependency graph together with
+ * the materialized set of recipes cookable from the current fridge.
+ *
+ * The graph is compiled from recipe_dependencies with every ingredient resolved
+ * to its canonical name. It is recompiled lazily after recipe writes (via
+ * {@link #invalidate()}) or when the alias data version changes. Fridge
+ * mutations are applied incrementally to the {@link CookabilityTracker}.
+ */
+@Service
+public class RecipeGraphService {
+
+    @Autowired
+    private RecipeDao recipeDao;
+
+    @Autowired
+    private SupplyDao supplyDao;
+
+    @Autowired
+    private IngredientAliasDao aliasDao;
+
+    @Autowired
+    private IngredientResolver ingredientResolver;
+
+    private volatile GraphState state;
+
+    /**
+     * Get the compiled recipe graph, compiling it if it is missing or stale.
+     */
+    public CompiledRecipeGraph getGraph() {
+        return getState().graph;
+    }
+
+    /**
+     * Get the cookability tracker for the current graph and fridge.
+     */
+    public CookabilityTracker getTracker() {
+        return getState().tracker;
+    }
+
+    /**
+     * Get the recipes cookable from the current fridge. O(result).
+     */
+    public List<String> getCookableRecipes() {
+        return getTracker().getCookableRecipes();
+    }
+
+    /**
+     * Get recipes missing 1..maxMissing fridge ingredients. O(result).
+     */
+    public Map<String, List<String>> findAlmostCookable(int maxMissing) {
+        return getTracker().findAlmostCookable(maxMissing);
+    }
+
+    /**
+     * Apply a fridge item that was just written to the supplies table.
+     */
+    public void supplyAdded(String item) {
+        getTracker().addSupply(item, ingredientResolver.resolve(item));
+    }
+
+    /**
+     * Apply a fridge item that was just deleted from the supplies table.
+     */
+    public void supplyRemoved(String item) {
+        getTracker().removeSupply(item);
+    }
+
+    /**
+     * Apply a full replacement of the fridge contents as a diff.
+     */
+    public void suppliesReplaced(Collection<String> items) {
+        CookabilityTracker tracker = getTracker();
+        Set<String> next = new HashSet<>(items);
+        for (String item : tracker.getSupplies()) {
+            if (!next.contains(item)) {
+                tracker.removeSupply(item);
+            }
+        }
+        addSupplies(tracker, next);
+    }
+
+    /**
+     * Drop the compiled graph after recipe data changed.
+     * Synchronized so an in-flight compile cannot overwrite the invalidation.
+     */
+    public synchronized void invalidate() {
+        state = null;
+    }
+
+    private GraphState getState() {
+        GraphState current = state;
+        if (current != null && current.aliasVersion == aliasDao.getVersion()) {
+            return current;
+        }
+
+        synchronized (this) {
+            current = state;
+            long aliasVersion = aliasDao.getVersion();
+            if (current == null || current.aliasVersion != aliasVersion) {
+                CompiledRecipeGraph graph = compile();
+                current = new GraphState(graph, seedTracker(graph), aliasVersion);
+                state = current;
+            }
+            return current;
+        }
+    }
+
+    private CookabilityTracker seedTracker(CompiledRecipeGraph graph) {
+        CookabilityTracker tracker = new CookabilityTracker(graph);
+        addSupplies(tracker, supplyDao.getSupplies());
+        return tracker;
+    }
+
+    private void addSupplies(CookabilityTracker tracker, Collection<String> items) {
+        Map<String, String> resolved = ingredientResolver.resolveBulk(items);
+        for (String item : items) {
+            tracker.addSupply(item, resolved.getOrDefault(item, item));
+        }
+    }
+
+    private CompiledRecipeGraph compile() {
+        long start = System.nanoTime();
+        Map<String, List<String>> recipeToIngredients = recipeDao.loadRecipeGraph();
+
+        // Resolve every distinct ingredient name in one bulk lookup
+        Set<String> ingredients = new HashSet<>();
+        for (List<String> recipeIngredients : recipeToIngredients.values()) {
+            ingredients.addAll(recipeIngredients);
+        }
+        Map<String, String> resolved = ingredientResolver.resolveBulk(ingredients);
+
+        CompiledRecipeGraph.Builder builder = CompiledRecipeGraph.builder();
+        for (Map.Entry<String, List<String>> entry : recipeToIngredients.entrySet()) {
+            String recipeName = entry.getKey();
+            for (String ingredient : entry.getValue()) {
+                builder.addIngredient(recipeName, ingredient, resolved.getOrDefault(ingredient, ingredient));
+            }
+        }
+
+        CompiledRecipeGraph graph = builder.build();
+        System.out.println("[RecipeGraph] Compiled " + graph.recipeCount() + " recipes, " + graph.nodeCount()
+                + " nodes, " + graph.edgeCount() + " edges in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return graph;
+    }
+
+    private static final class GraphState {
+        private final CompiledRecipeGraph graph;
+        private final CookabilityTracker tracker;
+        private final long aliasVersion;
+
+        private GraphState(CompiledRecipeGraph graph, CookabilityTracker tracker, long aliasVersion) {
+            this.graph = graph;
+            this.tracker = tracker;
+            this.aliasVersion = aliasVersion;
+        }
+    }
+}
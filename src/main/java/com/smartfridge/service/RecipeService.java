@@ -2,9 +2,11 @@ package com.smartfridge.service;
 
 import com.smartfridge.dao.RecipeDao;
 import com.smartfridge.dao.SupplyDao;
+import com.smartfridge.graph.CompiledRecipeGraph;
 import com.smartfridge.model.RecipeDetails;
 import com.smartfridge.model.RecipeSimple;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -21,6 +23,20 @@ public class RecipeService {
     @Autowired
     private IngredientResolver ingredientResolver;
 
+    @Autowired
+    private RecipeGraphService recipeGraphService;
+
+    // "primitive" = int-id Kahn over a compiled graph, "legacy" = String-keyed maps
+    @Value("${recipe.kahn.engine:primitive}")
+    private String kahnEngine;
+
+    // Serve /api/generate from the incrementally maintained cookable set
+    @Value("${recipe.cookability.incremental:true}")
+    private boolean incrementalCookability;
+
+    // Serializes fridge writes with their cookability updates
+    private final Object fridgeLock = new Object();
+
     /**
      * Find all cookable recipes using Kahn's algorithm (topological sorting)
      */
@@ -36,6 +52,16 @@ public class RecipeService {
             recipeIngredients.addAll(ingredients.get(i));
         }
 
+        if (!isLegacyKahnEngine()) {
+            CompiledRecipeGraph.Builder builder = CompiledRecipeGraph.builder();
+            for (Map.Entry<String, Set<String>> entry : mergedRecipes.entrySet()) {
+                for (String ingredient : entry.getValue()) {
+                    builder.addEdge(ingredient, entry.getKey());
+                }
+            }
+            return builder.build().findCookable(supplies);
+        }
+
         // Build dependency graph and inDegree list
         Map<String, List<String>> graph = new HashMap<>();
         Map<String, Integer> inDegree = new HashMap<>();
@@ -55,14 +81,19 @@ public class RecipeService {
 
     /**
      * Find cookable recipes from stored fridge supplies and database recipes.
-     * Uses ingredient alias resolution for flexible matching.
+     * Uses ingredient alias resolution for flexible matching and the resident
+     * compiled recipe graph instead of reloading recipe_dependencies.
+     * In incremental mode the result is read from the materialized cookable set.
      */
     public List<String> findCookableRecipesFromFridge() {
-        // Load recipe graph from database
-        Map<String, List<String>> recipeToIngredients = recipeDao.loadRecipeGraph();
+        if (incrementalCookability) {
+            return recipeGraphService.getCookableRecipes();
+        }
+
+        CompiledRecipeGraph graph = recipeGraphService.getGraph();
         Set<String> fridgeSupplies = supplyDao.getSupplies();
 
-        if (recipeToIngredients.isEmpty() || fridgeSupplies.isEmpty()) {
+        if (graph.isEmpty() || fridgeSupplies.isEmpty()) {
             return Collections.emptyList();
         }
 
@@ -72,31 +103,17 @@ public class RecipeService {
         // Also add original names to catch direct matches
         resolvedSupplies.addAll(fridgeSupplies);
 
-        // Build ingredient -> recipes graph
-        // Resolve recipe ingredients to canonical names as well
-        Map<String, List<String>> graph = new HashMap<>();
-        Map<String, Integer> inDegree = new HashMap<>();
-
-        for (Map.Entry<String, List<String>> entry : recipeToIngredients.entrySet()) {
-            String recipeName = entry.getKey();
-            List<String> ingredients = entry.getValue();
-
-            for (String ingredient : ingredients) {
-                // Resolve ingredient to canonical form
-                String resolvedIngredient = ingredientResolver.resolve(ingredient);
-                graph.computeIfAbsent(resolvedIngredient, k -> new ArrayList<>()).add(recipeName);
-                inDegree.merge(recipeName, 1, Integer::sum);
-            }
-        }
-
-        // Convert resolved supplies to list for algorithm
-        List<String> suppliesList = new ArrayList<>(resolvedSupplies);
+        // Recipe ingredients were resolved to canonical names when the graph was compiled
+        return graph.findCookable(new ArrayList<>(resolvedSupplies));
+    }
 
-        return kahnAlgorithm(graph, inDegree, suppliesList);
+    private boolean isLegacyKahnEngine() {
+        return "legacy".equalsIgnoreCase(kahnEngine);
     }
 
     /**
-     * Kahn's algorithm for topological sorting
+     * Kahn's algorithm for topological sorting (legacy String-keyed engine).
+     * {@link CompiledRecipeGraph#findCookable} returns the same ordered result.
      */
     private List<String> kahnAlgorithm(Map<String, List<String>> graph, Map<String, Integer> inDegree,
             List<String> supplies) {
@@ -175,25 +192,32 @@ public class RecipeService {
      * Update fridge supplies (replace all)
      */
     public void updateFridgeSupplies(List<String> supplies) {
-        supplyDao.updateSupplies(supplies);
+        synchronized (fridgeLock) {
+            supplyDao.updateSupplies(supplies);
+            recipeGraphService.suppliesReplaced(supplies);
+        }
     }
 
     /**
      * Add single item to fridge with quantity
      */
     public void addToFridge(String item, int count) {
-        supplyDao.addSupply(item, count);
+        synchronized (fridgeLock) {
+            supplyDao.addSupply(item, count);
+            recipeGraphService.supplyAdded(item);
+        }
     }
 
     /**
      * Add single item to fridge with default quantity
      */
     public void addToFridge(String item) {
-        supplyDao.addSupply(item, 1);
+        addToFridge(item, 1);
     }
 
     /**
-     * Update item count in fridge
+     * Update item count in fridge.
+     * Only the quantity changes, so the cookable set is unaffected.
      */
     public void updateFridgeItemCount(String item, int count) {
         supplyDao.updateSupplyCount(item, count);
@@ -203,7 +227,10 @@ public class RecipeService {
      * Remove single item from fridge
      */
     public void removeFromFridge(String item) {
-        supplyDao.removeSupply(item);
+        synchronized (fridgeLock) {
+            supplyDao.removeSupply(item);
+            recipeGraphService.supplyRemoved(item);
+        }
     }
 
     /**
@@ -212,6 +239,7 @@ public class RecipeService {
     public void addRecipe(String name, List<String> ingredients, String cuisineType, String instructions,
             String imageUrl) {
         recipeDao.saveRecipeWithDetails(name, ingredients, cuisineType, instructions, imageUrl);
+        recipeGraphService.invalidate();
     }
 
     /**
@@ -220,6 +248,7 @@ public class RecipeService {
     public void addRecipeWithSeasonings(String name, List<String> ingredients, List<String> seasonings,
             String cuisineType, String instructions, String imageUrl) {
         recipeDao.saveRecipeWithSeparateSeasonings(name, ingredients, seasonings, cuisineType, instructions, imageUrl);
+        recipeGraphService.invalidate();
     }
 
     /**
@@ -227,60 +256,19 @@ public class RecipeService {
      */
     public void deleteRecipe(String name) {
         recipeDao.deleteRecipe(name);
+        recipeGraphService.invalidate();
     }
 
     /**
-     * Find recipes that are almost cookable (missing only a few ingredients)
+     * Find recipes that are almost cookable (missing only a few ingredients).
+     * Served from the inverted ingredient index and per-recipe missing counters
+     * maintained alongside the cookable set; recipes already cookable are excluded.
      * 
      * @param maxMissing Maximum number of missing ingredients (default: 2)
      * @return Map with recipe names as keys and list of missing ingredients as
      *         values
      */
     public Map<String, List<String>> findAlmostCookableRecipes(int maxMissing) {
-        Map<String, List<String>> recipeToIngredients = recipeDao.loadRecipeGraph();
-        Set<String> fridgeSupplies = supplyDao.getSupplies();
-
-        if (recipeToIngredients.isEmpty() || fridgeSupplies.isEmpty()) {
-            return Collections.emptyMap();
-        }
-
-        // FIRST: Find what's already cookable using Kahn's algorithm
-        List<String> alreadyCookable = findCookableRecipesFromFridge();
-        Set<String> cookableSet = new HashSet<>(alreadyCookable);
-
-        System.out.println("[DEBUG] Already cookable recipes (excluding from almost-cookable): " + cookableSet);
-
-        // Resolve fridge supplies to canonical names
-        Set<String> resolvedSupplies = ingredientResolver.resolveToSet(fridgeSupplies);
-        resolvedSupplies.addAll(fridgeSupplies);
-
-        Map<String, List<String>> almostCookable = new LinkedHashMap<>();
-
-        for (Map.Entry<String, List<String>> entry : recipeToIngredients.entrySet()) {
-            String recipeName = entry.getKey();
-            List<String> ingredients = entry.getValue();
-
-            // SKIP if already cookable!
-            if (cookableSet.contains(recipeName)) {
-                System.out.println("[DEBUG] Skipping '" + recipeName + "' - already cookable");
-                continue;
-            }
-
-            List<String> missingIngredients = new ArrayList<>();
-            for (String ingredient : ingredients) {
-                String resolvedIngredient = ingredientResolver.resolve(ingredient);
-                if (!resolvedSupplies.contains(ingredient) && !resolvedSupplies.contains(resolvedIngredient)) {
-                    missingIngredients.add(ingredient);
-                }
-            }
-
-            // If missing ingredients is between 1 and maxMissing, it's almost cookable
-            if (missingIngredients.size() > 0 && missingIngredients.size() <= maxMissing) {
-                System.out.println("[DEBUG] '" + recipeName + "' is almost cookable, missing: " + missingIngredients);
-                almostCookable.put(recipeName, missingIngredients);
-            }
-        }
-
-        return almostCookable;
+        return recipeGraphService.findAlmostCookable(maxMissing);
     }
 }
@@ -0,0 +1,461 @@
+package com.smartfridge.service;
+
+import com.smartfridge.dao.IndexJobDao;
+import com.smartfridge.dao.RecipeDao;
+import com.smartfridge.model.IndexJob;
+import com.smartfridge.model.RecipeDetails;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs re-indexes as background jobs.
+ *
+ * The pipeline has three stages: a single reader pages recipes out of SQLite
+ * in name order, a pool of embedding workers turns each page into vectors,
+ * and a pool of upsert workers writes each page to Qdrant in one request.
+ * At most {@code queue-capacity} pages are between the reader and the end of
+ * the pipeline, so a slow stage pauses the reader instead of buffering.
+ *
+ * Pages can finish out of order; the job's watermark only advances over a
+ * contiguous run of successful pages and is persisted, so a cancelled, failed
+ * or interrupted job resumes after the last recipe known to be indexed.
+ * One job runs at a time.
+ *
+ * In CHANGED mode the reader drops recipes whose text and model match
+ * recipe_embeddings, so only new or edited recipes are embedded. Both modes
+ * finish by deleting vectors of recipes that are gone.
+ */
+@Service
+@DependsOn("databaseInitializer")
+public class ReindexJobService {
+
+    private static final int RECENT_JOBS_LIMIT = 20;
+
+    // Recipes per page; each page is one embedding call and one upsert
+    @Value("${vector.index.batch-size:100}")
+    private int batchSize;
+
+    @Value("${vector.index.embedding-concurrency:4}")
+    private int embeddingConcurrency;
+
+    @Value("${vector.index.upsert-parallelism:2}")
+    private int upsertParallelism;
+
+    // Pages read but not yet upserted before the reader waits
+    @Value("${vector.index.queue-capacity:8}")
+    private int queueCapacity;
+
+    @Autowired
+    private RecipeDao recipeDao;
+
+    @Autowired
+    private IndexJobDao indexJobDao;
+
+    @Autowired
+    private VectorSearchService vectorSearchService;
+
+    private final AtomicReference<RunningJob> current = new AtomicReference<>();
+
+    private ExecutorService readerExecutor;
+    private ExecutorService embeddingExecutor;
+    private ExecutorService upsertExecutor;
+
+    @PostConstruct
+    public void initialize() {
+        readerExecutor = newPool(1, "reindex-reader");
+        embeddingExecutor = newPool(Math.max(1, embeddingConcurrency), "reindex-embed");
+        upsertExecutor = newPool(Math.max(1, upsertParallelism), "reindex-upsert");
+
+        int interrupted = indexJobDao.markRunningInterrupted();
+        if (interrupted > 0) {
+            System.out.println("[Reindex] Marked " + interrupted + " unfinished index job(s) as interrupted");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        RunningJob running = current.get();
+        if (running != null) {
+            running.cancelled = true;
+        }
+        // Let in-flight pages drain so the watermark is saved; threads are daemons
+        readerExecutor.shutdown();
+        embeddingExecutor.shutdown();
+        upsertExecutor.shutdown();
+        try {
+            readerExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Start a re-index in FULL or CHANGED mode. Throws IllegalStateException
+     * if a job is running.
+     */
+    public synchronized IndexJob start(String mode) {
+        IndexJob job = new IndexJob(UUID.randomUUID().toString(), IndexJob.RUNNING, null);
+        job.setMode(mode);
+        return launch(job);
+    }
+
+    /**
+     * Resume a cancelled, failed or interrupted job after its watermark.
+     * Returns null for an unknown id; throws IllegalStateException if the job
+     * is not resumable or another job is running.
+     */
+    public synchronized IndexJob resume(String id) {
+        IndexJob job = indexJobDao.findById(id);
+        if (job == null) {
+            return null;
+        }
+        if (!job.isResumable()) {
+            throw new IllegalStateException("Index job " + id + " is " + job.getStatus() + " and cannot be resumed");
+        }
+        return launch(job);
+    }
+
+    /**
+     * Request cancellation of the running job. Pages already read still
+     * finish. Returns false if the job is not running.
+     */
+    public boolean cancel(String id) {
+        RunningJob running = current.get();
+        if (running == null || !running.job.getId().equals(id)) {
+            return false;
+        }
+        running.cancelled = true;
+        return true;
+    }
+
+    /**
+     * Progress and throughput of a job, or null for an unknown id.
+     */
+    public Map<String, Object> getProgress(String id) {
+        RunningJob running = current.get();
+        if (running != null && running.job.getId().equals(id)) {
+            return running.progress();
+        }
+        IndexJob job = indexJobDao.findById(id);
+        return job != null ? toProgress(job, 0) : null;
+    }
+
+    /**
+     * Recent jobs, newest first, with live progress for the running one.
+     */
+    public List<Map<String, Object>> listJobs() {
+        RunningJob running = current.get();
+        List<Map<String, Object>> jobs = new ArrayList<>();
+        for (IndexJob job : indexJobDao.findRecent(RECENT_JOBS_LIMIT)) {
+            if (running != null && running.job.getId().equals(job.getId())) {
+                jobs.add(running.progress());
+            } else {
+                jobs.add(toProgress(job, 0));
+            }
+        }
+        return jobs;
+    }
+
+    private IndexJob launch(IndexJob job) {
+        RunningJob active = current.get();
+        if (active != null) {
+            throw new IllegalStateException("Index job " + active.job.getId() + " is already running");
+        }
+
+        long now = System.currentTimeMillis();
+        job.setStatus(IndexJob.RUNNING);
+        job.setTotal(recipeDao.countRecipesAfter(job.getWatermark()));
+        job.setRead(0);
+        job.setIndexed(0);
+        job.setSkipped(0);
+        job.setUnchanged(0);
+        job.setDeleted(0);
+        job.setFailed(0);
+        job.setError(null);
+        job.setStartedAt(now);
+        job.setUpdatedAt(now);
+        job.setFinishedAt(null);
+        indexJobDao.save(job);
+
+        RunningJob running = new RunningJob(job, queueCapacity);
+        current.set(running);
+        try {
+            readerExecutor.execute(() -> run(running));
+        } catch (RejectedExecutionException e) {
+            current.compareAndSet(running, null);
+            throw new IllegalStateException("Re-index executor is shut down", e);
+        }
+
+        System.out.println("[Reindex] Started " + job.getMode() + " job " + job.getId() + " with "
+                + job.getTotal() + " recipes" + (job.getWatermark() != null ? " after '" + job.getWatermark() + "'" : ""));
+        return running.snapshot();
+    }
+
+    /**
+     * Reader loop: page recipes and feed them through the embed and upsert
+     * stages, blocking while the pipeline is full.
+     */
+    private void run(RunningJob running) {
+        Semaphore slots = running.slots;
+        String cursor = running.job.getWatermark();
+        boolean changedOnly = IndexJob.CHANGED.equals(running.job.getMode());
+        long sequence = 0;
+
+        try {
+            while (!running.cancelled) {
+                List<RecipeDetails> page = recipeDao.getRecipeDetailsPage(cursor, batchSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+                cursor = page.get(page.size() - 1).getName();
+
+                List<RecipeDetails> toIndex = changedOnly ? vectorSearchService.filterChanged(page) : page;
+                Batch batch = new Batch(sequence++, page, toIndex, cursor);
+                running.read(batch);
+                if (batch.eligible == 0) {
+                    // Nothing to embed; complete in order without a trip through the pools
+                    running.completed(batch, 0, null);
+                    continue;
+                }
+
+                slots.acquire();
+                try {
+                    CompletableFuture
+                            .supplyAsync(() -> vectorSearchService.embedRecipes(toIndex), embeddingExecutor)
+                            .thenApplyAsync(embeddings -> vectorSearchService.upsertRecipes(toIndex, embeddings),
+                                    upsertExecutor)
+                            .whenComplete((indexed, error) -> {
+                                try {
+                                    running.completed(batch, indexed, error);
+                                } finally {
+                                    slots.release();
+                                }
+                            });
+                } catch (RejectedExecutionException e) {
+                    slots.release();
+                    throw e;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running.fatal("Interrupted");
+        } catch (Exception e) {
+            System.err.println("[Reindex] Reader failed: " + e.getMessage());
+            running.fatal(e.getMessage());
+        }
+
+        // Wait for in-flight pages so the final watermark reflects them
+        slots.acquireUninterruptibly(queueCapacity);
+        if (!running.cancelled) {
+            running.deleteStale();
+        }
+        running.finish();
+        current.compareAndSet(running, null);
+    }
+
+    private Map<String, Object> toProgress(IndexJob job, int inFlightBatches) {
+        long end = job.getFinishedAt() != null ? job.getFinishedAt() : System.currentTimeMillis();
+        long elapsedMs = Math.max(0, end - job.getStartedAt());
+        long processed = job.getIndexed() + job.getSkipped() + job.getUnchanged() + job.getFailed();
+        double rate = elapsedMs > 0 ? processed * 1000.0 / elapsedMs : 0.0;
+
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("id", job.getId());
+        progress.put("status", job.getStatus());
+        progress.put("mode", job.getMode());
+        progress.put("watermark", job.getWatermark());
+        progress.put("total", job.getTotal());
+        progress.put("read", job.getRead());
+        progress.put("indexed", job.getIndexed());
+        progress.put("skipped", job.getSkipped());
+        progress.put("unchanged", job.getUnchanged());
+        progress.put("deleted", job.getDeleted());
+        progress.put("failed", job.getFailed());
+        progress.put("inFlightBatches", inFlightBatches);
+        progress.put("elapsedMs", elapsedMs);
+        progress.put("recipesPerSecond", Math.round(rate * 10) / 10.0);
+        if (IndexJob.RUNNING.equals(job.getStatus()) && rate > 0) {
+            progress.put("etaSeconds", Math.round(Math.max(0, job.getTotal() - processed) / rate));
+        }
+        progress.put("startedAt", job.getStartedAt());
+        progress.put("finishedAt", job.getFinishedAt());
+        progress.put("error", job.getError());
+        progress.put("resumable", job.isResumable());
+        return progress;
+    }
+
+    private static ExecutorService newPool(int threads, String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * One page of recipes in flight. Of the page, {@code eligible} recipes are
+     * embedded, {@code skipped} have no ingredients and the rest are unchanged.
+     */
+    private static final class Batch {
+        private final long sequence;
+        private final String lastName;
+        private final int size;
+        private final int eligible;
+        private final int skipped;
+
+        private Batch(long sequence, List<RecipeDetails> page, List<RecipeDetails> toIndex, String lastName) {
+            this.sequence = sequence;
+            this.lastName = lastName;
+            this.size = page.size();
+            this.eligible = withIngredients(toIndex);
+            this.skipped = size - withIngredients(page);
+        }
+
+        private static int withIngredients(List<RecipeDetails> recipes) {
+            int count = 0;
+            for (RecipeDetails details : recipes) {
+                if (!details.getIngredients().isEmpty()) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Mutable state of the job being run. All updates to the job happen
+     * under this object's lock.
+     */
+    private final class RunningJob {
+        private final IndexJob job;
+        private final Semaphore slots;
+        private volatile boolean cancelled;
+
+        // Successful pages that finished ahead of an earlier one, by sequence
+        private final TreeMap<Long, Batch> completedAhead = new TreeMap<>();
+        private long nextSequence;
+        private int failedBatches;
+        private String lastError;
+        private String fatalError;
+
+        private RunningJob(IndexJob job, int capacity) {
+            this.job = job;
+            this.slots = new Semaphore(capacity);
+        }
+
+        private synchronized void read(Batch batch) {
+            job.setRead(job.getRead() + batch.size);
+        }
+
+        private synchronized void completed(Batch batch, Integer indexed, Throwable error) {
+            int written = error == null && indexed != null ? indexed : 0;
+            job.setIndexed(job.getIndexed() + written);
+            job.setSkipped(job.getSkipped() + batch.skipped);
+            job.setUnchanged(job.getUnchanged() + batch.size - batch.skipped - batch.eligible);
+
+            if (error != null || written < batch.eligible) {
+                // A failed page pins the watermark before it; resume retries from there
+                job.setFailed(job.getFailed() + batch.eligible - written);
+                failedBatches++;
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause()
+                        : error;
+                lastError = cause != null ? cause.getMessage()
+                        : (batch.eligible - written) + " embedding(s) failed";
+                System.err.println("[Reindex] Batch ending at '" + batch.lastName + "' failed: " + lastError);
+                return;
+            }
+
+            completedAhead.put(batch.sequence, batch);
+            boolean advanced = false;
+            Batch next;
+            while ((next = completedAhead.remove(nextSequence)) != null) {
+                job.setWatermark(next.lastName);
+                nextSequence++;
+                advanced = true;
+            }
+            if (advanced) {
+                job.setUpdatedAt(System.currentTimeMillis());
+                save();
+            }
+        }
+
+        private synchronized void fatal(String message) {
+            fatalError = message;
+        }
+
+        private void deleteStale() {
+            try {
+                int deleted = vectorSearchService.deleteStaleRecipes();
+                synchronized (this) {
+                    job.setDeleted(deleted);
+                }
+            } catch (Exception e) {
+                System.err.println("[Reindex] Could not delete stale vectors: " + e.getMessage());
+                fatal("Could not delete stale vectors: " + e.getMessage());
+            }
+        }
+
+        private synchronized void finish() {
+            long now = System.currentTimeMillis();
+            if (fatalError != null) {
+                job.setStatus(IndexJob.FAILED);
+                job.setError(fatalError);
+            } else if (failedBatches > 0) {
+                job.setStatus(IndexJob.FAILED);
+                job.setError(failedBatches + " batch(es) failed, last error: " + lastError);
+            } else if (cancelled) {
+                job.setStatus(IndexJob.CANCELLED);
+            } else {
+                job.setStatus(IndexJob.COMPLETED);
+            }
+            job.setUpdatedAt(now);
+            job.setFinishedAt(now);
+            save();
+
+            System.out.println("[Reindex] Job " + job.getId() + " " + job.getStatus() + ": indexed "
+                    + job.getIndexed() + ", unchanged " + job.getUnchanged() + ", skipped " + job.getSkipped()
+                    + ", deleted " + job.getDeleted() + ", failed " + job.getFailed()
+                    + " in " + (now - job.getStartedAt()) + " ms");
+        }
+
+        private synchronized Map<String, Object> progress() {
+            return toProgress(job, queueCapacity - slots.availablePermits());
+        }
+
+        private synchronized IndexJob snapshot() {
+            IndexJob copy = new IndexJob(job.getId(), job.getStatus(), job.getWatermark());
+            copy.setMode(job.getMode());
+            copy.setTotal(job.getTotal());
+            copy.setRead(job.getRead());
+            copy.setIndexed(job.getIndexed());
+            copy.setSkipped(job.getSkipped());
+            copy.setUnchanged(job.getUnchanged());
+            copy.setDeleted(job.getDeleted());
+            copy.setFailed(job.getFailed());
+            copy.setError(job.getError());
+            copy.setStartedAt(job.getStartedAt());
+            copy.setUpdatedAt(job.getUpdatedAt());
+            copy.setFinishedAt(job.getFinishedAt());
+            return copy;
+        }
+
+        private void save() {
+            try {
+                indexJobDao.save(job);
+            } catch (Exception e) {
+                System.err.println("[Reindex] Could not save job state: " + e.getMessage());
+            }
+        }
+    }
+}
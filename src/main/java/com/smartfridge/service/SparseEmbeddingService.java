@@ -11,6 +11,9 @@ import java.util.*;
  * Sparse vectors represent text as a set of (index, weight) pairs where:
  * - Index: Position in a vocabulary (using hash-based indexing)
  * - Weight: Term frequency or TF-IDF weight
+ *
+ * The underlying term maps are also exposed unhashed for the local BM25
+ * index (search.sparse=local).
  */
 @Service
 public class SparseEmbeddingService {
@@ -18,6 +21,11 @@ public class SparseEmbeddingService {
     // Use a large vocabulary space to minimize hash collisions
     private static final int VOCABULARY_SIZE = 100000;
 
+    // Field weights: name matches count most, then cuisine, then ingredients
+    private static final float NAME_WEIGHT = 2.0f;
+    private static final float INGREDIENT_WEIGHT = 1.0f;
+    private static final float CUISINE_WEIGHT = 1.5f;
+
     // Common stop words to filter out
     private static final Set<String> STOP_WORDS = Set.of(
             "a", "an", "the", "and", "or", "but", "in", "on", "at", "to", "for",
@@ -34,18 +42,7 @@ public class SparseEmbeddingService {
      * @return SparseVector with indices and values
      */
     public SparseVector generateFromIngredients(List<String> ingredients) {
-        Map<Integer, Float> sparseMap = new HashMap<>();
-
-        for (String ingredient : ingredients) {
-            List<String> tokens = tokenize(ingredient);
-            for (String token : tokens) {
-                int index = getVocabularyIndex(token);
-                // Increment term frequency
-                sparseMap.merge(index, 1.0f, Float::sum);
-            }
-        }
-
-        return mapToSparseVector(sparseMap);
+        return toSparseVector(termsFromIngredients(ingredients));
     }
 
     /**
@@ -58,34 +55,50 @@ public class SparseEmbeddingService {
      * @return SparseVector for the recipe
      */
     public SparseVector generateFromRecipe(String recipeName, List<String> ingredients, String cuisineType) {
-        Map<Integer, Float> sparseMap = new HashMap<>();
+        return toSparseVector(termsFromRecipe(recipeName, ingredients, cuisineType));
+    }
+
+    /**
+     * Term frequencies of an ingredient list, e.g. for a keyword query.
+     */
+    public Map<String, Float> termsFromIngredients(List<String> ingredients) {
+        Map<String, Float> terms = new HashMap<>();
+        for (String ingredient : ingredients) {
+            for (String token : tokenize(ingredient)) {
+                // Increment term frequency
+                terms.merge(token, 1.0f, Float::sum);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Term frequencies of a recipe, weighted by the field each term came
+     * from: name, ingredients or cuisine.
+     */
+    public Map<String, Float> termsFromRecipe(String recipeName, List<String> ingredients, String cuisineType) {
+        Map<String, Float> terms = new HashMap<>();
 
         // Add recipe name tokens with higher weight
-        List<String> nameTokens = tokenize(recipeName);
-        for (String token : nameTokens) {
-            int index = getVocabularyIndex(token);
-            sparseMap.merge(index, 2.0f, Float::sum); // Higher weight for recipe name
+        for (String token : tokenize(recipeName)) {
+            terms.merge(token, NAME_WEIGHT, Float::sum);
         }
 
         // Add ingredient tokens
         for (String ingredient : ingredients) {
-            List<String> tokens = tokenize(ingredient);
-            for (String token : tokens) {
-                int index = getVocabularyIndex(token);
-                sparseMap.merge(index, 1.0f, Float::sum);
+            for (String token : tokenize(ingredient)) {
+                terms.merge(token, INGREDIENT_WEIGHT, Float::sum);
             }
         }
 
         // Add cuisine type if present
         if (cuisineType != null && !cuisineType.isEmpty()) {
-            List<String> cuisineTokens = tokenize(cuisineType);
-            for (String token : cuisineTokens) {
-                int index = getVocabularyIndex(token);
-                sparseMap.merge(index, 1.5f, Float::sum); // Medium weight for cuisine
+            for (String token : tokenize(cuisineType)) {
+                terms.merge(token, CUISINE_WEIGHT, Float::sum);
             }
         }
 
-        return mapToSparseVector(sparseMap);
+        return terms;
     }
 
     /**
@@ -124,9 +137,14 @@ public class SparseEmbeddingService {
     }
 
     /**
-     * Convert a sparse map to SparseVector format.
+     * Hash terms into vocabulary indices; terms sharing an index are summed.
      */
-    private SparseVector mapToSparseVector(Map<Integer, Float> sparseMap) {
+    private SparseVector toSparseVector(Map<String, Float> terms) {
+        Map<Integer, Float> sparseMap = new HashMap<>();
+        for (Map.Entry<String, Float> term : terms.entrySet()) {
+            sparseMap.merge(getVocabularyIndex(term.getKey()), term.getValue(), Float::sum);
+        }
+
         int[] indices = new int[sparseMap.size()];
         float[] values = new float[sparseMap.size()];
 
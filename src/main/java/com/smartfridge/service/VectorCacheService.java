@@ -4,6 +4,7 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
@@ -12,6 +13,7 @@ import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -26,70 +28,69 @@ import java.util.concurrent.TimeUnit;
 @Service
 public class VectorCacheService {
 
-    private static final String EMBEDDING_KEY_PREFIX = "vector:embedding:";
+    // v2: binary vectors (see BinaryVectorSerializer); v1 JSON entries simply expire
+    private static final String EMBEDDING_KEY_PREFIX = "vector:embedding:v2:";
     private static final String SEARCH_KEY_PREFIX = "vector:search:";
+    private static final String SUBSTITUTION_KEY_PREFIX = "substitution:v1:";
 
     @Value("${vector.cache.ttl:3600}")
     private long cacheTtlSeconds;
 
+    @Value("${ai.substitutions.cache.ttl:86400}")
+    private long substitutionTtlSeconds;
+
     @Autowired
-    private RedisTemplate<String, List<Double>> vectorRedisTemplate;
+    private RedisTemplate<String, float[]> vectorRedisTemplate;
 
     @Autowired
     private RedisTemplate<String, String> searchResultRedisTemplate;
 
+    @Autowired
+    private HealthService healthService;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private boolean available = false;
 
     @PostConstruct
     public void initialize() {
-        try {
-            // Test Redis connection
-            var connectionFactory = vectorRedisTemplate.getConnectionFactory();
-            if (connectionFactory == null) {
-                throw new IllegalStateException("Redis connection factory is null");
-            }
-            connectionFactory.getConnection().ping();
-            available = true;
+        if (isAvailable()) {
             System.out.println("VectorCacheService initialized successfully. TTL: " + cacheTtlSeconds + "s");
-        } catch (Exception e) {
-            System.err.println("Redis not available, caching disabled: " + e.getMessage());
-            available = false;
+        } else {
+            System.err.println("Redis not available, caching disabled until it is reachable");
         }
     }
 
     /**
-     * Check if Redis cache is available.
+     * Check if Redis cache is available. Reads the cached status maintained
+     * by HealthService, which also re-enables caching once Redis recovers.
      */
     public boolean isAvailable() {
-        return available;
+        return healthService.isUp(HealthService.REDIS);
     }
 
     /**
      * Get cached embedding vector for a query.
      * 
-     * @param query The search query text
+     * @param model The embedding model that produced the vector
+     * @param query The normalized query text
      * @return Cached embedding as float array, or null if not cached
      */
-    public float[] getCachedEmbedding(String query) {
-        if (!available || query == null) {
+    public float[] getCachedEmbedding(String model, String query) {
+        if (!isAvailable() || query == null) {
             return null;
         }
 
         try {
-            String key = buildEmbeddingKey(query);
-            List<Double> cached = vectorRedisTemplate.opsForValue().get(key);
+            String key = buildEmbeddingKey(model, query);
+            float[] cached = vectorRedisTemplate.opsForValue().get(key);
+            recordSuccess();
 
-            if (cached != null && !cached.isEmpty()) {
+            if (cached != null && cached.length > 0) {
                 System.out.println("[VectorCache] Embedding cache HIT for: " + truncateQuery(query));
-                float[] result = new float[cached.size()];
-                for (int i = 0; i < cached.size(); i++) {
-                    result[i] = cached.get(i).floatValue();
-                }
-                return result;
+                return cached;
             }
         } catch (Exception e) {
             System.err.println("[VectorCache] Error reading embedding cache: " + e.getMessage());
+            recordFailure(e);
         }
 
         System.out.println("[VectorCache] Embedding cache MISS for: " + truncateQuery(query));
@@ -99,25 +100,23 @@ public class VectorCacheService {
     /**
      * Cache an embedding vector for a query.
      * 
-     * @param query     The search query text
+     * @param model     The embedding model that produced the vector
+     * @param query     The normalized query text
      * @param embedding The embedding vector to cache
      */
-    public void cacheEmbedding(String query, float[] embedding) {
-        if (!available || query == null || embedding == null) {
+    public void cacheEmbedding(String model, String query, float[] embedding) {
+        if (!isAvailable() || query == null || embedding == null) {
             return;
         }
 
         try {
-            String key = buildEmbeddingKey(query);
-            List<Double> vectorList = new ArrayList<>(embedding.length);
-            for (float v : embedding) {
-                vectorList.add((double) v);
-            }
-
-            vectorRedisTemplate.opsForValue().set(key, vectorList, cacheTtlSeconds, TimeUnit.SECONDS);
+            String key = buildEmbeddingKey(model, query);
+            vectorRedisTemplate.opsForValue().set(key, embedding, cacheTtlSeconds, TimeUnit.SECONDS);
+            recordSuccess();
             System.out.println("[VectorCache] Cached embedding for: " + truncateQuery(query));
         } catch (Exception e) {
             System.err.println("[VectorCache] Error caching embedding: " + e.getMessage());
+            recordFailure(e);
         }
     }
 
@@ -128,13 +127,14 @@ public class VectorCacheService {
      * @return Cached search results, or null if not cached
      */
     public List<VectorSearchService.SearchResult> getCachedSearchResults(String cacheKey) {
-        if (!available || cacheKey == null) {
+        if (!isAvailable() || cacheKey == null) {
             return null;
         }
 
         try {
             String key = SEARCH_KEY_PREFIX + hashKey(cacheKey);
             String cachedJson = searchResultRedisTemplate.opsForValue().get(key);
+            recordSuccess();
 
             if (cachedJson != null && !cachedJson.isEmpty()) {
                 System.out.println("[VectorCache] Search cache HIT for key: " + truncateQuery(cacheKey));
@@ -144,6 +144,7 @@ public class VectorCacheService {
             }
         } catch (Exception e) {
             System.err.println("[VectorCache] Error reading search cache: " + e.getMessage());
+            recordFailure(e);
         }
 
         System.out.println("[VectorCache] Search cache MISS for key: " + truncateQuery(cacheKey));
@@ -157,7 +158,7 @@ public class VectorCacheService {
      * @param results  The search results to cache
      */
     public void cacheSearchResults(String cacheKey, List<VectorSearchService.SearchResult> results) {
-        if (!available || cacheKey == null || results == null) {
+        if (!isAvailable() || cacheKey == null || results == null) {
             return;
         }
 
@@ -166,10 +167,60 @@ public class VectorCacheService {
             String json = objectMapper.writeValueAsString(results);
 
             searchResultRedisTemplate.opsForValue().set(key, json, cacheTtlSeconds, TimeUnit.SECONDS);
+            recordSuccess();
             System.out.println("[VectorCache] Cached " + results.size() + " search results for key: "
                     + truncateQuery(cacheKey));
         } catch (Exception e) {
             System.err.println("[VectorCache] Error caching search results: " + e.getMessage());
+            recordFailure(e);
+        }
+    }
+
+    /**
+     * Get cached AI substitutes (ingredient, confidence, reasoning maps).
+     * 
+     * @param cacheKey The cache key (ingredient, cuisine and fridge fingerprint)
+     * @return Cached substitutes, or null if not cached
+     */
+    public List<Map<String, Object>> getCachedSubstitutes(String cacheKey) {
+        if (!isAvailable() || cacheKey == null) {
+            return null;
+        }
+
+        try {
+            String cachedJson = searchResultRedisTemplate.opsForValue()
+                    .get(SUBSTITUTION_KEY_PREFIX + hashKey(cacheKey));
+            recordSuccess();
+            if (cachedJson != null && !cachedJson.isEmpty()) {
+                return objectMapper.readValue(cachedJson, new TypeReference<List<Map<String, Object>>>() {
+                });
+            }
+        } catch (Exception e) {
+            System.err.println("[VectorCache] Error reading substitution cache: " + e.getMessage());
+            recordFailure(e);
+        }
+        return null;
+    }
+
+    /**
+     * Cache AI substitutes for ai.substitutions.cache.ttl seconds.
+     * 
+     * @param cacheKey    The cache key (ingredient, cuisine and fridge fingerprint)
+     * @param substitutes The substitutes to cache (may be empty)
+     */
+    public void cacheSubstitutes(String cacheKey, List<Map<String, Object>> substitutes) {
+        if (!isAvailable() || cacheKey == null || substitutes == null) {
+            return;
+        }
+
+        try {
+            String json = objectMapper.writeValueAsString(substitutes);
+            searchResultRedisTemplate.opsForValue().set(SUBSTITUTION_KEY_PREFIX + hashKey(cacheKey), json,
+                    substitutionTtlSeconds, TimeUnit.SECONDS);
+            recordSuccess();
+        } catch (Exception e) {
+            System.err.println("[VectorCache] Error caching substitutes: " + e.getMessage());
+            recordFailure(e);
         }
     }
 
@@ -179,18 +230,20 @@ public class VectorCacheService {
      * @param pattern The pattern to match (e.g., "vector:*")
      */
     public void evictCacheByPattern(String pattern) {
-        if (!available) {
+        if (!isAvailable()) {
             return;
         }
 
         try {
             var keys = searchResultRedisTemplate.keys(pattern);
+            recordSuccess();
             if (keys != null && !keys.isEmpty()) {
                 searchResultRedisTemplate.delete(keys);
                 System.out.println("[VectorCache] Evicted " + keys.size() + " keys matching: " + pattern);
             }
         } catch (Exception e) {
             System.err.println("[VectorCache] Error evicting cache: " + e.getMessage());
+            recordFailure(e);
         }
     }
 
@@ -222,8 +275,25 @@ public class VectorCacheService {
         return sb.toString();
     }
 
-    private String buildEmbeddingKey(String query) {
-        return EMBEDDING_KEY_PREFIX + hashKey(query);
+    /**
+     * Report a Redis round-trip that worked to the health state.
+     */
+    private void recordSuccess() {
+        healthService.get(HealthService.REDIS).recordSuccess();
+    }
+
+    /**
+     * Report Redis errors (not serialization errors) to the health state.
+     */
+    private void recordFailure(Exception e) {
+        if (e instanceof DataAccessException) {
+            healthService.get(HealthService.REDIS).recordFailure(e.getMessage());
+        }
+    }
+
+    private String buildEmbeddingKey(String model, String query) {
+        // Vectors from different models are not interchangeable
+        return EMBEDDING_KEY_PREFIX + model + ":" + hashKey(query);
     }
 
     /**
@@ -1,24 +1,58 @@
 package com.smartfridge.service;
 
 import com.smartfridge.dao.RecipeDao;
+import com.smartfridge.dao.RecipeEmbeddingDao;
 import com.smartfridge.model.RecipeDetails;
+import com.smartfridge.resilience.Deadline;
+import com.smartfridge.resilience.DependencyUnavailableException;
+import com.smartfridge.search.RrfRanker;
+import com.smartfridge.vector.Bm25Index;
+import com.smartfridge.vector.ExactVectorIndex;
+import com.smartfridge.vector.HnswVectorIndex;
+import com.smartfridge.vector.QdrantCodec;
+import com.smartfridge.vector.VectorIndex;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RequestCallback;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.http.*;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
 /**
  * Service for vector-based semantic search using Qdrant REST API.
  * Stores recipe embeddings and provides similarity search.
+ *
+ * With vector.store=local, dense vectors are kept in an embedded
+ * {@link ExactVectorIndex} or {@link HnswVectorIndex} instead and no Qdrant
+ * calls are made; hybrid search then fuses the query and ingredient
+ * rankings locally.
+ *
+ * With search.sparse=local, the keyword side of hybrid search comes from an
+ * in-memory {@link Bm25Index} built from the recipe tables, and the fusion
+ * with the dense ranking (local or Qdrant) also happens here.
+ *
+ * With search.fusion=local, hybrid rankings are always fused here by an
+ * {@link RrfRanker}, and the recipes cookable or almost cookable from the
+ * fridge among their candidates get weighted cookability votes.
  */
 @Service
 public class VectorSearchService {
@@ -27,12 +61,82 @@ public class VectorSearchService {
     private static final String COLLECTION_NAME = "recipes_v3";
     private static final int VECTOR_SIZE = 1536; // text-embedding-3-small dimension
 
+    // Candidates per ranking before fusion
+    private static final int PREFETCH_LIMIT = 50;
+
     @Value("${qdrant.host:localhost}")
     private String qdrantHost;
 
     @Value("${qdrant.port:6333}")
     private int qdrantPort;
 
+    // Recipes read, embedded and upserted together when indexing in bulk
+    @Value("${vector.index.batch-size:100}")
+    private int indexBatchSize;
+
+    // Time budget for one search, including the query embedding
+    @Value("${search.deadline-ms:3000}")
+    private long searchDeadlineMs;
+
+    // Where dense vectors live: qdrant, or local (embedded exact index, no Qdrant needed)
+    @Value("${vector.store:qdrant}")
+    private String vectorStore;
+
+    @Value("${vector.local.path:data/vectors}")
+    private String localIndexPath;
+
+    // Threads per local scan; 0 uses one per CPU
+    @Value("${vector.local.parallelism:0}")
+    private int localParallelism;
+
+    // Local index type: exact (full scan) or hnsw (approximate graph search)
+    @Value("${vector.local.index:exact}")
+    private String localIndexType;
+
+    @Value("${vector.local.hnsw.m:16}")
+    private int hnswM;
+
+    @Value("${vector.local.hnsw.ef-construction:100}")
+    private int hnswEfConstruction;
+
+    @Value("${vector.local.hnsw.ef-search:64}")
+    private int hnswEfSearch;
+
+    // Keyword side of hybrid search: qdrant (hashed sparse vectors) or local (embedded BM25 index)
+    @Value("${search.sparse:qdrant}")
+    private String sparseSearch;
+
+    @Value("${search.sparse.bm25.k1:1.2}")
+    private float bm25K1;
+
+    @Value("${search.sparse.bm25.b:0.75}")
+    private float bm25B;
+
+    // Where hybrid rankings are fused: qdrant (in the query when Qdrant serves
+    // both rankings) or local (here, with the fridge's cookability as signals)
+    @Value("${search.fusion:qdrant}")
+    private String fusionMode;
+
+    // Same as Qdrant's RRF constant by default, so hybrid score thresholds mean
+    // the same thing wherever the fusion happens
+    @Value("${search.fusion.rrf-k:2}")
+    private int rrfK;
+
+    @Value("${search.fusion.weight.dense:1.0}")
+    private float denseWeight;
+
+    @Value("${search.fusion.weight.sparse:1.0}")
+    private float sparseWeight;
+
+    @Value("${search.fusion.weight.cookable:0.5}")
+    private float cookableWeight;
+
+    @Value("${search.fusion.weight.almost-cookable:0.25}")
+    private float almostCookableWeight;
+
+    @Value("${search.fusion.almost-cookable.max-missing:2}")
+    private int almostCookableMaxMissing;
+
     @Autowired
     private EmbeddingService embeddingService;
 
@@ -42,18 +146,54 @@ public class VectorSearchService {
     @Autowired
     private RecipeDao recipeDao;
 
+    @Autowired
+    private RecipeEmbeddingDao recipeEmbeddingDao;
+
     @Autowired
     private VectorCacheService vectorCacheService;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private HealthService healthService;
+
+    @Autowired
+    private RecipeService recipeService;
+
+    @Autowired
+    @Qualifier("qdrantRestTemplate")
+    private RestTemplate restTemplate;
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private boolean initialized = false;
+    private volatile boolean initialized = false;
+    private VectorIndex localIndex;
+    private Bm25Index keywordIndex;
+    private RrfRanker ranker;
 
     /**
-     * Initialize Qdrant collection on startup.
+     * Initialize Qdrant collection (or the local index) on startup.
      */
     @PostConstruct
     public void initialize() {
+        ranker = new RrfRanker(rrfK);
+        if ("local".equalsIgnoreCase(sparseSearch)) {
+            buildKeywordIndex();
+        }
+        if ("local".equalsIgnoreCase(vectorStore)) {
+            openLocalIndex();
+            return;
+        }
+
+        // Qdrant was down at startup: set up the collection once it comes back
+        healthService.get(HealthService.QDRANT).onRecovery(() -> {
+            if (!initialized) {
+                connect();
+            }
+        });
+        connect();
+    }
+
+    private synchronized void connect() {
+        if (initialized) {
+            return;
+        }
         try {
             // Check if Qdrant is reachable
             String healthUrl = getBaseUrl() + "/";
@@ -69,15 +209,111 @@ public class VectorSearchService {
         }
     }
 
+    @PreDestroy
+    public void shutdown() {
+        if (localIndex != null) {
+            try {
+                localIndex.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close local vector index: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Open the embedded index and reconcile it with recipe_embeddings.
+     * Recipes recorded as indexed but missing from the index files (after
+     * switching from Qdrant, or deleting vector.local.path) are forgotten, so
+     * the next incremental re-index embeds them again.
+     */
+    private void openLocalIndex() {
+        try {
+            if ("hnsw".equalsIgnoreCase(localIndexType)) {
+                localIndex = new HnswVectorIndex(Paths.get(localIndexPath), VECTOR_SIZE, hnswM, hnswEfConstruction,
+                        hnswEfSearch);
+            } else {
+                int parallelism = localParallelism > 0 ? localParallelism : Runtime.getRuntime().availableProcessors();
+                localIndex = new ExactVectorIndex(Paths.get(localIndexPath), VECTOR_SIZE, parallelism);
+            }
+
+            Set<String> stored = localIndex.keys();
+            Set<String> recorded = new HashSet<>(recipeEmbeddingDao.findIndexedRecipes());
+            List<String> missing = new ArrayList<>();
+            for (String recipeName : recorded) {
+                if (!stored.contains(recipeName)) {
+                    missing.add(recipeName);
+                }
+            }
+            List<String> orphaned = new ArrayList<>();
+            for (String recipeName : stored) {
+                if (!recorded.contains(recipeName)) {
+                    orphaned.add(recipeName);
+                }
+            }
+            if (!missing.isEmpty()) {
+                recipeEmbeddingDao.deleteAll(missing);
+                System.out.println(missing.size() + " recipes are not in the local vector index; run a re-index");
+            }
+            localIndex.removeAll(orphaned);
+
+            initialized = true;
+            System.out.println("VectorSearchService using local " + localIndexType + " vector index at "
+                    + localIndexPath + " (" + localIndex.size() + " vectors)");
+        } catch (Exception e) {
+            System.err.println("Failed to open local vector index: " + e.getMessage());
+            System.err.println("Semantic search will be unavailable.");
+        }
+    }
+
+    /**
+     * Build the BM25 index from every recipe with ingredients. It lives in
+     * memory only; upsertRecipes and removeRecipes keep it current.
+     */
+    private void buildKeywordIndex() {
+        try {
+            long start = System.currentTimeMillis();
+            Bm25Index index = new Bm25Index(bm25K1, bm25B);
+            String cursor = null;
+            List<RecipeDetails> page;
+            while (!(page = recipeDao.getRecipeDetailsPage(cursor, indexBatchSize)).isEmpty()) {
+                cursor = page.get(page.size() - 1).getName();
+                index.putAll(keywordTerms(page));
+            }
+            keywordIndex = index;
+            System.out.println("[INFO] Built BM25 keyword index over " + index.size() + " recipes in "
+                    + (System.currentTimeMillis() - start) + "ms");
+        } catch (Exception e) {
+            System.err.println("[ERROR] Failed to build BM25 keyword index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Field-weighted terms of each recipe with ingredients.
+     */
+    private Map<String, Map<String, Float>> keywordTerms(List<RecipeDetails> recipes) {
+        Map<String, Map<String, Float>> documents = new LinkedHashMap<>();
+        for (RecipeDetails details : recipes) {
+            if (!details.getIngredients().isEmpty()) {
+                documents.put(details.getName(), sparseEmbeddingService.termsFromRecipe(details.getName(),
+                        details.getIngredients(),
+                        details.getCuisineType() != null ? details.getCuisineType().name() : null));
+            }
+        }
+        return documents;
+    }
+
     private String getBaseUrl() {
         return "http://" + qdrantHost + ":" + qdrantPort;
     }
 
     /**
-     * Check if the service is available.
+     * Check if the service is available. Reads cached health state only.
      */
     public boolean isAvailable() {
-        return initialized && embeddingService.isAvailable();
+        if (localIndex != null) {
+            return initialized && embeddingService.isAvailable();
+        }
+        return initialized && healthService.isUp(HealthService.QDRANT) && embeddingService.isAvailable();
     }
 
     /**
@@ -135,145 +371,253 @@ public class VectorSearchService {
     }
 
     /**
-     * Index a single recipe into Qdrant.
-     */
-    /**
-     * Index a single recipe into Qdrant with both dense and sparse vectors.
+     * Index all recipes from the database into Qdrant.
+     * Recipes are read a page at a time; each page is embedded with batched
+     * /embeddings calls and written with one multi-point upsert.
+     * Returns the number of recipes indexed.
      */
-    public void indexRecipe(String recipeName) {
+    public int indexAllRecipes() {
         if (!initialized) {
-            System.err.println("VectorSearchService not initialized, skipping indexing");
-            return;
+            System.err.println("VectorSearchService not initialized");
+            return 0;
         }
 
+        int count = 0;
+        long start = System.currentTimeMillis();
         try {
-            RecipeDetails details = recipeDao.getRecipeDetails(recipeName);
-            if (details == null) {
-                System.err.println("Recipe not found: " + recipeName);
-                return;
+            String cursor = null;
+            List<RecipeDetails> page;
+            while (!(page = recipeDao.getRecipeDetailsPage(cursor, indexBatchSize)).isEmpty()) {
+                cursor = page.get(page.size() - 1).getName();
+                count += indexBatch(page);
             }
+            deleteStaleRecipes();
 
-            // Generate dense embedding for semantic search
-            String recipeText = embeddingService.createRecipeText(
-                    details.getName(),
-                    details.getIngredients(),
-                    details.getCuisineType() != null ? details.getCuisineType().name() : null,
-                    details.getInstructions());
+            System.out.println("Indexed " + count + " recipes in " + (System.currentTimeMillis() - start) + " ms");
+        } catch (Exception e) {
+            System.err.println("Error indexing all recipes: " + e.getMessage());
+        }
 
-            float[] denseEmbedding = embeddingService.generateEmbedding(recipeText);
-            if (denseEmbedding == null) {
-                System.err.println("Failed to generate dense embedding for: " + recipeName);
-                return;
-            }
+        return count;
+    }
 
-            // Generate sparse embedding for keyword matching
-            SparseEmbeddingService.SparseVector sparseVector = sparseEmbeddingService.generateFromRecipe(
-                    details.getName(),
-                    details.getIngredients(),
-                    details.getCuisineType() != null ? details.getCuisineType().name() : null);
+    /**
+     * Embed and upsert a batch of recipes. Recipes without ingredients or
+     * whose embedding failed are skipped. Returns the number upserted.
+     */
+    private int indexBatch(List<RecipeDetails> recipes) {
+        return upsertRecipes(recipes, embedRecipes(recipes));
+    }
 
-            // Use recipe name hash as point ID
-            long pointId = Math.abs(recipeName.hashCode());
+    /**
+     * Recipes from the batch whose recipe text or embedding model differs from
+     * what recipe_embeddings recorded when they were last indexed. Recipes
+     * without ingredients are never returned.
+     */
+    public List<RecipeDetails> filterChanged(List<RecipeDetails> recipes) {
+        List<String> names = new ArrayList<>();
+        for (RecipeDetails details : recipes) {
+            names.add(details.getName());
+        }
+        Map<String, String> indexed = recipeEmbeddingDao.findContentHashes(names, embeddingService.getModelVersion());
 
-            // Build upsert request with named vectors
-            String url = getBaseUrl() + "/collections/" + COLLECTION_NAME + "/points";
+        List<RecipeDetails> changed = new ArrayList<>();
+        for (RecipeDetails details : recipes) {
+            if (!details.getIngredients().isEmpty()
+                    && !contentHash(createRecipeText(details)).equals(indexed.get(details.getName()))) {
+                changed.add(details);
+            }
+        }
+        return changed;
+    }
 
-            ObjectNode request = objectMapper.createObjectNode();
-            ArrayNode points = objectMapper.createArrayNode();
+    /**
+     * Delete vectors and metadata for indexed recipes that were removed or
+     * lost all their ingredients. Returns the number deleted.
+     */
+    public int deleteStaleRecipes() {
+        List<String> stale = recipeEmbeddingDao.findStale();
+        if (stale.isEmpty()) {
+            return 0;
+        }
+        removeRecipes(stale);
+        System.out.println("Deleted " + stale.size() + " stale recipes from index");
+        return stale.size();
+    }
 
-            ObjectNode point = objectMapper.createObjectNode();
-            point.put("id", pointId);
+    /**
+     * Generate dense embeddings for a batch of recipes with batched
+     * /embeddings calls. Returns recipe name to vector; recipes without
+     * ingredients or whose embedding failed are absent.
+     */
+    public Map<String, float[]> embedRecipes(List<RecipeDetails> recipes) {
+        Map<String, String> texts = new LinkedHashMap<>();
+        for (RecipeDetails details : recipes) {
+            if (!details.getIngredients().isEmpty()) {
+                texts.put(details.getName(), createRecipeText(details));
+            }
+        }
+        if (texts.isEmpty()) {
+            return Collections.emptyMap();
+        }
 
-            // Named vectors object
-            ObjectNode vectorsNode = objectMapper.createObjectNode();
+        Map<String, float[]> embeddings = embeddingService.generateEmbeddings(new ArrayList<>(texts.values()));
 
-            // Dense vector
-            ArrayNode denseArray = objectMapper.createArrayNode();
-            for (float v : denseEmbedding) {
-                denseArray.add(v);
+        Map<String, float[]> byName = new HashMap<>();
+        for (Map.Entry<String, String> entry : texts.entrySet()) {
+            float[] denseEmbedding = embeddings.get(entry.getValue());
+            if (denseEmbedding == null) {
+                System.err.println("Failed to generate dense embedding for: " + entry.getKey());
+                continue;
             }
-            vectorsNode.set("dense", denseArray);
+            byName.put(entry.getKey(), denseEmbedding);
+        }
+        return byName;
+    }
 
-            // Sparse vector (indices + values)
-            if (!sparseVector.isEmpty()) {
-                ObjectNode sparseNode = objectMapper.createObjectNode();
-                ArrayNode indicesArray = objectMapper.createArrayNode();
-                ArrayNode valuesArray = objectMapper.createArrayNode();
-                for (int idx : sparseVector.getIndices()) {
-                    indicesArray.add(idx);
-                }
-                for (float val : sparseVector.getValues()) {
-                    valuesArray.add(val);
-                }
-                sparseNode.set("indices", indicesArray);
-                sparseNode.set("values", valuesArray);
-                vectorsNode.set("sparse", sparseNode);
+    /**
+     * Upsert the recipes that have an embedding in one request (or one local
+     * index write) and record them in recipe_embeddings. Returns the number
+     * of points written; throws if the vector store rejects the batch.
+     */
+    public int upsertRecipes(List<RecipeDetails> recipes, Map<String, float[]> embeddings) {
+        if (keywordIndex != null) {
+            keywordIndex.putAll(keywordTerms(recipes));
+        }
+        Map<String, float[]> vectors = new LinkedHashMap<>();
+        List<RecipeDetails> points = new ArrayList<>();
+        List<RecipeEmbeddingDao.Entry> entries = new ArrayList<>();
+        for (RecipeDetails details : recipes) {
+            float[] denseEmbedding = embeddings.get(details.getName());
+            if (denseEmbedding != null) {
+                vectors.put(details.getName(), denseEmbedding);
+                points.add(details);
+                entries.add(new RecipeEmbeddingDao.Entry(details.getName(),
+                        String.valueOf(pointId(details.getName())), embeddingService.getModelVersion(),
+                        contentHash(createRecipeText(details))));
             }
+        }
 
-            point.set("vector", vectorsNode);
-
-            // Payload with recipe metadata
-            ObjectNode payload = objectMapper.createObjectNode();
-            payload.put("recipe_name", recipeName);
-            payload.put("cuisine_type", details.getCuisineType() != null ? details.getCuisineType().name() : "OTHER");
-            payload.put("model_version", embeddingService.getModelVersion());
-
-            // Store ingredients list for display
-            ArrayNode ingredientsArray = objectMapper.createArrayNode();
-            for (String ing : details.getIngredients()) {
-                ingredientsArray.add(ing);
+        if (vectors.isEmpty()) {
+            return 0;
+        }
+        if (localIndex != null) {
+            try {
+                localIndex.putAll(vectors);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to write local vector index", e);
             }
-            payload.set("ingredients", ingredientsArray);
-            point.set("payload", payload);
-
-            points.add(point);
-            request.set("points", points);
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            HttpEntity<String> entity = new HttpEntity<>(request.toString(), headers);
-
-            restTemplate.exchange(url, HttpMethod.PUT, entity, String.class);
-            System.out.println("Indexed recipe with dual vectors: " + recipeName);
-        } catch (Exception e) {
-            System.err.println("Error indexing recipe: " + e.getMessage());
-            e.printStackTrace();
+        } else {
+            upsertPoints(points, vectors);
         }
+        recipeEmbeddingDao.saveAll(entries);
+        return vectors.size();
     }
 
     /**
-     * Index all recipes from the database into Qdrant.
+     * Recipe text for embedding. Ingredients are sorted so the text (and its
+     * content hash) does not depend on the order rows came back from SQLite.
      */
-    public int indexAllRecipes() {
-        if (!initialized) {
-            System.err.println("VectorSearchService not initialized");
-            return 0;
+    private String createRecipeText(RecipeDetails details) {
+        List<String> ingredients = new ArrayList<>(details.getIngredients());
+        Collections.sort(ingredients);
+        return embeddingService.createRecipeText(
+                details.getName(),
+                ingredients,
+                details.getCuisineType() != null ? details.getCuisineType().name() : null,
+                details.getInstructions());
+    }
+
+    /**
+     * Write a Qdrant point with named dense + sparse vectors and the recipe payload.
+     */
+    private void writePoint(JsonGenerator json, RecipeDetails details, float[] denseEmbedding) throws IOException {
+        String recipeName = details.getName();
+        String cuisineType = details.getCuisineType() != null ? details.getCuisineType().name() : null;
+
+        // Generate sparse embedding for keyword matching
+        SparseEmbeddingService.SparseVector sparseVector = sparseEmbeddingService.generateFromRecipe(
+                recipeName, details.getIngredients(), cuisineType);
+
+        json.writeStartObject();
+        // Use recipe name hash as point ID
+        json.writeNumberField("id", pointId(recipeName));
+
+        // Named vectors object
+        json.writeObjectFieldStart("vector");
+        json.writeFieldName("dense");
+        QdrantCodec.writeFloats(json, denseEmbedding);
+
+        // Sparse vector (indices + values)
+        if (!sparseVector.isEmpty()) {
+            json.writeFieldName("sparse");
+            writeSparseVector(json, sparseVector);
+        }
+        json.writeEndObject();
+
+        // Payload with recipe metadata
+        json.writeObjectFieldStart("payload");
+        json.writeStringField("recipe_name", recipeName);
+        json.writeStringField("cuisine_type", cuisineType != null ? cuisineType : "OTHER");
+        json.writeStringField("model_version", embeddingService.getModelVersion());
+
+        // Store ingredients list for display
+        json.writeArrayFieldStart("ingredients");
+        for (String ing : details.getIngredients()) {
+            json.writeString(ing);
         }
+        json.writeEndArray();
+        json.writeEndObject();
 
-        int count = 0;
-        try {
-            Map<String, List<com.smartfridge.model.RecipeSimple>> recipesByCuisine = recipeDao.getAllRecipesByCuisine();
+        json.writeEndObject();
+    }
 
-            for (List<com.smartfridge.model.RecipeSimple> recipes : recipesByCuisine.values()) {
-                for (com.smartfridge.model.RecipeSimple recipe : recipes) {
-                    indexRecipe(recipe.getName());
-                    count++;
-                }
+    /**
+     * Upsert a batch of points in one request, streaming the JSON body.
+     */
+    private void upsertPoints(List<RecipeDetails> points, Map<String, float[]> vectors) {
+        String url = getBaseUrl() + "/collections/" + COLLECTION_NAME + "/points";
+
+        try (QdrantCodec.Request body = QdrantCodec.request()) {
+            JsonGenerator json = body.json();
+            json.writeStartObject();
+            json.writeArrayFieldStart("points");
+            for (RecipeDetails details : points) {
+                writePoint(json, details, vectors.get(details.getName()));
             }
+            json.writeEndArray();
+            json.writeEndObject();
 
-            System.out.println("Indexed " + count + " recipes");
-        } catch (Exception e) {
-            System.err.println("Error indexing all recipes: " + e.getMessage());
+            restTemplate.execute(url, HttpMethod.PUT, jsonBody(body), null);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write upsert request", e);
         }
+    }
 
-        return count;
+    private long pointId(String recipeName) {
+        return Math.abs(recipeName.hashCode());
+    }
+
+    private String contentHash(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 
     /**
      * Search for similar recipes using semantic similarity.
      * Only returns results with score above minimum threshold.
+     * Throws DependencyUnavailableException if OpenAI or Qdrant cannot
+     * answer within the search deadline.
      */
     public List<SearchResult> searchSimilar(String query, int topK) {
+        return Deadline.within(searchDeadlineMs, () -> doSearchSimilar(query, topK));
+    }
+
+    private List<SearchResult> doSearchSimilar(String query, int topK) {
         List<SearchResult> results = new ArrayList<>();
         final float MIN_SCORE_THRESHOLD = 0.5f; // Minimum relevance score (0-1)
 
@@ -282,61 +626,186 @@ public class VectorSearchService {
             return results;
         }
 
-        try {
-            float[] queryEmbedding = embeddingService.generateEmbedding(query);
-            if (queryEmbedding == null) {
-                System.err.println("Failed to generate query embedding");
-                return results;
+        float[] queryEmbedding = embeddingService.generateEmbedding(query);
+        if (queryEmbedding == null) {
+            throw new DependencyUnavailableException(HealthService.OPENAI, "query embedding failed");
+        }
+
+        List<SearchResult> candidates = localIndex != null
+                ? searchLocal(queryEmbedding, topK, MIN_SCORE_THRESHOLD)
+                : searchQdrant(queryEmbedding, topK, MIN_SCORE_THRESHOLD);
+
+        for (SearchResult candidate : candidates) {
+            // Double-check threshold (some Qdrant versions ignore score_threshold)
+            if (candidate.getScore() >= MIN_SCORE_THRESHOLD) {
+                // NEW: Keyword filtering - ensure recipe contains important keywords from query
+                if (containsImportantKeywords(candidate.getRecipeName(), query)) {
+                    results.add(candidate);
+                } else {
+                    System.out.println("[FILTER] Skipping '" + candidate.getRecipeName()
+                            + "' - no keyword match for '" + query + "'");
+                }
             }
+        }
+
+        return results;
+    }
+
+    /**
+     * Nearest recipes to a query vector from the local index, best first.
+     */
+    private List<SearchResult> searchLocal(float[] queryEmbedding, int limit, float minScore) {
+        List<VectorIndex.Hit> hits = localIndex.search(queryEmbedding, limit, minScore);
+        List<String> names = new ArrayList<>();
+        for (VectorIndex.Hit hit : hits) {
+            names.add(hit.getKey());
+        }
+        Map<String, String> cuisines = recipeDao.getCuisineTypes(names);
+
+        List<SearchResult> results = new ArrayList<>();
+        for (VectorIndex.Hit hit : hits) {
+            results.add(new SearchResult(hit.getKey(), hit.getScore(), cuisines.getOrDefault(hit.getKey(), "OTHER")));
+        }
+        return results;
+    }
 
+    /**
+     * Best BM25 matches for an ingredient list from the keyword index.
+     */
+    private List<SearchResult> searchKeywords(List<String> ingredients, int limit) {
+        List<VectorIndex.Hit> hits = keywordIndex.search(sparseEmbeddingService.termsFromIngredients(ingredients),
+                limit);
+        List<String> names = new ArrayList<>();
+        for (VectorIndex.Hit hit : hits) {
+            names.add(hit.getKey());
+        }
+        Map<String, String> cuisines = recipeDao.getCuisineTypes(names);
+
+        List<SearchResult> results = new ArrayList<>();
+        for (VectorIndex.Hit hit : hits) {
+            results.add(new SearchResult(hit.getKey(), hit.getScore(), cuisines.getOrDefault(hit.getKey(), "OTHER")));
+        }
+        return results;
+    }
+
+    /**
+     * Nearest recipes to a query vector from Qdrant's "dense" vectors, best
+     * first. A rejected request (4xx) gives no results; other failures throw
+     * DependencyUnavailableException.
+     */
+    private List<SearchResult> searchQdrant(float[] queryEmbedding, int limit, float minScore) {
+        List<SearchResult> results = new ArrayList<>();
+        try (QdrantCodec.Request body = QdrantCodec.request()) {
             String url = getBaseUrl() + "/collections/" + COLLECTION_NAME + "/points/search";
 
-            ObjectNode request = objectMapper.createObjectNode();
-            ArrayNode vector = objectMapper.createArrayNode();
-            for (float v : queryEmbedding) {
-                vector.add(v);
-            }
-            request.set("vector", vector);
-            request.put("limit", topK);
-            request.put("with_payload", true);
-            request.put("score_threshold", MIN_SCORE_THRESHOLD); // Filter low-relevance results
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            HttpEntity<String> entity = new HttpEntity<>(request.toString(), headers);
-
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
-
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                JsonNode root = objectMapper.readTree(response.getBody());
-                JsonNode resultArray = root.path("result");
-
-                if (resultArray.isArray()) {
-                    for (JsonNode point : resultArray) {
-                        String recipeName = point.path("payload").path("recipe_name").asText();
-                        float score = (float) point.path("score").asDouble();
-                        String cuisineType = point.path("payload").path("cuisine_type").asText(null);
-
-                        // Double-check threshold (some Qdrant versions ignore score_threshold)
-                        if (score >= MIN_SCORE_THRESHOLD) {
-                            // NEW: Keyword filtering - ensure recipe contains important keywords from query
-                            if (containsImportantKeywords(recipeName, query)) {
-                                results.add(new SearchResult(recipeName, score, cuisineType));
-                            } else {
-                                System.out.println("[FILTER] Skipping '" + recipeName + "' - no keyword match for '"
-                                        + query + "'");
-                            }
-                        }
-                    }
-                }
-            }
-        } catch (Exception e) {
+            JsonGenerator json = body.json();
+            json.writeStartObject();
+            // The collection has named vectors, so the query must name one
+            json.writeObjectFieldStart("vector");
+            json.writeStringField("name", "dense");
+            json.writeFieldName("vector");
+            QdrantCodec.writeFloats(json, queryEmbedding);
+            json.writeEndObject();
+            json.writeNumberField("limit", limit);
+            json.writeBooleanField("with_payload", true);
+            json.writeNumberField("score_threshold", minScore); // Filter low-relevance results
+            json.writeEndObject();
+
+            results = healthService.guard(HealthService.QDRANT).call(() -> postForPoints(url, body));
+        } catch (HttpClientErrorException e) {
             System.err.println("Error searching recipes: " + e.getMessage());
+        } catch (DependencyUnavailableException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DependencyUnavailableException(HealthService.QDRANT, "search failed: " + e.getMessage(), e);
+        }
+        return results;
+    }
+
+    /**
+     * Best matches for an ingredient list from Qdrant's "sparse" vectors,
+     * best first. Error handling as in {@link #searchQdrant}.
+     */
+    private List<SearchResult> searchQdrantSparse(List<String> ingredients, int limit) {
+        List<SearchResult> results = new ArrayList<>();
+        SparseEmbeddingService.SparseVector sparseVec = sparseEmbeddingService.generateFromIngredients(ingredients);
+        if (sparseVec.isEmpty()) {
+            return results;
         }
+        try (QdrantCodec.Request body = QdrantCodec.request()) {
+            String url = getBaseUrl() + "/collections/" + COLLECTION_NAME + "/points/query";
+
+            JsonGenerator json = body.json();
+            json.writeStartObject();
+            json.writeFieldName("query");
+            writeSparseVector(json, sparseVec);
+            json.writeStringField("using", "sparse");
+            json.writeNumberField("limit", limit);
+            json.writeBooleanField("with_payload", true);
+            json.writeEndObject();
+
+            results = healthService.guard(HealthService.QDRANT).call(() -> postForPoints(url, body));
+        } catch (HttpClientErrorException e) {
+            System.err.println("Error searching recipes by keywords: " + e.getMessage());
+        } catch (DependencyUnavailableException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DependencyUnavailableException(HealthService.QDRANT, "keyword search failed: " + e.getMessage(),
+                    e);
+        }
+        return results;
+    }
 
+    /**
+     * Send a JSON body to Qdrant and read the points of its response.
+     */
+    private List<SearchResult> postForPoints(String url, QdrantCodec.Request body) {
+        List<SearchResult> results = new ArrayList<>();
+        restTemplate.execute(url, HttpMethod.POST, jsonBody(body), response -> {
+            QdrantCodec.readPoints(response.getBody(),
+                    (recipeName, score, cuisineType) -> results.add(new SearchResult(recipeName, score, cuisineType)));
+            return null;
+        });
         return results;
     }
 
+    /**
+     * Request callback streaming a JSON body into the request. The body is
+     * handed over with setBody, as getBody() would buffer it in a copy.
+     */
+    private static RequestCallback jsonBody(QdrantCodec.Request body) {
+        return request -> {
+            request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON));
+            request.getHeaders().setContentLength(body.size());
+            if (request instanceof StreamingHttpOutputMessage streaming) {
+                streaming.setBody(new StreamingHttpOutputMessage.Body() {
+                    @Override
+                    public void writeTo(OutputStream out) throws IOException {
+                        body.writeTo(out);
+                    }
+
+                    @Override
+                    public boolean repeatable() {
+                        return true;
+                    }
+                });
+            } else {
+                body.writeTo(request.getBody());
+            }
+        };
+    }
+
+    private static void writeSparseVector(JsonGenerator json, SparseEmbeddingService.SparseVector vector)
+            throws IOException {
+        json.writeStartObject();
+        json.writeFieldName("indices");
+        json.writeArray(vector.getIndices(), 0, vector.getIndices().length);
+        json.writeFieldName("values");
+        QdrantCodec.writeFloats(json, vector.getValues());
+        json.writeEndObject();
+    }
+
     /**
      * Check if recipe name contains important keywords from the query.
      * Filters out keywords that are too short or too common.
@@ -394,19 +863,31 @@ public class VectorSearchService {
      *                       2. Unfair score comparison between different search
      *                       types
      *                       3. Missing exact keyword matches
+     *
+     *                       Throws DependencyUnavailableException if OpenAI
+     *                       or Qdrant cannot answer within the search
+     *                       deadline; the legacy search is only used when
+     *                       Qdrant rejects the query API itself (4xx).
      */
     public List<SearchResult> hybridSearch(List<String> ingredients, String query, int topK, float scoreThreshold) {
-        List<SearchResult> results = new ArrayList<>();
+        return Deadline.within(searchDeadlineMs, () -> doHybridSearch(ingredients, query, topK, scoreThreshold));
+    }
 
+    private List<SearchResult> doHybridSearch(List<String> ingredients, String query, int topK,
+            float scoreThreshold) {
         if (!initialized) {
             System.err.println("VectorSearchService not initialized");
-            return results;
+            return new ArrayList<>();
         }
 
+        // Cookability rankings depend on the fridge, so it is part of the cache key
+        boolean localFusion = "local".equalsIgnoreCase(fusionMode);
+        Map<String, Integer> fridgeMissing = localFusion ? fridgeMissing() : new HashMap<>();
+        String cacheKey = vectorCacheService.buildSearchCacheKey(ingredients, query) + "|t:" + topK + "|s:"
+                + scoreThreshold + (fridgeMissing.isEmpty() ? "" : "|f:" + fingerprint(fridgeMissing));
+
         // Cache-Aside Pattern: Check cache first
         if (vectorCacheService.isAvailable()) {
-            String cacheKey = vectorCacheService.buildSearchCacheKey(ingredients, query) + "|t:" + topK + "|s:"
-                    + scoreThreshold;
             List<SearchResult> cached = vectorCacheService.getCachedSearchResults(cacheKey);
             if (cached != null) {
                 System.out.println("[HybridSearch] Returning cached results");
@@ -414,126 +895,301 @@ public class VectorSearchService {
             }
         }
 
-        try {
-            // Use Qdrant's query API with prefetch for hybrid search
-            String url = getBaseUrl() + "/collections/" + COLLECTION_NAME + "/points/query";
+        List<SearchResult> results = localFusion || localIndex != null || keywordIndex != null
+                ? localHybridSearch(ingredients, query, topK, scoreThreshold, fridgeMissing)
+                : qdrantHybridSearch(ingredients, query, topK, scoreThreshold);
 
-            ObjectNode request = objectMapper.createObjectNode();
-            ArrayNode prefetch = objectMapper.createArrayNode();
+        // Cache the results before returning
+        if (vectorCacheService.isAvailable() && !results.isEmpty()) {
+            vectorCacheService.cacheSearchResults(cacheKey, results);
+        }
 
-            // Prefetch 1: Dense semantic search (if query provided)
-            if (query != null && !query.isEmpty()) {
-                float[] queryEmbedding = embeddingService.generateEmbedding(query);
-                if (queryEmbedding != null) {
-                    ObjectNode densePrefetch = objectMapper.createObjectNode();
-                    ArrayNode denseQuery = objectMapper.createArrayNode();
-                    for (float v : queryEmbedding) {
-                        denseQuery.add(v);
-                    }
-                    densePrefetch.set("query", denseQuery);
-                    densePrefetch.put("using", "dense");
-                    densePrefetch.put("limit", 50); // Recall more for RRF fusion
-                    prefetch.add(densePrefetch);
+        return results;
+    }
+
+    /**
+     * Hybrid search fused locally with reciprocal rank fusion: a dense
+     * ranking for the query (local index or Qdrant), and for the ingredient
+     * list a BM25 ranking, or without the keyword index a second dense
+     * ranking from the local index or Qdrant's sparse vectors, plus
+     * cookability rankings of those candidates.
+     */
+    private List<SearchResult> localHybridSearch(List<String> ingredients, String query, int topK,
+            float scoreThreshold, Map<String, Integer> fridgeMissing) {
+        List<RrfRanker.Ranking> rankings = new ArrayList<>();
+        Map<String, String> cuisines = new HashMap<>();
+        boolean embeddingFailed = false;
+        if (query != null && !query.isEmpty()) {
+            float[] queryEmbedding = embeddingService.generateEmbedding(query);
+            if (queryEmbedding != null) {
+                rankings.add(ranking("dense", denseWeight, localIndex != null
+                        ? searchLocal(queryEmbedding, PREFETCH_LIMIT, -1f)
+                        : searchQdrant(queryEmbedding, PREFETCH_LIMIT, -1f), cuisines));
+            } else {
+                embeddingFailed = true;
+            }
+        }
+        if (ingredients != null && !ingredients.isEmpty()) {
+            if (keywordIndex != null) {
+                rankings.add(ranking("sparse", sparseWeight, searchKeywords(ingredients, PREFETCH_LIMIT), cuisines));
+            } else if (localIndex != null) {
+                float[] ingredientEmbedding = embeddingService.generateEmbedding(String.join(" ", ingredients));
+                if (ingredientEmbedding != null) {
+                    rankings.add(ranking("sparse", sparseWeight,
+                            searchLocal(ingredientEmbedding, PREFETCH_LIMIT, -1f), cuisines));
+                } else {
+                    embeddingFailed = true;
                 }
+            } else {
+                rankings.add(ranking("sparse", sparseWeight, searchQdrantSparse(ingredients, PREFETCH_LIMIT),
+                        cuisines));
             }
+        }
 
-            // Prefetch 2: Sparse keyword search (if ingredients provided)
-            if (ingredients != null && !ingredients.isEmpty()) {
-                SparseEmbeddingService.SparseVector sparseVec = sparseEmbeddingService
-                        .generateFromIngredients(ingredients);
-                if (!sparseVec.isEmpty()) {
-                    ObjectNode sparsePrefetch = objectMapper.createObjectNode();
-                    ObjectNode sparseQuery = objectMapper.createObjectNode();
+        if (rankings.isEmpty()) {
+            if (embeddingFailed) {
+                throw new DependencyUnavailableException(HealthService.OPENAI, "query embedding failed");
+            }
+            System.err.println("No valid queries for hybrid search");
+            return new ArrayList<>();
+        }
+        rankings.addAll(cookabilityRankings(rankings, fridgeMissing));
 
-                    ArrayNode indicesArray = objectMapper.createArrayNode();
-                    ArrayNode valuesArray = objectMapper.createArrayNode();
-                    for (int idx : sparseVec.getIndices()) {
-                        indicesArray.add(idx);
-                    }
-                    for (float val : sparseVec.getValues()) {
-                        valuesArray.add(val);
-                    }
-                    sparseQuery.set("indices", indicesArray);
-                    sparseQuery.set("values", valuesArray);
+        List<SearchResult> results = fuse(rankings, cuisines, topK, scoreThreshold);
+        System.out.println("[HybridSearch] Found " + results.size() + " results with local RRF fusion of "
+                + rankings.size() + " rankings (threshold=" + scoreThreshold + ")");
+        return results;
+    }
+
+    /**
+     * Fuse rankings into at most topK results scoring at least
+     * scoreThreshold. Cuisines missing from the given map are looked up.
+     */
+    private List<SearchResult> fuse(List<RrfRanker.Ranking> rankings, Map<String, String> cuisines, int topK,
+            float scoreThreshold) {
+        List<RrfRanker.Fused> fused = ranker.fuse(rankings, topK);
+        List<String> unknown = new ArrayList<>();
+        for (RrfRanker.Fused entry : fused) {
+            if (!cuisines.containsKey(entry.getKey())) {
+                unknown.add(entry.getKey());
+            }
+        }
+        if (!unknown.isEmpty()) {
+            cuisines.putAll(recipeDao.getCuisineTypes(unknown));
+        }
+
+        List<SearchResult> results = new ArrayList<>();
+        for (RrfRanker.Fused entry : fused) {
+            if (entry.getScore() < scoreThreshold) {
+                break;
+            }
+            SearchResult result = new SearchResult(entry.getKey(), entry.getScore(),
+                    cuisines.getOrDefault(entry.getKey(), "OTHER"));
+            result.setMatchType("hybrid_rrf");
+            results.add(result);
+        }
+        return results;
+    }
 
-                    sparsePrefetch.set("query", sparseQuery);
-                    sparsePrefetch.put("using", "sparse");
-                    sparsePrefetch.put("limit", 50);
-                    prefetch.add(sparsePrefetch);
+    /**
+     * A ranking of search results, noting their cuisines.
+     */
+    private static RrfRanker.Ranking ranking(String source, float weight, List<SearchResult> hits,
+            Map<String, String> cuisines) {
+        List<String> names = new ArrayList<>();
+        for (SearchResult hit : hits) {
+            names.add(hit.getRecipeName());
+            if (hit.getCuisineType() != null) {
+                cuisines.putIfAbsent(hit.getRecipeName(), hit.getCuisineType());
+            }
+        }
+        return RrfRanker.Ranking.of(source, weight, names);
+    }
+
+    /**
+     * Recipes cookable or almost cookable from the fridge, with how many
+     * ingredients each misses (0 for cookable).
+     */
+    private Map<String, Integer> fridgeMissing() {
+        Map<String, Integer> missing = new HashMap<>();
+        if (almostCookableWeight > 0 && almostCookableMaxMissing > 0) {
+            for (Map.Entry<String, List<String>> entry
+                    : recipeService.findAlmostCookableRecipes(almostCookableMaxMissing).entrySet()) {
+                int count = entry.getValue().size();
+                if (count >= 1 && count <= almostCookableMaxMissing) {
+                    missing.put(entry.getKey(), count);
                 }
             }
+        }
+        if (cookableWeight > 0) {
+            for (String recipe : recipeService.findCookableRecipesFromFridge()) {
+                missing.put(recipe, 0);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Cookability rankings over the candidates the retrieval rankings
+     * already returned, never the whole fridge set: a candidate keeps its
+     * best retrieval rank, one more per missing ingredient, so cookability
+     * reorders relevant recipes rather than bringing in unrelated ones.
+     */
+    private List<RrfRanker.Ranking> cookabilityRankings(List<RrfRanker.Ranking> retrieval,
+            Map<String, Integer> fridgeMissing) {
+        List<RrfRanker.Ranking> rankings = new ArrayList<>();
+        if (fridgeMissing.isEmpty()) {
+            return rankings;
+        }
+        Map<String, Integer> bestRank = new LinkedHashMap<>();
+        for (RrfRanker.Ranking ranking : retrieval) {
+            for (int i = 0; i < ranking.size(); i++) {
+                bestRank.merge(ranking.getKey(i), ranking.getRank(i), Math::min);
+            }
+        }
+        List<Map.Entry<String, Integer>> cookable = new ArrayList<>();
+        List<Map.Entry<String, Integer>> almost = new ArrayList<>();
+        for (Map.Entry<String, Integer> candidate : bestRank.entrySet()) {
+            Integer missing = fridgeMissing.get(candidate.getKey());
+            if (missing == null) {
+                continue;
+            }
+            int rank = candidate.getValue() + missing;
+            if (missing == 0) {
+                cookable.add(Map.entry(candidate.getKey(), rank));
+            } else {
+                almost.add(Map.entry(candidate.getKey(), rank));
+            }
+        }
+        if (cookableWeight > 0 && !cookable.isEmpty()) {
+            rankings.add(ranked("cookable", cookableWeight, cookable));
+        }
+        if (almostCookableWeight > 0 && !almost.isEmpty()) {
+            rankings.add(ranked("almost_cookable", almostCookableWeight, almost));
+        }
+        return rankings;
+    }
+
+    private static RrfRanker.Ranking ranked(String source, float weight, List<Map.Entry<String, Integer>> entries) {
+        // Stable sort: equal ranks keep retrieval order
+        entries.sort(Map.Entry.comparingByValue());
+        List<String> keys = new ArrayList<>(entries.size());
+        int[] ranks = new int[entries.size()];
+        for (int i = 0; i < ranks.length; i++) {
+            keys.add(entries.get(i).getKey());
+            ranks[i] = entries.get(i).getValue();
+        }
+        return RrfRanker.Ranking.ofRanks(source, weight, keys, ranks);
+    }
+
+    /**
+     * Hash of the fridge's cookable and almost cookable recipes.
+     */
+    private String fingerprint(Map<String, Integer> fridgeMissing) {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Integer> entry : new TreeMap<>(fridgeMissing).entrySet()) {
+            text.append(entry.getValue()).append(' ').append(entry.getKey()).append('\n');
+        }
+        return contentHash(text.toString());
+    }
+
+    /**
+     * Hybrid search with Qdrant's prefetch + RRF fusion.
+     */
+    private List<SearchResult> qdrantHybridSearch(List<String> ingredients, String query, int topK,
+            float scoreThreshold) {
+        List<SearchResult> results = new ArrayList<>();
+
+        // Prefetch 1: Dense semantic search (if query provided)
+        float[] queryEmbedding = null;
+        if (query != null && !query.isEmpty()) {
+            queryEmbedding = embeddingService.generateEmbedding(query);
+        }
+
+        // Prefetch 2: Sparse keyword search (if ingredients provided)
+        SparseEmbeddingService.SparseVector sparseVec = null;
+        if (ingredients != null && !ingredients.isEmpty()) {
+            sparseVec = sparseEmbeddingService.generateFromIngredients(ingredients);
+            if (sparseVec.isEmpty()) {
+                sparseVec = null;
+            }
+        }
 
-            // If no prefetch queries, fall back to simple search
-            if (prefetch.isEmpty()) {
-                System.err.println("No valid queries for hybrid search");
-                return results;
+        // If no prefetch queries, fall back to simple search
+        if (queryEmbedding == null && sparseVec == null) {
+            if (query != null && !query.isEmpty()) {
+                throw new DependencyUnavailableException(HealthService.OPENAI, "query embedding failed");
             }
+            System.err.println("No valid queries for hybrid search");
+            return results;
+        }
 
-            request.set("prefetch", prefetch);
+        try (QdrantCodec.Request body = QdrantCodec.request()) {
+            // Use Qdrant's query API with prefetch for hybrid search
+            String url = getBaseUrl() + "/collections/" + COLLECTION_NAME + "/points/query";
+
+            JsonGenerator json = body.json();
+            json.writeStartObject();
+            json.writeArrayFieldStart("prefetch");
+            if (queryEmbedding != null) {
+                json.writeStartObject();
+                json.writeFieldName("query");
+                QdrantCodec.writeFloats(json, queryEmbedding);
+                json.writeStringField("using", "dense");
+                json.writeNumberField("limit", PREFETCH_LIMIT); // Recall more for RRF fusion
+                json.writeEndObject();
+            }
+            if (sparseVec != null) {
+                json.writeStartObject();
+                json.writeFieldName("query");
+                writeSparseVector(json, sparseVec);
+                json.writeStringField("using", "sparse");
+                json.writeNumberField("limit", PREFETCH_LIMIT);
+                json.writeEndObject();
+            }
+            json.writeEndArray();
 
             // RRF Fusion - combines results fairly regardless of score magnitude
-            ObjectNode fusionQuery = objectMapper.createObjectNode();
-            fusionQuery.put("fusion", "rrf");
-            request.set("query", fusionQuery);
+            json.writeObjectFieldStart("query");
+            json.writeStringField("fusion", "rrf");
+            json.writeEndObject();
 
             // Request more results to allow for threshold filtering
-            request.put("limit", Math.max(topK * 2, 50));
-            request.put("with_payload", true);
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            HttpEntity<String> entity = new HttpEntity<>(request.toString(), headers);
+            json.writeNumberField("limit", Math.max(topK * 2, 50));
+            json.writeBooleanField("with_payload", true);
+            json.writeEndObject();
 
             System.out.println("[HybridSearch] Request with threshold=" + scoreThreshold);
 
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
-
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                JsonNode root = objectMapper.readTree(response.getBody());
-                JsonNode pointsArray = root.path("result").path("points");
+            List<SearchResult> points = healthService.guard(HealthService.QDRANT)
+                    .call(() -> postForPoints(url, body));
 
-                // Handle both possible response formats
-                if (!pointsArray.isArray()) {
-                    pointsArray = root.path("result");
-                }
+            for (SearchResult result : points) {
+                // Apply score threshold filter
+                if (result.getScore() >= scoreThreshold) {
+                    result.setMatchType("hybrid_rrf");
+                    results.add(result);
 
-                if (pointsArray.isArray()) {
-                    for (JsonNode point : pointsArray) {
-                        String recipeName = point.path("payload").path("recipe_name").asText();
-                        float score = (float) point.path("score").asDouble();
-                        String cuisineType = point.path("payload").path("cuisine_type").asText(null);
-
-                        // Apply score threshold filter
-                        if (score >= scoreThreshold) {
-                            SearchResult result = new SearchResult(recipeName, score, cuisineType);
-                            result.setMatchType("hybrid_rrf");
-                            results.add(result);
-
-                            // Stop once we have enough results
-                            if (results.size() >= topK) {
-                                break;
-                            }
-                        }
+                    // Stop once we have enough results
+                    if (results.size() >= topK) {
+                        break;
                     }
                 }
-
-                System.out.println("[HybridSearch] Found " + results.size() + " results with RRF fusion (threshold="
-                        + scoreThreshold + ")");
             }
-        } catch (Exception e) {
-            System.err.println("Error in hybrid search: " + e.getMessage());
-            e.printStackTrace();
 
-            // Fallback to legacy hybrid search if new API fails
-            System.out.println("[HybridSearch] Falling back to legacy search");
+            System.out.println("[HybridSearch] Found " + results.size() + " results with RRF fusion (threshold="
+                    + scoreThreshold + ")");
+        } catch (HttpClientErrorException e) {
+            // Qdrant rejected the query API (older version): fall back to legacy search
+            System.out.println("[HybridSearch] Query API rejected (" + e.getStatusCode()
+                    + "), falling back to legacy search");
             return legacyHybridSearch(ingredients, query, topK, scoreThreshold);
-        }
-
-        // Cache the results before returning
-        if (vectorCacheService.isAvailable() && !results.isEmpty()) {
-            String cacheKey = vectorCacheService.buildSearchCacheKey(ingredients, query) + "|t:" + topK + "|s:"
-                    + scoreThreshold;
-            vectorCacheService.cacheSearchResults(cacheKey, results);
+        } catch (DependencyUnavailableException e) {
+            throw e;
+        } catch (Exception e) {
+            // Retrying against a failing backend would only add load; let the caller fall back locally
+            throw new DependencyUnavailableException(HealthService.QDRANT, "hybrid search failed: " + e.getMessage(),
+                    e);
         }
 
         return results;
@@ -549,74 +1205,69 @@ public class VectorSearchService {
     /**
      * Legacy hybrid search for backward compatibility.
      * Used as fallback if Qdrant version doesn't support prefetch/RRF.
+     * The semantic and ingredient results are fused by rank, as their raw
+     * scores are not comparable.
      */
     private List<SearchResult> legacyHybridSearch(List<String> ingredients, String query, int topK,
             float scoreThreshold) {
-        List<SearchResult> results = new ArrayList<>();
-        Set<String> addedRecipes = new HashSet<>();
+        List<RrfRanker.Ranking> rankings = new ArrayList<>();
+        Map<String, String> cuisines = new HashMap<>();
 
         // Get semantic search results
         if (query != null && !query.isEmpty()) {
-            List<SearchResult> semanticResults = searchSimilar(query, topK * 2);
-            for (SearchResult result : semanticResults) {
-                if (!addedRecipes.contains(result.getRecipeName()) && result.getScore() >= scoreThreshold) {
-                    result.setMatchType("semantic");
-                    results.add(result);
-                    addedRecipes.add(result.getRecipeName());
-                }
-            }
+            rankings.add(ranking("dense", denseWeight, searchSimilar(query, topK * 2), cuisines));
         }
 
-        // Search by ingredients using sparse vector similarity
+        // Search by ingredients, using ingredient names directly for better keyword matching
         if (ingredients != null && !ingredients.isEmpty()) {
-            // Use ingredient names directly for better keyword matching
             String ingredientQuery = String.join(" ", ingredients);
-            List<SearchResult> ingredientResults = searchSimilar(ingredientQuery, topK * 2);
-
-            for (SearchResult result : ingredientResults) {
-                if (!addedRecipes.contains(result.getRecipeName()) && result.getScore() >= scoreThreshold) {
-                    result.setMatchType("ingredient");
-                    results.add(result);
-                    addedRecipes.add(result.getRecipeName());
-                }
-            }
-        }
-
-        results.sort((a, b) -> Float.compare(b.getScore(), a.getScore()));
-
-        if (results.size() > topK) {
-            return results.subList(0, topK);
+            rankings.add(ranking("sparse", sparseWeight, searchSimilar(ingredientQuery, topK * 2), cuisines));
         }
 
-        return results;
+        return fuse(rankings, cuisines, topK, scoreThreshold);
     }
 
     /**
-     * Delete a recipe from the vector index.
+     * Delete the vectors and recipe_embeddings rows of the given recipes.
+     * Throws if the vector store rejects the request.
      */
-    public void deleteRecipe(String recipeName) {
-        if (!initialized) {
+    public void removeRecipes(Collection<String> recipeNames) {
+        if (recipeNames.isEmpty()) {
             return;
         }
+        if (keywordIndex != null) {
+            keywordIndex.removeAll(recipeNames);
+        }
+        if (localIndex != null) {
+            try {
+                localIndex.removeAll(recipeNames);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to write local vector index", e);
+            }
+        } else {
+            deletePoints(recipeNames);
+        }
+        recipeEmbeddingDao.deleteAll(recipeNames);
+    }
 
-        try {
-            long pointId = Math.abs(recipeName.hashCode());
-            String url = getBaseUrl() + "/collections/" + COLLECTION_NAME + "/points/delete";
+    /**
+     * Delete the points for the given recipes in one request.
+     */
+    private void deletePoints(Collection<String> recipeNames) {
+        String url = getBaseUrl() + "/collections/" + COLLECTION_NAME + "/points/delete";
 
-            ObjectNode request = objectMapper.createObjectNode();
-            ArrayNode points = objectMapper.createArrayNode();
-            points.add(pointId);
-            request.set("points", points);
+        ObjectNode request = objectMapper.createObjectNode();
+        ArrayNode points = objectMapper.createArrayNode();
+        for (String recipeName : recipeNames) {
+            points.add(pointId(recipeName));
+        }
+        request.set("points", points);
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            HttpEntity<String> entity = new HttpEntity<>(request.toString(), headers);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        HttpEntity<String> entity = new HttpEntity<>(request.toString(), headers);
 
-            restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
-            System.out.println("Deleted recipe from index: " + recipeName);
-        } catch (Exception e) {
-            System.err.println("Error deleting recipe from index: " + e.getMessage());
-        }
+        restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
     }
 
     /**
@@ -626,8 +1277,26 @@ public class VectorSearchService {
         Map<String, Object> stats = new HashMap<>();
         stats.put("initialized", initialized);
         stats.put("embeddingAvailable", embeddingService.isAvailable());
-        stats.put("collectionName", COLLECTION_NAME);
+        stats.put("embeddingCache", embeddingService.getCacheStats());
+        if (keywordIndex != null) {
+            stats.put("keywordIndex", keywordIndex.getStats());
+        }
+        if (ranker != null) {
+            Map<String, Object> fusion = new LinkedHashMap<>();
+            fusion.put("mode", fusionMode);
+            fusion.putAll(ranker.getStats());
+            stats.put("fusion", fusion);
+        }
 
+        if (localIndex != null) {
+            stats.put("store", "local");
+            stats.put("localIndex", localIndex.getStats());
+            stats.put("pointsCount", localIndex.size());
+            return stats;
+        }
+
+        stats.put("store", "qdrant");
+        stats.put("collectionName", COLLECTION_NAME);
         if (initialized) {
             try {
                 String url = getBaseUrl() + "/collections/" + COLLECTION_NAME;
@@ -0,0 +1,421 @@
+package com.smartfridge.vector;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory Okapi BM25 keyword index, the local counterpart of Qdrant's
+ * sparse vectors without their hashed vocabulary.
+ *
+ * Documents are term maps whose frequencies are already weighted per field
+ * (name, ingredients, cuisine), so field weights act as BM25F boosts and a
+ * document's length is the sum of its weights. Each dictionary term has a
+ * posting list of (document, frequency) pairs ordered by document id and
+ * compressed as varint deltas.
+ *
+ * Queries run document-at-a-time with MaxScore: terms whose combined score
+ * bounds cannot lift a document into the current top k stop driving the
+ * scan and are only probed for documents the other terms found.
+ *
+ * An update appends the document under a new id; replaced and removed
+ * documents are skipped until enough pile up to rewrite the postings.
+ *
+ * Thread-safe: searches share a read lock, writes take the write lock.
+ */
+public class Bm25Index {
+
+    // Weighted frequencies are stored as fixed point with two decimals
+    private static final int TF_SCALE = 100;
+
+    // Rewrite postings once dead documents exceed this share of live ones
+    private static final double COMPACT_RATIO = 0.25;
+    private static final int COMPACT_MIN_DEAD = 1000;
+
+    private static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+    private final float k1;
+    private final float b;
+
+    private final Map<String, Postings> dictionary = new HashMap<>();
+    private final Map<String, Integer> docIds = new HashMap<>();
+    private String[] docKeys = new String[1024];
+    private float[] docLengths = new float[1024];
+    private Postings[][] docPostings = new Postings[1024][];
+    private int docCount; // next document id
+    private int liveDocs;
+    private int deadDocs;
+    private double totalLength;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+    private final LongAdder scoredDocs = new LongAdder();
+
+    /**
+     * @param k1 term frequency saturation
+     * @param b  document length normalization, 0 (none) to 1 (full)
+     */
+    public Bm25Index(float k1, float b) {
+        this.k1 = k1;
+        this.b = b;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocs;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Insert or replace documents, each a map of term to weighted frequency.
+     * A document without terms is removed.
+     */
+    public void putAll(Map<String, Map<String, Float>> documents) {
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<String, Map<String, Float>> entry : documents.entrySet()) {
+                remove(entry.getKey());
+                if (!entry.getValue().isEmpty()) {
+                    add(entry.getKey(), entry.getValue());
+                }
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeAll(Collection<String> keys) {
+        lock.writeLock().lock();
+        try {
+            for (String key : keys) {
+                remove(key);
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The k best documents for a query (term to query weight) by BM25
+     * score, best first. Documents matching no query term are not returned.
+     */
+    public List<VectorIndex.Hit> search(Map<String, Float> query, int k) {
+        if (k <= 0 || query.isEmpty()) {
+            return Collections.emptyList();
+        }
+        long start = System.nanoTime();
+
+        lock.readLock().lock();
+        try {
+            if (liveDocs == 0) {
+                return Collections.emptyList();
+            }
+            double avgLength = totalLength / liveDocs;
+            List<Cursor> matched = new ArrayList<>();
+            for (Map.Entry<String, Float> term : query.entrySet()) {
+                Postings postings = dictionary.get(term.getKey());
+                if (postings != null && postings.df > 0) {
+                    matched.add(new Cursor(postings, term.getValue(), avgLength));
+                }
+            }
+            if (matched.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            // Ascending by bound; upperBounds[i] bounds the score from cursors 0..i together
+            matched.sort(Comparator.comparingDouble(cursor -> cursor.bound));
+            Cursor[] cursors = matched.toArray(new Cursor[0]);
+            double[] upperBounds = new double[cursors.length];
+            double sum = 0;
+            for (int i = 0; i < cursors.length; i++) {
+                sum += cursors[i].bound;
+                upperBounds[i] = sum;
+                cursors[i].next();
+            }
+
+            TopK top = new TopK(k);
+            int firstEssential = 0;
+            long scored = 0;
+            while (true) {
+                float threshold = top.isFull() ? top.minScore() : Float.NEGATIVE_INFINITY;
+                // Terms that together cannot beat the threshold no longer pick candidates
+                while (firstEssential < cursors.length && upperBounds[firstEssential] <= threshold) {
+                    firstEssential++;
+                }
+                if (firstEssential == cursors.length) {
+                    break;
+                }
+
+                int doc = NO_MORE_DOCS;
+                for (int i = firstEssential; i < cursors.length; i++) {
+                    doc = Math.min(doc, cursors[i].doc);
+                }
+                if (doc == NO_MORE_DOCS) {
+                    break;
+                }
+
+                double score = 0;
+                for (int i = firstEssential; i < cursors.length; i++) {
+                    if (cursors[i].doc == doc) {
+                        score += cursors[i].score(docLengths[doc]);
+                        cursors[i].next();
+                    }
+                }
+                for (int i = firstEssential - 1; i >= 0; i--) {
+                    if (score + upperBounds[i] <= threshold) {
+                        break;
+                    }
+                    cursors[i].advance(doc);
+                    if (cursors[i].doc == doc) {
+                        score += cursors[i].score(docLengths[doc]);
+                    }
+                }
+                scored++;
+                top.offer(doc, (float) score);
+            }
+            scoredDocs.add(scored);
+            return top.toHits(doc -> docKeys[doc]);
+        } finally {
+            lock.readLock().unlock();
+            searches.increment();
+            searchNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Dictionary and postings size, and search counters.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            long postingBytes = 0;
+            for (Postings postings : dictionary.values()) {
+                postingBytes += postings.length;
+            }
+            stats.put("documents", liveDocs);
+            stats.put("deletedDocuments", deadDocs);
+            stats.put("terms", dictionary.size());
+            stats.put("postingBytes", postingBytes);
+            stats.put("avgDocumentLength", liveDocs > 0 ? totalLength / liveDocs : 0.0);
+        } finally {
+            lock.readLock().unlock();
+        }
+        long searchCount = searches.sum();
+        stats.put("k1", k1);
+        stats.put("b", b);
+        stats.put("searches", searchCount);
+        stats.put("avgSearchMs", searchCount > 0 ? searchNanos.sum() / 1e6 / searchCount : 0.0);
+        stats.put("avgScoredDocuments", searchCount > 0 ? scoredDocs.sum() / searchCount : 0);
+        return stats;
+    }
+
+    private void add(String key, Map<String, Float> terms) {
+        int doc = docCount++;
+        if (doc == docKeys.length) {
+            int capacity = docKeys.length * 2;
+            docKeys = Arrays.copyOf(docKeys, capacity);
+            docLengths = Arrays.copyOf(docLengths, capacity);
+            docPostings = Arrays.copyOf(docPostings, capacity);
+        }
+        float length = 0;
+        for (float weight : terms.values()) {
+            length += weight;
+        }
+        docKeys[doc] = key;
+        docLengths[doc] = length;
+        docIds.put(key, doc);
+        liveDocs++;
+        totalLength += length;
+
+        Postings[] postings = new Postings[terms.size()];
+        int i = 0;
+        for (Map.Entry<String, Float> term : terms.entrySet()) {
+            Postings list = dictionary.computeIfAbsent(term.getKey(), t -> new Postings());
+            list.add(doc, Math.max(1, Math.round(term.getValue() * TF_SCALE)), length);
+            postings[i++] = list;
+        }
+        docPostings[doc] = postings;
+    }
+
+    private void remove(String key) {
+        Integer doc = docIds.remove(key);
+        if (doc == null) {
+            return;
+        }
+        for (Postings postings : docPostings[doc]) {
+            postings.df--;
+        }
+        docKeys[doc] = null;
+        docPostings[doc] = null;
+        liveDocs--;
+        deadDocs++;
+        totalLength -= docLengths[doc];
+    }
+
+    /**
+     * Renumber live documents densely and rewrite every posting list
+     * without the dead ones; terms left without documents are dropped.
+     */
+    private void compactIfNeeded() {
+        if (deadDocs < COMPACT_MIN_DEAD || deadDocs < liveDocs * COMPACT_RATIO) {
+            return;
+        }
+        int[] remap = new int[docCount];
+        int next = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            remap[doc] = docKeys[doc] != null ? next++ : -1;
+        }
+
+        float[] lengths = docLengths;
+        dictionary.values().removeIf(postings -> postings.df == 0);
+        for (Postings postings : dictionary.values()) {
+            postings.rewrite(remap, lengths);
+        }
+
+        int capacity = Math.max(1024, Integer.highestOneBit(Math.max(1, next)) * 2);
+        String[] keys = new String[capacity];
+        float[] newLengths = new float[capacity];
+        Postings[][] newPostings = new Postings[capacity][];
+        for (int doc = 0; doc < docCount; doc++) {
+            if (remap[doc] >= 0) {
+                keys[remap[doc]] = docKeys[doc];
+                newLengths[remap[doc]] = docLengths[doc];
+                newPostings[remap[doc]] = docPostings[doc];
+                docIds.put(docKeys[doc], remap[doc]);
+            }
+        }
+        docKeys = keys;
+        docLengths = newLengths;
+        docPostings = newPostings;
+        docCount = next;
+        deadDocs = 0;
+    }
+
+    private static double idf(int df, int documents) {
+        // Lucene's BM25 idf, never negative for very common terms
+        return Math.log(1 + (documents - df + 0.5) / (df + 0.5));
+    }
+
+    /**
+     * Varint-delta encoded (document, frequency) pairs of one term, with
+     * the bounds MaxScore needs: the largest frequency and the shortest
+     * document seen. Neither shrinks on removal, so both stay safe bounds.
+     */
+    private static final class Postings {
+        private byte[] data = new byte[16];
+        private int length;
+        private int lastDoc = -1;
+        private int df;
+        private int maxTf;
+        private float minLength = Float.MAX_VALUE;
+
+        void add(int doc, int tf, float docLength) {
+            writeVarint(doc - lastDoc);
+            writeVarint(tf);
+            lastDoc = doc;
+            df++;
+            maxTf = Math.max(maxTf, tf);
+            minLength = Math.min(minLength, docLength);
+        }
+
+        /**
+         * Re-encode with new document ids, skipping documents mapped to -1.
+         */
+        void rewrite(int[] remap, float[] lengths) {
+            byte[] old = data;
+            int oldLength = length;
+            data = new byte[Math.max(16, oldLength)];
+            length = 0;
+            lastDoc = -1;
+            df = 0;
+            maxTf = 0;
+            minLength = Float.MAX_VALUE;
+
+            int[] position = { 0 };
+            int doc = -1;
+            while (position[0] < oldLength) {
+                doc += readVarint(old, position);
+                int tf = readVarint(old, position);
+                if (remap[doc] >= 0) {
+                    add(remap[doc], tf, lengths[doc]);
+                }
+            }
+        }
+
+        private void writeVarint(int value) {
+            if (length + 5 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            while ((value & ~0x7F) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+
+        static int readVarint(byte[] data, int[] position) {
+            int value = 0;
+            int shift = 0;
+            byte current;
+            do {
+                current = data[position[0]++];
+                value |= (current & 0x7F) << shift;
+                shift += 7;
+            } while (current < 0);
+            return value;
+        }
+    }
+
+    /**
+     * Iterator over the live documents of one posting list, scoring them
+     * for one query term.
+     */
+    private final class Cursor {
+        private final byte[] data;
+        private final int end;
+        private final int[] position = { 0 };
+        private final double weight; // query weight x idf
+        private final double bound;
+        private final double lengthScale;
+        private int doc = -1;
+        private int tf;
+
+        Cursor(Postings postings, float queryWeight, double avgLength) {
+            this.data = postings.data;
+            this.end = postings.length;
+            this.weight = queryWeight * idf(postings.df, liveDocs);
+            this.lengthScale = b / avgLength;
+            double maxTf = postings.maxTf / (double) TF_SCALE;
+            this.bound = weight * maxTf * (k1 + 1) / (maxTf + k1 * (1 - b + lengthScale * postings.minLength));
+        }
+
+        void next() {
+            while (position[0] < end) {
+                doc += Postings.readVarint(data, position);
+                tf = Postings.readVarint(data, position);
+                if (docKeys[doc] != null) {
+                    return;
+                }
+            }
+            doc = NO_MORE_DOCS;
+        }
+
+        void advance(int target) {
+            while (doc < target) {
+                next();
+            }
+        }
+
+        double score(float docLength) {
+            double frequency = tf / (double) TF_SCALE;
+            return weight * frequency * (k1 + 1) / (frequency + k1 * (1 - b + lengthScale * docLength));
+        }
+    }
+}
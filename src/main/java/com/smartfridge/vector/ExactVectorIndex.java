@@ -0,0 +1,225 @@
+package com.smartfridge.vector;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Exact cosine nearest-neighbour index over float32 vectors, kept in
+ * memory-mapped files so it survives restarts without a rebuild and its
+ * size is not bounded by the heap.
+ *
+ * Vectors are normalized on insert, so cosine similarity is a plain dot
+ * product over a contiguous row (see {@link MappedVectorStore} for the
+ * file layout). Large scans are split into partitions searched in
+ * parallel, each keeping its own top-k heap.
+ *
+ * Thread-safe: searches share a read lock, writes take the write lock.
+ */
+public class ExactVectorIndex implements VectorIndex {
+
+    // Rows per partition below which a scan stays on the calling thread
+    private static final int MIN_PARTITION_ROWS = 4096;
+
+    private final MappedVectorStore store;
+    private final int parallelism;
+    private final ExecutorService scanExecutor;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+
+    /**
+     * Open (or create) the index stored in the given directory. An existing
+     * index built for another dimension is discarded, and so is any HNSW
+     * graph, which exact-mode writes would leave stale.
+     *
+     * @param parallelism threads used for one scan; 1 scans on the caller
+     */
+    public ExactVectorIndex(Path directory, int dimension, int parallelism) throws IOException {
+        this.store = new MappedVectorStore(directory, dimension);
+        this.parallelism = Math.max(1, parallelism);
+        HnswVectorIndex.deleteGraph(directory);
+
+        this.scanExecutor = this.parallelism > 1
+                ? Executors.newFixedThreadPool(this.parallelism, runnable -> {
+                    Thread thread = new Thread(runnable, "vector-scan");
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : null;
+    }
+
+    @Override
+    public int getDimension() {
+        return store.dimension();
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return store.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(String key) {
+        lock.readLock().lock();
+        try {
+            return store.rowOf(key) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Set<String> keys() {
+        lock.readLock().lock();
+        try {
+            return store.keys();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void putAll(Map<String, float[]> vectors) throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<String, float[]> entry : vectors.entrySet()) {
+                store.put(entry.getKey(), entry.getValue());
+            }
+            store.flush();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove vectors; their rows are reused by later inserts.
+     */
+    @Override
+    public void removeAll(Collection<String> removed) throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (String key : removed) {
+                store.remove(key);
+            }
+            store.flush();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Hit> search(float[] query, int k, float minScore) {
+        if (query.length != store.dimension()) {
+            throw new IllegalArgumentException("Expected " + store.dimension() + " dimensions, got " + query.length);
+        }
+        if (k <= 0) {
+            return Collections.emptyList();
+        }
+        float[] normalized = MappedVectorStore.normalize(query);
+        long start = System.nanoTime();
+
+        lock.readLock().lock();
+        try {
+            int rowCount = store.rowCount();
+            int partitions = scanExecutor == null ? 1
+                    : Math.min(parallelism, Math.max(1, rowCount / MIN_PARTITION_ROWS));
+            TopK top;
+            if (partitions == 1) {
+                top = scan(normalized, 0, rowCount, k, minScore);
+            } else {
+                List<Future<TopK>> parts = new ArrayList<>();
+                int step = (rowCount + partitions - 1) / partitions;
+                for (int from = 0; from < rowCount; from += step) {
+                    int begin = from;
+                    int end = Math.min(rowCount, from + step);
+                    parts.add(scanExecutor.submit(() -> scan(normalized, begin, end, k, minScore)));
+                }
+                top = new TopK(k);
+                for (Future<TopK> part : parts) {
+                    top.addAll(await(part));
+                }
+            }
+            return top.toHits(store::keyAt);
+        } finally {
+            lock.readLock().unlock();
+            searches.increment();
+            searchNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Size, capacity and search counters.
+     */
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("type", "exact");
+        lock.readLock().lock();
+        try {
+            stats.put("size", store.size());
+            stats.put("rows", store.rowCount());
+            stats.put("segments", store.segmentCount());
+            stats.put("capacity", store.segmentCount() * MappedVectorStore.SEGMENT_ROWS);
+        } finally {
+            lock.readLock().unlock();
+        }
+        long searchCount = searches.sum();
+        stats.put("dimension", store.dimension());
+        stats.put("parallelism", parallelism);
+        stats.put("searches", searchCount);
+        stats.put("avgSearchMs", searchCount > 0 ? searchNanos.sum() / 1e6 / searchCount : 0.0);
+        stats.put("path", store.directory().toString());
+        return stats;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (scanExecutor != null) {
+                scanExecutor.shutdownNow();
+            }
+            store.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private TopK scan(float[] query, int from, int to, int k, float minScore) {
+        TopK top = new TopK(k);
+        // Rows are copied out of the mapping in bulk; the dot product then runs on plain arrays
+        float[] row = new float[store.dimension()];
+        for (int i = from; i < to; i++) {
+            if (store.keyAt(i) == null) {
+                continue;
+            }
+            store.read(i, row);
+            float score = MappedVectorStore.dot(row, query);
+            if (score >= minScore) {
+                top.offer(i, score);
+            }
+        }
+        return top;
+    }
+
+    private static TopK await(Future<TopK> part) {
+        try {
+            return part.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during vector scan", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Vector scan failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,802 @@
+package com.smartfridge.vector;
+
+import java.io.*;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Approximate cosine nearest-neighbour index: a hierarchical navigable
+ * small-world (HNSW) graph over the rows of a {@link MappedVectorStore}.
+ *
+ * Each row is a graph node. Layer 0 links (up to 2*M per node) live in
+ * memory-mapped files next to the vectors (hnsw-l0-00000.i32, ...); the
+ * sparse upper layers are kept on the heap and rewritten to hnsw-upper.bin
+ * after each write. A graph that does not match the stored vectors on open
+ * is rebuilt from them.
+ *
+ * Replacing a vector relinks its node in place. Removing one leaves the
+ * node in the graph as a tombstone: it still routes searches but is never
+ * returned, and its row is relinked when a later insert reuses it.
+ *
+ * Thread-safe: searches share a read lock, writes take the write lock.
+ */
+public class HnswVectorIndex implements VectorIndex {
+
+    private static final String UPPER_FILE = "hnsw-upper.bin";
+    private static final int GRAPH_VERSION = 1;
+
+    private final MappedVectorStore store;
+    private final int m;
+    private final int maxLinks0;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelMultiplier;
+
+    // Layer 0: per node [count, link_1 .. link_maxLinks0]
+    private final int stride;
+    private final List<MappedByteBuffer> level0Segments = new ArrayList<>();
+    private final List<IntBuffer> level0 = new ArrayList<>();
+    private final Set<Integer> dirtyLevel0 = new HashSet<>();
+    // Layers 1..level of each node above layer 0: [layer - 1] -> [count, link_1 .. link_m]
+    private final Map<Integer, int[][]> upperLinks = new HashMap<>();
+    private int nodeCount;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    private final ThreadLocal<Visited> visited = ThreadLocal.withInitial(Visited::new);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+    private final LongAdder visitedNodes = new LongAdder();
+
+    /**
+     * Open (or create) the index stored in the given directory.
+     *
+     * @param m              links per node on the upper layers; layer 0 keeps 2*m
+     * @param efConstruction candidate list size while linking a new node
+     * @param efSearch       candidate list size while searching (at least k)
+     */
+    public HnswVectorIndex(Path directory, int dimension, int m, int efConstruction, int efSearch)
+            throws IOException {
+        if (m < 2) {
+            throw new IllegalArgumentException("HNSW M must be at least 2, got " + m);
+        }
+        this.store = new MappedVectorStore(directory, dimension);
+        this.m = m;
+        this.maxLinks0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.efSearch = Math.max(1, efSearch);
+        this.levelMultiplier = 1.0 / Math.log(m);
+        this.stride = 1 + maxLinks0;
+
+        if (!loadGraph()) {
+            rebuildGraph();
+        }
+    }
+
+    /**
+     * Delete the graph files in a directory, e.g. before the vectors are
+     * changed without it.
+     */
+    static void deleteGraph(Path directory) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "{hnsw-l0-*.i32," + UPPER_FILE + "}")) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Override
+    public int getDimension() {
+        return store.dimension();
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return store.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(String key) {
+        lock.readLock().lock();
+        try {
+            return store.rowOf(key) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Set<String> keys() {
+        lock.readLock().lock();
+        try {
+            return store.keys();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void putAll(Map<String, float[]> vectors) throws IOException {
+        lock.writeLock().lock();
+        try {
+            float[] stored = new float[store.dimension()];
+            for (Map.Entry<String, float[]> entry : vectors.entrySet()) {
+                // A full re-index mostly rewrites identical vectors; relinking those would only churn the graph
+                int existing = store.rowOf(entry.getKey());
+                if (existing >= 0) {
+                    store.read(existing, stored);
+                    if (Arrays.equals(stored, MappedVectorStore.normalize(entry.getValue()))) {
+                        continue;
+                    }
+                }
+                link(store.put(entry.getKey(), entry.getValue()));
+            }
+            flush();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove vectors. Their nodes stay in the graph as tombstones until the
+     * rows are reused.
+     */
+    @Override
+    public void removeAll(Collection<String> removed) throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (String key : removed) {
+                store.remove(key);
+            }
+            store.flush();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Hit> search(float[] query, int k, float minScore) {
+        if (query.length != store.dimension()) {
+            throw new IllegalArgumentException("Expected " + store.dimension() + " dimensions, got " + query.length);
+        }
+        if (k <= 0) {
+            return Collections.emptyList();
+        }
+        float[] normalized = MappedVectorStore.normalize(query);
+        long start = System.nanoTime();
+
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) {
+                return Collections.emptyList();
+            }
+            float[] scratch = new float[store.dimension()];
+            int node = entryPoint;
+            float score = similarity(normalized, node, scratch);
+            for (int layer = maxLevel; layer > 0; layer--) {
+                node = greedyClosest(normalized, node, score, layer, scratch);
+                score = similarity(normalized, node, scratch);
+            }
+            ScoreHeap candidates = searchLayer(normalized, node, score, Math.max(efSearch, k), 0, scratch);
+            visitedNodes.add(visited.get().visits);
+
+            // Best first; tombstones only route, they are never returned
+            List<Hit> hits = new ArrayList<>(k);
+            int[] nodes = candidates.drainBestFirst();
+            float[] scores = candidates.drainedScores();
+            for (int i = 0; i < nodes.length && hits.size() < k; i++) {
+                String key = store.keyAt(nodes[i]);
+                if (key != null && scores[i] >= minScore) {
+                    hits.add(new Hit(key, scores[i]));
+                }
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+            searches.increment();
+            searchNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Graph shape, parameters and search counters.
+     */
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("type", "hnsw");
+        lock.readLock().lock();
+        try {
+            stats.put("size", store.size());
+            stats.put("nodes", nodeCount);
+            stats.put("tombstones", nodeCount - store.size());
+            stats.put("layers", maxLevel + 1);
+            stats.put("upperLayerNodes", upperLinks.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+        long searchCount = searches.sum();
+        stats.put("dimension", store.dimension());
+        stats.put("m", m);
+        stats.put("efConstruction", efConstruction);
+        stats.put("efSearch", efSearch);
+        stats.put("searches", searchCount);
+        stats.put("avgSearchMs", searchCount > 0 ? searchNanos.sum() / 1e6 / searchCount : 0.0);
+        stats.put("avgLayer0Visits", searchCount > 0 ? visitedNodes.sum() / searchCount : 0);
+        stats.put("path", store.directory().toString());
+        return stats;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            flush();
+            store.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Connect a freshly written row to the graph: a new node draws a random
+     * top layer, an existing one (a replaced vector or a reused tombstone)
+     * keeps its layers and gets new links on each of them.
+     */
+    private void link(int row) throws IOException {
+        int level;
+        if (row >= nodeCount) {
+            level = randomLevel();
+            addNode(row, level);
+        } else {
+            level = levelOf(row);
+        }
+
+        float[] scratch = new float[store.dimension()];
+        float[] vector = new float[store.dimension()];
+        store.read(row, vector);
+        if (entryPoint < 0 || (entryPoint == row && nodeCount == 1)) {
+            entryPoint = row;
+            maxLevel = level;
+            return;
+        }
+
+        // An existing node's old links stay in place until each layer is relinked,
+        // so the search can start from it even when it is the entry point
+        int node = entryPoint;
+        float score = similarity(vector, node, scratch);
+        for (int layer = maxLevel; layer > level; layer--) {
+            node = greedyClosest(vector, node, score, layer, scratch);
+            score = similarity(vector, node, scratch);
+        }
+        for (int layer = Math.min(level, maxLevel); layer >= 0; layer--) {
+            ScoreHeap found = searchLayer(vector, node, score, efConstruction, layer, scratch);
+            int[] nodes = found.drainBestFirst();
+            float[] scores = found.drainedScores();
+            int[] selected = selectNeighbours(row, nodes, scores, m);
+            int[] previous = links(row, layer);
+            setLinks(row, layer, selected, selected.length);
+            for (int neighbour : selected) {
+                addLink(neighbour, layer, row);
+            }
+            repairLinks(row, layer, previous, selected, scratch);
+            // The closest node found other than this row seeds the next layer down
+            for (int i = 0; i < nodes.length; i++) {
+                if (nodes[i] != row) {
+                    node = nodes[i];
+                    score = scores[i];
+                    break;
+                }
+            }
+        }
+        if (level > maxLevel) {
+            entryPoint = row;
+            maxLevel = level;
+        }
+    }
+
+    /**
+     * Neighbour selection heuristic from the HNSW paper: walking candidates
+     * best first, keep one only if it is closer to the base than to every
+     * neighbour kept so far. This spreads links across directions instead
+     * of spending them all on one tight cluster.
+     */
+    private int[] selectNeighbours(int base, int[] nodes, float[] scores, int limit) {
+        int[] selected = new int[limit];
+        float[][] selectedVectors = new float[limit][];
+        int count = 0;
+        for (int i = 0; i < nodes.length && count < limit; i++) {
+            if (nodes[i] == base) {
+                continue;
+            }
+            float[] candidate = new float[store.dimension()];
+            store.read(nodes[i], candidate);
+            boolean diverse = true;
+            for (int j = 0; j < count && diverse; j++) {
+                diverse = MappedVectorStore.dot(candidate, selectedVectors[j]) < scores[i];
+            }
+            if (diverse) {
+                selected[count] = nodes[i];
+                selectedVectors[count++] = candidate;
+            }
+        }
+        return Arrays.copyOf(selected, count);
+    }
+
+    /**
+     * After an existing node moved, its former neighbours may still link to
+     * it although it is now far away. Each such link is swapped for the
+     * closest of the node's former and new neighbours, if that one is
+     * closer; a full re-selection would cost far more than the insert itself.
+     */
+    private void repairLinks(int row, int layer, int[] previous, int[] selected, float[] scratch) {
+        int[] pool = Arrays.copyOf(previous, previous.length + selected.length);
+        System.arraycopy(selected, 0, pool, previous.length, selected.length);
+        float[] base = new float[store.dimension()];
+        for (int neighbour : previous) {
+            if (linksTo(row, layer, neighbour)) {
+                continue; // still a neighbour; its back link is current
+            }
+            int slot = -1;
+            int count = linkCount(neighbour, layer);
+            for (int i = 0; i < count && slot < 0; i++) {
+                if (link(neighbour, layer, i) == row) {
+                    slot = i;
+                }
+            }
+            if (slot < 0) {
+                continue;
+            }
+
+            store.read(neighbour, base);
+            int replacement = -1;
+            float best = similarity(base, row, scratch);
+            for (int candidate : pool) {
+                if (candidate == neighbour) {
+                    continue;
+                }
+                float score = similarity(base, candidate, scratch);
+                if (score > best && !linksTo(neighbour, layer, candidate)) {
+                    best = score;
+                    replacement = candidate;
+                }
+            }
+            if (replacement >= 0) {
+                setLink(neighbour, layer, slot, replacement);
+            }
+        }
+    }
+
+    private boolean linksTo(int node, int layer, int target) {
+        int count = linkCount(node, layer);
+        for (int i = 0; i < count; i++) {
+            if (link(node, layer, i) == target) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int[] links(int node, int layer) {
+        int[] links = new int[linkCount(node, layer)];
+        for (int i = 0; i < links.length; i++) {
+            links[i] = link(node, layer, i);
+        }
+        return links;
+    }
+
+    /**
+     * Add a back link from node to target, re-selecting node's links if its
+     * list is full.
+     */
+    private void addLink(int node, int layer, int target) {
+        int capacity = layer == 0 ? maxLinks0 : m;
+        int count = linkCount(node, layer);
+        for (int i = 0; i < count; i++) {
+            if (link(node, layer, i) == target) {
+                return;
+            }
+        }
+        if (count < capacity) {
+            setLink(node, layer, count, target);
+            setLinkCount(node, layer, count + 1);
+            return;
+        }
+
+        float[] base = new float[store.dimension()];
+        float[] scratch = new float[store.dimension()];
+        store.read(node, base);
+        ScoreHeap pool = new ScoreHeap(true, count + 1);
+        for (int i = 0; i < count; i++) {
+            int neighbour = link(node, layer, i);
+            pool.push(neighbour, similarity(base, neighbour, scratch));
+        }
+        pool.push(target, similarity(base, target, scratch));
+        int[] nodes = pool.drainBestFirst();
+        int[] selected = selectNeighbours(node, nodes, pool.drainedScores(), capacity);
+        setLinks(node, layer, selected, selected.length);
+    }
+
+    /**
+     * Greedy descent on an upper layer: move to a better neighbour until
+     * none is left.
+     */
+    private int greedyClosest(float[] query, int node, float score, int layer, float[] scratch) {
+        int current;
+        do {
+            current = node;
+            int count = linkCount(current, layer);
+            for (int i = 0; i < count; i++) {
+                int neighbour = link(current, layer, i);
+                float candidate = similarity(query, neighbour, scratch);
+                if (candidate > score) {
+                    score = candidate;
+                    node = neighbour;
+                }
+            }
+        } while (node != current);
+        return node;
+    }
+
+    /**
+     * Best-first beam search on one layer; returns the ef best nodes seen
+     * (tombstones included, since they keep the graph connected).
+     */
+    private ScoreHeap searchLayer(float[] query, int start, float startScore, int ef, int layer, float[] scratch) {
+        Visited seen = visited.get();
+        seen.reset(nodeCount);
+        seen.visit(start);
+        ScoreHeap candidates = new ScoreHeap(true, ef * 2);
+        ScoreHeap results = new ScoreHeap(false, ef + 1);
+        candidates.push(start, startScore);
+        results.push(start, startScore);
+        int visits = 1;
+
+        while (candidates.size() > 0) {
+            float best = candidates.topScore();
+            if (results.size() >= ef && best < results.topScore()) {
+                break;
+            }
+            int node = candidates.pop();
+            int count = linkCount(node, layer);
+            for (int i = 0; i < count; i++) {
+                int neighbour = link(node, layer, i);
+                if (!seen.visit(neighbour)) {
+                    continue;
+                }
+                visits++;
+                float score = similarity(query, neighbour, scratch);
+                if (results.size() < ef || score > results.topScore()) {
+                    candidates.push(neighbour, score);
+                    results.push(neighbour, score);
+                    if (results.size() > ef) {
+                        results.pop();
+                    }
+                }
+            }
+        }
+        seen.visits = visits;
+        return results;
+    }
+
+    private float similarity(float[] query, int node, float[] scratch) {
+        store.read(node, scratch);
+        return MappedVectorStore.dot(query, scratch);
+    }
+
+    private int randomLevel() {
+        double uniform = 1.0 - ThreadLocalRandom.current().nextDouble(); // (0, 1]
+        return (int) Math.floor(-Math.log(uniform) * levelMultiplier);
+    }
+
+    private int levelOf(int node) {
+        int[][] layers = upperLinks.get(node);
+        return layers == null ? 0 : layers.length;
+    }
+
+    private void addNode(int node, int level) throws IOException {
+        while (node / MappedVectorStore.SEGMENT_ROWS >= level0.size()) {
+            mapLevel0Segment(level0.size());
+        }
+        setLinkCount(node, 0, 0);
+        if (level > 0) {
+            upperLinks.put(node, new int[level][1 + m]);
+        }
+        nodeCount = node + 1;
+    }
+
+    private int linkCount(int node, int layer) {
+        if (layer == 0) {
+            return level0.get(node / MappedVectorStore.SEGMENT_ROWS).get(level0Offset(node));
+        }
+        int[][] layers = upperLinks.get(node);
+        return layers == null || layers.length < layer ? 0 : layers[layer - 1][0];
+    }
+
+    private int link(int node, int layer, int i) {
+        if (layer == 0) {
+            return level0.get(node / MappedVectorStore.SEGMENT_ROWS).get(level0Offset(node) + 1 + i);
+        }
+        return upperLinks.get(node)[layer - 1][1 + i];
+    }
+
+    private void setLinkCount(int node, int layer, int count) {
+        if (layer == 0) {
+            level0.get(node / MappedVectorStore.SEGMENT_ROWS).put(level0Offset(node), count);
+            dirtyLevel0.add(node / MappedVectorStore.SEGMENT_ROWS);
+        } else {
+            upperLinks.get(node)[layer - 1][0] = count;
+        }
+    }
+
+    private void setLink(int node, int layer, int i, int target) {
+        if (layer == 0) {
+            level0.get(node / MappedVectorStore.SEGMENT_ROWS).put(level0Offset(node) + 1 + i, target);
+            dirtyLevel0.add(node / MappedVectorStore.SEGMENT_ROWS);
+        } else {
+            upperLinks.get(node)[layer - 1][1 + i] = target;
+        }
+    }
+
+    private void setLinks(int node, int layer, int[] targets, int count) {
+        for (int i = 0; i < count; i++) {
+            setLink(node, layer, i, targets[i]);
+        }
+        setLinkCount(node, layer, count);
+    }
+
+    private int level0Offset(int node) {
+        return (node % MappedVectorStore.SEGMENT_ROWS) * stride;
+    }
+
+    private void mapLevel0Segment(int index) throws IOException {
+        MappedByteBuffer segment = MappedVectorStore.map(
+                store.directory().resolve(String.format("hnsw-l0-%05d.i32", index)),
+                (long) MappedVectorStore.SEGMENT_ROWS * stride * Integer.BYTES);
+        level0Segments.add(segment);
+        level0.add(segment.asIntBuffer());
+    }
+
+    /**
+     * Write the vectors, the layer 0 links and then the upper layers, which
+     * record the node count the graph is valid for.
+     */
+    private void flush() throws IOException {
+        store.flush();
+        for (int segment : dirtyLevel0) {
+            level0Segments.get(segment).force();
+        }
+        dirtyLevel0.clear();
+
+        Path upper = store.directory().resolve(UPPER_FILE);
+        Path temp = store.directory().resolve(UPPER_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(GRAPH_VERSION);
+            out.writeInt(m);
+            out.writeInt(nodeCount);
+            out.writeInt(entryPoint);
+            out.writeInt(maxLevel);
+            out.writeInt(upperLinks.size());
+            for (Map.Entry<Integer, int[][]> entry : upperLinks.entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeInt(entry.getValue().length);
+                for (int[] links : entry.getValue()) {
+                    out.writeInt(links[0]);
+                    for (int i = 1; i <= links[0]; i++) {
+                        out.writeInt(links[i]);
+                    }
+                }
+            }
+        }
+        Files.move(temp, upper, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Load a persisted graph. Returns false if there is none, or it was
+     * built with another M or for a different set of rows.
+     */
+    private boolean loadGraph() throws IOException {
+        Path upper = store.directory().resolve(UPPER_FILE);
+        if (!Files.exists(upper)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(upper)))) {
+            if (in.readInt() != GRAPH_VERSION || in.readInt() != m || in.readInt() != store.rowCount()) {
+                return false;
+            }
+            nodeCount = store.rowCount();
+            entryPoint = in.readInt();
+            maxLevel = in.readInt();
+            int upperCount = in.readInt();
+            for (int n = 0; n < upperCount; n++) {
+                int node = in.readInt();
+                int[][] layers = new int[in.readInt()][1 + m];
+                for (int[] links : layers) {
+                    links[0] = in.readInt();
+                    for (int i = 1; i <= links[0]; i++) {
+                        links[i] = in.readInt();
+                    }
+                }
+                upperLinks.put(node, layers);
+            }
+        } catch (EOFException e) {
+            upperLinks.clear();
+            return false;
+        }
+
+        int segmentCount = (nodeCount + MappedVectorStore.SEGMENT_ROWS - 1) / MappedVectorStore.SEGMENT_ROWS;
+        for (int i = 0; i < segmentCount; i++) {
+            mapLevel0Segment(i);
+        }
+        return true;
+    }
+
+    /**
+     * Build the graph from the stored vectors, e.g. after switching from the
+     * exact index. Free rows become tombstones.
+     */
+    private void rebuildGraph() throws IOException {
+        upperLinks.clear();
+        level0Segments.clear();
+        level0.clear();
+        nodeCount = 0;
+        entryPoint = -1;
+        maxLevel = -1;
+        deleteGraph(store.directory());
+        if (store.rowCount() == 0) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        for (int row = 0; row < store.rowCount(); row++) {
+            link(row);
+        }
+        flush();
+        System.out.println("[INFO] Built HNSW graph over " + store.size() + " vectors in "
+                + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    /**
+     * Visited marks for one search, reset by bumping an epoch instead of
+     * clearing the array.
+     */
+    private static final class Visited {
+        private int[] marks = new int[0];
+        private int epoch;
+        // Nodes scored by the last layer search on this thread
+        private int visits;
+
+        void reset(int nodes) {
+            if (marks.length < nodes) {
+                marks = new int[Math.max(nodes, marks.length * 2)];
+                epoch = 0;
+            }
+            if (++epoch == 0) {
+                Arrays.fill(marks, 0);
+                epoch = 1;
+            }
+        }
+
+        /**
+         * Mark a node; false if it was already marked.
+         */
+        boolean visit(int node) {
+            if (marks[node] == epoch) {
+                return false;
+            }
+            marks[node] = epoch;
+            return true;
+        }
+    }
+
+    /**
+     * Binary heap of (node, score) on primitive arrays; a max-heap pops the
+     * best score first, a min-heap the worst.
+     */
+    private static final class ScoreHeap {
+        private final boolean max;
+        private int[] nodes;
+        private float[] scores;
+        private int size;
+        private float[] drained;
+
+        ScoreHeap(boolean max, int capacity) {
+            this.max = max;
+            this.nodes = new int[Math.max(4, capacity)];
+            this.scores = new float[nodes.length];
+        }
+
+        int size() {
+            return size;
+        }
+
+        float topScore() {
+            return scores[0];
+        }
+
+        void push(int node, float score) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            nodes[size] = node;
+            scores[size] = score;
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!before(i, parent)) {
+                    break;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        int pop() {
+            int top = nodes[0];
+            size--;
+            nodes[0] = nodes[size];
+            scores[0] = scores[size];
+            int i = 0;
+            while (true) {
+                int left = 2 * i + 1;
+                int first = i;
+                if (left < size && before(left, first)) {
+                    first = left;
+                }
+                if (left + 1 < size && before(left + 1, first)) {
+                    first = left + 1;
+                }
+                if (first == i) {
+                    return top;
+                }
+                swap(i, first);
+                i = first;
+            }
+        }
+
+        /**
+         * Empty the heap into an array ordered best score first; the scores
+         * are then available from {@link #drainedScores()}.
+         */
+        int[] drainBestFirst() {
+            int count = size;
+            int[] ordered = new int[count];
+            drained = new float[count];
+            for (int i = 0; i < count; i++) {
+                int slot = max ? i : count - 1 - i;
+                drained[slot] = scores[0];
+                ordered[slot] = pop();
+            }
+            return ordered;
+        }
+
+        float[] drainedScores() {
+            return drained;
+        }
+
+        private boolean before(int a, int b) {
+            return max ? scores[a] > scores[b] : scores[a] < scores[b];
+        }
+
+        private void swap(int a, int b) {
+            int node = nodes[a];
+            nodes[a] = nodes[b];
+            nodes[b] = node;
+            float score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.smartfridge.vector;
+
+import java.io.*;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Row storage shared by the vector indexes: L2-normalized float32 rows in
+ * memory-mapped segment files (segment-00000.f32, ...), and the key of each
+ * row in an append-only log that is compacted on open. Rows of removed keys
+ * are reused by later inserts.
+ *
+ * Not thread-safe; the owning index serializes writes. Reads of row data
+ * are safe alongside other reads.
+ */
+final class MappedVectorStore implements Closeable {
+
+    // ~48 MB per segment at 1536 dimensions
+    static final int SEGMENT_ROWS = 8192;
+
+    private static final String META_FILE = "index.meta";
+    private static final String KEY_LOG = "keys.log";
+
+    private final Path directory;
+    private final int dimension;
+
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final List<FloatBuffer> segmentViews = new ArrayList<>();
+    private final Set<Integer> dirtySegments = new HashSet<>();
+    private String[] keys = new String[0];
+    private int rowCount; // high-water mark of used rows
+    private final Map<String, Integer> rows = new HashMap<>();
+    private final TreeSet<Integer> freeRows = new TreeSet<>();
+    private DataOutputStream keyLog;
+
+    /**
+     * Open (or create) the store in the given directory. A store built for
+     * another dimension is discarded.
+     */
+    MappedVectorStore(Path directory, int dimension) throws IOException {
+        this.directory = directory;
+        this.dimension = dimension;
+        Files.createDirectories(directory);
+
+        if (!metaLine().equals(readMeta())) {
+            clearFiles();
+            Files.writeString(directory.resolve(META_FILE), metaLine());
+        }
+        loadKeys();
+        int segmentCount = (rowCount + SEGMENT_ROWS - 1) / SEGMENT_ROWS;
+        for (int i = 0; i < segmentCount; i++) {
+            mapSegment(i);
+        }
+        compactKeyLog();
+    }
+
+    Path directory() {
+        return directory;
+    }
+
+    int dimension() {
+        return dimension;
+    }
+
+    int size() {
+        return rows.size();
+    }
+
+    /**
+     * Rows in use or free; row numbers are below this.
+     */
+    int rowCount() {
+        return rowCount;
+    }
+
+    int segmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Key stored in a row, or null if the row is free.
+     */
+    String keyAt(int row) {
+        return keys[row];
+    }
+
+    /**
+     * Row of a key, or -1.
+     */
+    int rowOf(String key) {
+        Integer row = rows.get(key);
+        return row != null ? row : -1;
+    }
+
+    Set<String> keys() {
+        return new HashSet<>(rows.keySet());
+    }
+
+    /**
+     * Store a vector (normalized) under its key, reusing the key's row or a
+     * free one. Returns the row.
+     */
+    int put(String key, float[] vector) throws IOException {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected " + dimension + " dimensions, got "
+                    + vector.length + " for " + key);
+        }
+        Integer row = rows.get(key);
+        if (row == null) {
+            row = allocateRow();
+            rows.put(key, row);
+            keys[row] = key;
+            keyLog.writeInt(row);
+            keyLog.writeUTF(key);
+        }
+        segmentViews.get(row / SEGMENT_ROWS).put((row % SEGMENT_ROWS) * dimension, normalize(vector));
+        dirtySegments.add(row / SEGMENT_ROWS);
+        return row;
+    }
+
+    /**
+     * Free the row of a key. Returns the row, or -1 if the key was absent.
+     */
+    int remove(String key) throws IOException {
+        Integer row = rows.remove(key);
+        if (row == null) {
+            return -1;
+        }
+        keys[row] = null;
+        freeRows.add(row);
+        keyLog.writeInt(row);
+        keyLog.writeUTF("");
+        return row;
+    }
+
+    /**
+     * Copy a row's (normalized) vector into out.
+     */
+    void read(int row, float[] out) {
+        segmentViews.get(row / SEGMENT_ROWS).get((row % SEGMENT_ROWS) * dimension, out);
+    }
+
+    /**
+     * Write modified rows and pending key log records to disk.
+     */
+    void flush() throws IOException {
+        for (int segment : dirtySegments) {
+            segments.get(segment).force();
+        }
+        dirtySegments.clear();
+        keyLog.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        keyLog.close();
+    }
+
+    /**
+     * Dot product with four independent accumulators, so the JIT can keep
+     * several multiply-adds in flight.
+     */
+    static float dot(float[] a, float[] b) {
+        float s0 = 0f;
+        float s1 = 0f;
+        float s2 = 0f;
+        float s3 = 0f;
+        int n = a.length;
+        int unrolled = n & ~3;
+        int i = 0;
+        for (; i < unrolled; i += 4) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+        }
+        for (; i < n; i++) {
+            s0 += a[i] * b[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += (double) v * v;
+        }
+        float[] normalized = vector.clone();
+        if (norm > 0) {
+            float scale = (float) (1.0 / Math.sqrt(norm));
+            for (int i = 0; i < normalized.length; i++) {
+                normalized[i] *= scale;
+            }
+        }
+        return normalized;
+    }
+
+    /**
+     * Map a little-endian file region read-write, growing the file (sparsely)
+     * if needed. The mapping stays valid after the channel is closed.
+     */
+    static MappedByteBuffer map(Path file, long bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        }
+    }
+
+    private int allocateRow() throws IOException {
+        Integer free = freeRows.pollFirst();
+        if (free != null) {
+            return free;
+        }
+        int row = rowCount++;
+        if (row / SEGMENT_ROWS >= segments.size()) {
+            mapSegment(segments.size());
+        }
+        if (row >= keys.length) {
+            keys = Arrays.copyOf(keys, Math.max(SEGMENT_ROWS, keys.length * 2));
+        }
+        return row;
+    }
+
+    private void mapSegment(int index) throws IOException {
+        MappedByteBuffer segment = map(directory.resolve(String.format("segment-%05d.f32", index)),
+                (long) SEGMENT_ROWS * dimension * Float.BYTES);
+        segments.add(segment);
+        segmentViews.add(segment.asFloatBuffer());
+    }
+
+    /**
+     * Replay the key log. A record cut short by a crash ends the replay; its
+     * row was never acknowledged, so it is simply treated as free.
+     */
+    private void loadKeys() throws IOException {
+        Path log = directory.resolve(KEY_LOG);
+        Map<Integer, String> live = new HashMap<>();
+        int highest = -1;
+        if (Files.exists(log)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(log)))) {
+                while (true) {
+                    int row = in.readInt();
+                    String key = in.readUTF();
+                    highest = Math.max(highest, row);
+                    if (key.isEmpty()) {
+                        live.remove(row);
+                    } else {
+                        live.put(row, key);
+                    }
+                }
+            } catch (EOFException e) {
+                // End of log
+            }
+        }
+
+        rowCount = highest + 1;
+        keys = new String[Math.max(SEGMENT_ROWS, rowCount)];
+        for (Map.Entry<Integer, String> entry : live.entrySet()) {
+            keys[entry.getKey()] = entry.getValue();
+            Integer duplicate = rows.put(entry.getValue(), entry.getKey());
+            if (duplicate != null) {
+                keys[duplicate] = null;
+            }
+        }
+        for (int row = 0; row < rowCount; row++) {
+            if (keys[row] == null) {
+                freeRows.add(row);
+            }
+        }
+    }
+
+    /**
+     * Rewrite the key log with only the live rows, plus a free record for
+     * the last row if it is free, so the high-water mark (which a persisted
+     * graph is checked against) survives the compaction.
+     */
+    private void compactKeyLog() throws IOException {
+        Path log = directory.resolve(KEY_LOG);
+        Path compacted = directory.resolve(KEY_LOG + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(compacted)))) {
+            for (Map.Entry<String, Integer> entry : rows.entrySet()) {
+                out.writeInt(entry.getValue());
+                out.writeUTF(entry.getKey());
+            }
+            if (rowCount > 0 && keys[rowCount - 1] == null) {
+                out.writeInt(rowCount - 1);
+                out.writeUTF("");
+            }
+        }
+        Files.move(compacted, log, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        keyLog = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(log, StandardOpenOption.APPEND)));
+    }
+
+    private String metaLine() {
+        return "dimension=" + dimension;
+    }
+
+    private String readMeta() throws IOException {
+        Path meta = directory.resolve(META_FILE);
+        return Files.exists(meta) ? Files.readString(meta).trim() : null;
+    }
+
+    private void clearFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "{segment-*.f32," + KEY_LOG + "}")) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.smartfridge.vector;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Streaming JSON for Qdrant requests and search responses.
+ *
+ * Requests are written with a {@link JsonGenerator} straight into a byte
+ * buffer taken from a small shared pool, not one per thread (in virtual
+ * thread mode every request has a new thread), so a 1536-float vector
+ * costs no tree nodes and no intermediate String. Search responses are read
+ * with a {@link JsonParser} that keeps only each point's score, recipe
+ * name and cuisine, skipping everything else (ids, other payload fields,
+ * vectors) without building it.
+ */
+public final class QdrantCodec {
+
+    private static final JsonFactory JSON = JsonFactory.builder()
+            .enable(StreamWriteFeature.USE_FAST_DOUBLE_WRITER)
+            .enable(StreamReadFeature.USE_FAST_DOUBLE_PARSER)
+            .build();
+
+    // Buffers kept for reuse; larger ones (big upsert batches) are dropped after use
+    private static final int POOL_SIZE = 16;
+    private static final int MAX_POOLED_BYTES = 1024 * 1024;
+
+    // Nine significant digits always parse back to the same float
+    private static final int FLOAT_DIGITS = 9;
+    private static final long MAX_DIGITS = 1_000_000_000L;
+    private static final int MAX_FLOAT_CHARS = 16; // -d.ddddddddE-dd
+    private static final double LOG10_2 = 0.30102999566398120;
+    private static final double[] POW10 = new double[64];
+    private static final long[] POW10_LONG = { 1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L,
+            10_000_000L, 100_000_000L, 1_000_000_000L };
+
+    static {
+        for (int i = 0; i < POW10.length; i++) {
+            POW10[i] = Double.parseDouble("1e" + i);
+        }
+    }
+
+    private static final ArrayBlockingQueue<PooledBuffer> BUFFERS = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private QdrantCodec() {
+    }
+
+    /**
+     * Start a request body in a pooled buffer, or in a fresh one if all
+     * pooled buffers are held by open requests.
+     */
+    public static Request request() {
+        PooledBuffer buffer = BUFFERS.poll();
+        if (buffer == null) {
+            buffer = new PooledBuffer();
+        }
+        buffer.reset();
+        try {
+            return new Request(buffer, JSON.createGenerator(buffer));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write to an in-memory buffer", e);
+        }
+    }
+
+    /**
+     * Write a float array value. Each element is formatted straight into a
+     * scratch array rather than through a String per number.
+     */
+    public static void writeFloats(JsonGenerator json, float[] values) throws IOException {
+        char[] text = new char[MAX_FLOAT_CHARS];
+        json.writeStartArray(values, values.length);
+        for (float v : values) {
+            if (Float.isFinite(v)) {
+                json.writeRawValue(text, 0, formatFloat(v, text));
+            } else {
+                json.writeNumber(v);
+            }
+        }
+        json.writeEndArray();
+    }
+
+    /**
+     * Format a finite float as a JSON number with the fewest significant
+     * digits (at most FLOAT_DIGITS) that read back as the same float, e.g.
+     * 0.0125, 2.0 or 1.5E-7. Returns the number of chars written.
+     */
+    static int formatFloat(float value, char[] out) {
+        int length = 0;
+        if (value == 0f) {
+            if (Float.floatToRawIntBits(value) != 0) {
+                out[length++] = '-';
+            }
+            out[length++] = '0';
+            out[length++] = '.';
+            out[length++] = '0';
+            return length;
+        }
+        double magnitude = value;
+        if (magnitude < 0) {
+            out[length++] = '-';
+            magnitude = -magnitude;
+        }
+
+        // Decimal exponent from the binary one, off by at most one until the digits are in range
+        int exponent = (int) Math.floor(Math.getExponent(magnitude) * LOG10_2);
+        long digits = Math.round(scale(magnitude, FLOAT_DIGITS - 1 - exponent));
+        while (digits >= MAX_DIGITS) {
+            exponent++;
+            digits = Math.round(scale(magnitude, FLOAT_DIGITS - 1 - exponent));
+        }
+        while (digits < MAX_DIGITS / 10) {
+            exponent--;
+            digits = Math.round(scale(magnitude, FLOAT_DIGITS - 1 - exponent));
+        }
+        // Fewest digits that still read back as the same float; more digits never read back worse
+        int count = FLOAT_DIGITS;
+        int fewest = 1;
+        while (fewest < count) {
+            int middle = (fewest + count) >>> 1;
+            long candidate = Math.round(scale(magnitude, middle - 1 - exponent));
+            if (candidate < POW10_LONG[middle]
+                    && (float) scale(candidate, exponent + 1 - middle) == (float) magnitude) {
+                digits = candidate;
+                count = middle;
+            } else {
+                fewest = middle + 1;
+            }
+        }
+        while (count > 1 && digits % 10 == 0) {
+            digits /= 10;
+            count--;
+        }
+
+        // 0.00ddd for the usual embedding magnitudes, d[.ddd][E[-]x] otherwise
+        if (exponent < 0 && exponent >= -3) {
+            out[length++] = '0';
+            out[length++] = '.';
+            for (int i = -1; i > exponent; i--) {
+                out[length++] = '0';
+            }
+            for (int i = length + count - 1; i >= length; i--) {
+                out[i] = (char) ('0' + digits % 10);
+                digits /= 10;
+            }
+            return length + count;
+        }
+        int end = length + count + (count > 1 ? 1 : 0);
+        for (int i = end - 1; i > length; i--) {
+            if (i == length + 1) {
+                out[i] = '.';
+            } else {
+                out[i] = (char) ('0' + digits % 10);
+                digits /= 10;
+            }
+        }
+        out[length] = (char) ('0' + digits);
+        length = end;
+        if (count == 1 && exponent == 0) {
+            // Whole numbers keep a fraction, as Jackson writes them
+            out[length++] = '.';
+            out[length++] = '0';
+        }
+
+        if (exponent != 0) {
+            out[length++] = 'E';
+            if (exponent < 0) {
+                out[length++] = '-';
+                exponent = -exponent;
+            }
+            if (exponent >= 10) {
+                out[length++] = (char) ('0' + exponent / 10);
+            }
+            out[length++] = (char) ('0' + exponent % 10);
+        }
+        return length;
+    }
+
+    private static double scale(double value, int power) {
+        return power >= 0 ? value * POW10[power] : value / POW10[-power];
+    }
+
+    /**
+     * Read the points of a search or query response, whose "result" is the
+     * point array or an object holding it under "points".
+     */
+    public static void readPoints(InputStream in, PointHandler handler) throws IOException {
+        try (JsonParser parser = JSON.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (!"result".equals(field)) {
+                    parser.skipChildren();
+                } else if (value == JsonToken.START_ARRAY) {
+                    readPointArray(parser, handler);
+                } else if (value == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String resultField = parser.currentName();
+                        if (parser.nextToken() == JsonToken.START_ARRAY && "points".equals(resultField)) {
+                            readPointArray(parser, handler);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void readPointArray(JsonParser parser, PointHandler handler) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (token == JsonToken.START_OBJECT) {
+                readPoint(parser, handler);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readPoint(JsonParser parser, PointHandler handler) throws IOException {
+        String recipeName = "";
+        String cuisineType = null;
+        float score = 0f;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("score".equals(field) && value.isNumeric()) {
+                score = parser.getFloatValue();
+            } else if ("payload".equals(field) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String payloadField = parser.currentName();
+                    parser.nextToken();
+                    if ("recipe_name".equals(payloadField)) {
+                        recipeName = parser.getValueAsString("");
+                    } else if ("cuisine_type".equals(payloadField)) {
+                        cuisineType = parser.getValueAsString();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        handler.point(recipeName, score, cuisineType);
+    }
+
+    /**
+     * Receives each point of a response, in order.
+     */
+    @FunctionalInterface
+    public interface PointHandler {
+        void point(String recipeName, float score, String cuisineType);
+    }
+
+    /**
+     * A request body being written. Closing it hands the buffer back to the
+     * pool for a later request.
+     */
+    public static final class Request implements AutoCloseable {
+        private final PooledBuffer buffer;
+        private final JsonGenerator json;
+        private boolean closed;
+
+        private Request(PooledBuffer buffer, JsonGenerator json) {
+            this.buffer = buffer;
+            this.json = json;
+        }
+
+        public JsonGenerator json() {
+            return json;
+        }
+
+        /**
+         * Bytes written so far.
+         */
+        public int size() throws IOException {
+            json.flush();
+            return buffer.size();
+        }
+
+        /**
+         * Copy the body to out without an intermediate array. Can be called
+         * again (e.g. on a retry) until the request is closed.
+         */
+        public void writeTo(OutputStream out) throws IOException {
+            json.flush();
+            buffer.writeTo(out);
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                // Returns the generator's own buffers to Jackson's recycler
+                json.close();
+            } catch (IOException e) {
+                // Nothing to flush to but memory
+            }
+            if (buffer.capacity() <= MAX_POOLED_BYTES) {
+                BUFFERS.offer(buffer);
+            }
+        }
+    }
+
+    private static final class PooledBuffer extends ByteArrayOutputStream {
+
+        PooledBuffer() {
+            super(32 * 1024);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.smartfridge.vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Bounded min-heap of (row, score) on primitive arrays; the root is the
+ * weakest of the best k seen so far.
+ */
+final class TopK {
+    private final int[] rows;
+    private final float[] scores;
+    private int size;
+
+    TopK(int k) {
+        this.rows = new int[k];
+        this.scores = new float[k];
+    }
+
+    void offer(int row, float score) {
+        if (size < rows.length) {
+            rows[size] = row;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (score > scores[0]) {
+            rows[0] = row;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    void addAll(TopK other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.rows[i], other.scores[i]);
+        }
+    }
+
+    boolean isFull() {
+        return size == rows.length;
+    }
+
+    /**
+     * Weakest score kept; only meaningful once full.
+     */
+    float minScore() {
+        return scores[0];
+    }
+
+    /**
+     * The kept rows as hits, best first.
+     */
+    List<VectorIndex.Hit> toHits(IntFunction<String> keyOf) {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Float.compare(scores[b], scores[a]));
+        List<VectorIndex.Hit> hits = new ArrayList<>(size);
+        for (int i : order) {
+            hits.add(new VectorIndex.Hit(keyOf.apply(rows[i]), scores[i]));
+        }
+        return hits;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (scores[parent] <= scores[i]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            int smallest = i;
+            if (left < size && scores[left] < scores[smallest]) {
+                smallest = left;
+            }
+            if (left + 1 < size && scores[left + 1] < scores[smallest]) {
+                smallest = left + 1;
+            }
+            if (smallest == i) {
+                return;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int row = rows[a];
+        rows[a] = rows[b];
+        rows[b] = row;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
@@ -0,0 +1,65 @@
+package com.smartfridge.vector;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Embedded cosine-similarity index over recipe vectors, keyed by recipe
+ * name. Implementations persist to a directory and are thread-safe.
+ */
+public interface VectorIndex extends Closeable {
+
+    int getDimension();
+
+    int size();
+
+    boolean contains(String key);
+
+    /**
+     * Snapshot of the keys in the index.
+     */
+    Set<String> keys();
+
+    /**
+     * Insert or replace vectors, then flush them to disk.
+     */
+    void putAll(Map<String, float[]> vectors) throws IOException;
+
+    void removeAll(Collection<String> keys) throws IOException;
+
+    /**
+     * Up to k keys most similar to the query, best first, skipping any
+     * scoring below minScore.
+     */
+    List<Hit> search(float[] query, int k, float minScore);
+
+    /**
+     * Size and search counters.
+     */
+    Map<String, Object> getStats();
+
+    /**
+     * One search result.
+     */
+    final class Hit {
+        private final String key;
+        private final float score;
+
+        public Hit(String key, float score) {
+            this.key = key;
+            this.score = score;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public float getScore() {
+            return score;
+        }
+    }
+}
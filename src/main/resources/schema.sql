@@ -51,8 +51,9 @@ CREATE TABLE IF NOT EXISTS ingredient_aliases (
     UNIQUE(canonical_name, alias)
 );
 
-CREATE INDEX IF NOT EXISTS idx_aliases_canonical ON ingredient_aliases(canonical_name);
-CREATE INDEX IF NOT EXISTS idx_aliases_alias ON ingredient_aliases(alias);
+-- Case-insensitive indexes; lookups compare with "= ? COLLATE NOCASE"
+CREATE INDEX IF NOT EXISTS idx_aliases_canonical_nocase ON ingredient_aliases(canonical_name COLLATE NOCASE);
+CREATE INDEX IF NOT EXISTS idx_aliases_alias_nocase ON ingredient_aliases(alias COLLATE NOCASE);
 
 -- Recipe embeddings metadata (vectors stored in Qdrant)
 -- Used for semantic search of recipes
@@ -60,6 +61,41 @@ CREATE TABLE IF NOT EXISTS recipe_embeddings (
     recipe_name TEXT PRIMARY KEY,
     embedding_id TEXT NOT NULL,      -- Qdrant point ID
     model_version TEXT,              -- e.g., "nomic-embed-text"
+    content_hash TEXT,               -- SHA-256 of the embedded recipe text
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (recipe_name) REFERENCES food_items(name) ON DELETE CASCADE
 );
+
+-- Background re-index jobs (see ReindexJobService)
+-- watermark is the last recipe_name whose vectors are committed; resume continues after it
+CREATE TABLE IF NOT EXISTS index_jobs (
+    id TEXT PRIMARY KEY,
+    status TEXT NOT NULL,            -- RUNNING, COMPLETED, FAILED, CANCELLED, INTERRUPTED
+    mode TEXT DEFAULT 'FULL',        -- FULL re-embeds everything, CHANGED only new or edited recipes
+    watermark TEXT,
+    total INTEGER DEFAULT 0,         -- recipes after the watermark when the run started
+    read_count INTEGER DEFAULT 0,
+    indexed INTEGER DEFAULT 0,
+    skipped INTEGER DEFAULT 0,       -- recipes without ingredients
+    unchanged INTEGER DEFAULT 0,     -- CHANGED mode: recipes whose text and model match the index
+    deleted INTEGER DEFAULT 0,       -- stale vectors removed at the end of the run
+    failed INTEGER DEFAULT 0,        -- recipes in batches that failed to embed or upsert
+    error TEXT,
+    started_at INTEGER,              -- epoch millis
+    updated_at INTEGER,
+    finished_at INTEGER
+);
+
+-- Write-behind queue of pending vector index changes (see IndexQueueService)
+-- One row per recipe: repeated edits coalesce into the latest operation
+CREATE TABLE IF NOT EXISTS index_queue (
+    recipe_name TEXT PRIMARY KEY,
+    operation TEXT NOT NULL,         -- UPSERT or DELETE
+    generation INTEGER DEFAULT 0,    -- bumped on every enqueue so newer edits are never lost
+    attempts INTEGER DEFAULT 0,
+    next_attempt_at INTEGER NOT NULL, -- epoch millis
+    enqueued_at INTEGER NOT NULL,
+    last_error TEXT
+);
+
+CREATE INDEX IF NOT EXISTS idx_index_queue_next_attempt ON index_queue(next_attempt_at);
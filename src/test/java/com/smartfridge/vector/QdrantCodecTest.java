@@ -0,0 +1,122 @@
+package com.smartfridge.vector;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Round-trip exactness of {@link QdrantCodec#formatFloat}: the text must be
+ * a JSON number that parses back to the very same float. The exhaustive
+ * check over every finite float takes minutes, so it only runs with
+ * -Dqdrant.codec.exhaustive=true.
+ */
+class QdrantCodecTest {
+
+    private static final Pattern JSON_NUMBER = Pattern.compile("-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][-+]?[0-9]+)?");
+
+    @Test
+    void formatsBoundaryFloatsExactly() {
+        List<Float> values = new ArrayList<>(List.of(0f, -0f, 1f, -1f, 0.1f, 0.5f, 2f, 10f, 100f, 1234567f,
+                123456789f, Float.MIN_VALUE, -Float.MIN_VALUE, Float.MIN_NORMAL, Float.MAX_VALUE,
+                -Float.MAX_VALUE, Math.nextDown(Float.MIN_NORMAL), 16777216f, 16777217f, 0.0125f, 1.5e-7f));
+        // Powers of ten cover every switch between plain and E notation, e.g. 1e-3 / 1e-4
+        for (int exponent = -45; exponent <= 38; exponent++) {
+            float power = Float.parseFloat("1e" + exponent);
+            values.add(power);
+            values.add(Math.nextUp(power));
+            values.add(Math.nextDown(power));
+        }
+        // Powers of two cover the exponent estimate from the binary exponent
+        for (int exponent = -149; exponent <= 127; exponent++) {
+            float power = (float) Math.scalb(1.0, exponent);
+            values.add(power);
+            values.add(Math.nextUp(power));
+            values.add(Math.nextDown(power));
+        }
+        for (float value : values) {
+            assertRoundTrip(value);
+            assertRoundTrip(-value);
+        }
+    }
+
+    @Test
+    void formatsRandomFloatsExactly() {
+        Random random = new Random(42);
+        for (int i = 0; i < 2_000_000; i++) {
+            float value = Float.intBitsToFloat(random.nextInt());
+            if (Float.isFinite(value)) {
+                assertRoundTrip(value);
+            }
+            // Embedding-like magnitudes, where the plain 0.00ddd form is used
+            assertRoundTrip((float) (random.nextGaussian() * 0.03));
+        }
+    }
+
+    @Test
+    void writesFloatArraysThatParseBack() throws Exception {
+        Random random = new Random(7);
+        float[] vector = new float[1536];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = (float) (random.nextGaussian() * 0.03);
+        }
+        vector[0] = Float.NaN;
+        vector[1] = Float.MAX_VALUE;
+        vector[2] = -0f;
+
+        String json;
+        try (QdrantCodec.Request body = QdrantCodec.request()) {
+            QdrantCodec.writeFloats(body.json(), vector);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            body.writeTo(out);
+            json = out.toString(StandardCharsets.UTF_8);
+        }
+        // NaN is written as a string, which Jackson reads back as NaN
+        float[] parsed = new ObjectMapper().readValue(json, float[].class);
+        assertEquals(vector.length, parsed.length);
+        for (int i = 0; i < vector.length; i++) {
+            assertEquals(Float.floatToIntBits(vector[i]), Float.floatToIntBits(parsed[i]), "index " + i);
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "qdrant.codec.exhaustive", matches = "true")
+    void formatsEveryFiniteFloatExactly() {
+        AtomicLong failures = new AtomicLong();
+        // Split the 2^32 bit patterns into 256 ranges of 2^24
+        IntStream.range(0, 256).parallel().forEach(block -> {
+            char[] text = new char[16];
+            for (int low = 0; low < 1 << 24; low++) {
+                float value = Float.intBitsToFloat(block << 24 | low);
+                if (Float.isFinite(value)) {
+                    int length = QdrantCodec.formatFloat(value, text);
+                    if (Float.floatToIntBits(Float.parseFloat(new String(text, 0, length)))
+                            != Float.floatToIntBits(value)) {
+                        failures.incrementAndGet();
+                    }
+                }
+            }
+        });
+        assertEquals(0, failures.get());
+    }
+
+    private static void assertRoundTrip(float value) {
+        char[] text = new char[16];
+        String formatted = new String(text, 0, QdrantCodec.formatFloat(value, text));
+        assertTrue(JSON_NUMBER.matcher(formatted).matches(), () -> "not a JSON number: " + formatted);
+        assertEquals(Float.floatToIntBits(value), Float.floatToIntBits(Float.parseFloat(formatted)),
+                () -> value + " written as " + formatted);
+        String digits = formatted.replaceFirst("[eE].*", "").replaceAll("[^0-9]", "").replaceFirst("^0+", "");
+        assertTrue(digits.length() <= 9, () -> value + " written with too many digits: " + formatted);
+    }
+}